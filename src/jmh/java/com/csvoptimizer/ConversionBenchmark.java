@@ -0,0 +1,143 @@
+package com.csvoptimizer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Per-row benchmarks of conversion hot path.
+ * Rows are taken from the beginning of synthetic log and cycled to keep memory footprint small.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ConversionBenchmark {
+
+    private static final int SAMPLE_ROWS = 1 << 16;
+
+    static final Calendar STARTING_DATE = new GregorianCalendar(2021, Calendar.JANUARY, 1, 12, 0, 0);
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"42"})
+    public long seed;
+
+    private String[] sampleRows;
+    private List<List<String>> convertedRows;
+    private String[] columns;
+    private CSVConverter converter;
+    private PrintWriter nullWriter;
+    private int rowIdx;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        String log = SyntheticLog.getLog(rows, seed);
+        sampleRows = SyntheticLog.readRows(log, SAMPLE_ROWS);
+
+        converter = new CSVConverter(log, null, 1, (Calendar) STARTING_DATE.clone(), null);
+        converter.initGenerators((Calendar) STARTING_DATE.clone());
+        columns = converter.getColumnsDebugOn();
+        nullWriter = new PrintWriter(Writer.nullWriter());
+
+        // Fully converted rows are used as input of single generators since some of them depend on other ones.
+        convertedRows = new ArrayList<>(sampleRows.length);
+        for (int i = 0; i < sampleRows.length; ++i) {
+            List<String> rowValues = new ArrayList<>(Arrays.asList(sampleRows[i].split(CSV_DELIMITER, -1)));
+            for (int j = 0; j < columns.length; ++j) {
+                String result = converter.generateValue(columns, rowValues, j);
+                rowValues.set(j, result);
+            }
+            convertedRows.add(rowValues);
+        }
+
+        // Generators using values of previous row need it to be set.
+        converter.printRow(sampleRows[0], columns, nullWriter);
+    }
+
+    private int nextRowIdx() {
+        rowIdx = (rowIdx + 1) & (SAMPLE_ROWS - 1);
+        return rowIdx % sampleRows.length;
+    }
+
+    @Benchmark
+    public List<String> parseRow() {
+        String[] rowValues = sampleRows[nextRowIdx()].split(CSV_DELIMITER, -1);
+        return new ArrayList<>(Arrays.asList(rowValues));
+    }
+
+    @Benchmark
+    public int getColumnIndex() {
+        return converter.getColumnIndex(GPS_LAT_COLUMN_NAME);
+    }
+
+    @Benchmark
+    public void printRowData() {
+        converter.printRowData(convertedRows.get(nextRowIdx()), nullWriter);
+    }
+
+    @Benchmark
+    public void convertRow() throws Exception {
+        converter.printRow(sampleRows[nextRowIdx()], columns, nullWriter);
+    }
+
+    @State(Scope.Thread)
+    public static class GeneratorState {
+
+        @Param({GPX_DATE_COLUMN_HEADER, USER_DATE_COLUMN_HEADER, V_SPEED_BARO_HEADER, FLIGHT_MODE_INDICATOR_HEADER,
+                STATE_INDICATOR_HEADER, FAILSAFE_PHASE_INDICATOR_HEADER, STATUS_ICON_INDICATOR_HEADER})
+        public String generatorColumn;
+
+        FieldGenerator generator;
+        int columnIdx;
+
+        @Setup(Level.Trial)
+        public void setUp(ConversionBenchmark benchmark) {
+            generator = benchmark.converter.getGenerator(generatorColumn);
+            columnIdx = benchmark.converter.getColumnIndex(generatorColumn);
+        }
+    }
+
+    @Benchmark
+    public String fieldGenerator(GeneratorState state) throws Exception {
+        return state.generator.generateValue(columns, convertedRows.get(nextRowIdx()), state.columnIdx);
+    }
+
+    @State(Scope.Thread)
+    public static class AveragerState {
+
+        final EvictingQueue<Double> queue = new EvictingQueue<>(10);
+        final Map<String, Object> parameters = new HashMap<>();
+        Averager averager;
+
+        @Setup(Level.Trial)
+        public void setUp(ConversionBenchmark benchmark) {
+            String[] averColumns = {GPS_LAT_COLUMN_NAME, GPS_LON_COLUMN_NAME, GPS_ALTITUDE_COLUMN_NAME};
+            averager = new Averager(null, null, new LinkedHashSet<>(Arrays.asList(averColumns)), 10);
+            parameters.put(PRINT_WRITER, benchmark.nullWriter);
+            parameters.put(AVER_COLUMNS, averColumns);
+        }
+    }
+
+    @Benchmark
+    public void evictingQueue(AveragerState state, Blackhole blackhole) throws InterruptedException {
+        state.queue.put((double) rowIdx++);
+        blackhole.consume(state.queue.peek());
+    }
+
+    @Benchmark
+    public void averager(AveragerState state) throws Exception {
+        state.parameters.put(ROW, sampleRows[nextRowIdx()]);
+        state.averager.processRow(state.parameters);
+    }
+}
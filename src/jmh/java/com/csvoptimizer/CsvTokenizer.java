@@ -0,0 +1,109 @@
+package com.csvoptimizer;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Finds fields of CSV lines in buffer of ASCII bytes without creating strings.
+ * <p>
+ * Offsets of a line with n fields are stored as n + 1 values: offsets[i] is the first byte of field i and
+ * offsets[i + 1] - 1 is the byte after it (delimiter or line separator), so offsets[n] is the beginning
+ * of the next line. Lines are separated with '\n', '\r' of "\r\n" stays at the end of the last field.
+ * <p>
+ * Implementation using Vector API is used if module jdk.incubator.vector is added to the JVM
+ * ({@code --add-modules jdk.incubator.vector}), otherwise 8 bytes are scanned at a time in long words.
+ * <p>
+ * Tokenizers are kept with benchmarks (see TokenizerBenchmark) as a baseline for the read path of the converter:
+ * rows are read as strings and {@link RowSlot} locates their fields with {@code String.indexOf}, which is an
+ * intrinsic scanning many characters at a time as well, without a string per field. Tokenizing bytes would pay off
+ * only together with reading rows as bytes, so the application is compiled without the incubator module.
+ */
+public abstract class CsvTokenizer {
+
+    static final byte DELIMITER = (byte) CSV_DELIMITER.charAt(0);
+    static final byte NEW_LINE = '\n';
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    /**
+     * Returns the fastest implementation available in the running JVM.
+     */
+    public static CsvTokenizer create() {
+        if (isVectorApiAvailable()) {
+            try {
+                // Created by static method of its own class, so the class referring to the incubator module
+                // is never loaded without it (even by verifier).
+                return VectorCsvTokenizer.newTokenizer();
+            } catch (LinkageError e) {
+                // Falls back to long words.
+            }
+        }
+        return new SwarCsvTokenizer();
+    }
+
+    public static boolean isVectorApiAvailable() {
+        return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+    }
+
+    /**
+     * Finds fields of the line starting at {@code from}.
+     *
+     * @param buffer  bytes of lines;
+     * @param from    beginning of the line;
+     * @param to      end of data in the buffer, the line ends here if there is no line separator;
+     * @param offsets receives offsets of fields (see above);
+     * @return number of fields or -1 if there are more fields than the offsets can keep.
+     */
+    public int tokenize(byte[] buffer, int from, int to, int[] offsets) {
+
+        if (offsets.length < 2) {
+            return -1;
+        }
+
+        offsets[0] = from;
+        int count = scan(buffer, from, to, offsets);
+        if (count < 0) {
+            return -1;
+        }
+
+        // Line without separator at the end of data.
+        if (count == 0 || buffer[offsets[count] - 1] != NEW_LINE) {
+            if (count + 1 >= offsets.length) {
+                return -1;
+            }
+            offsets[++count] = to + 1;
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns name of the implementation.
+     */
+    public abstract String getName();
+
+    /**
+     * Stores position after every delimiter into offsets[1], offsets[2]... up to and including the line separator.
+     *
+     * @return number of stored offsets or -1 if offsets overflow.
+     */
+    protected abstract int scan(byte[] buffer, int from, int to, int[] offsets);
+
+    // Scans bytes one by one, used for tails shorter than a word.
+    protected static int scanBytes(byte[] buffer, int from, int to, int[] offsets, int count) {
+
+        for (int i = from; i < to; ++i) {
+            byte b = buffer[i];
+            if (b == DELIMITER || b == NEW_LINE) {
+                if (++count >= offsets.length) {
+                    return -1;
+                }
+                offsets[count] = i + 1;
+                if (b == NEW_LINE) {
+                    return count;
+                }
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,48 @@
+package com.csvoptimizer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of the whole synthetic log from file to file.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileConversionBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"42"})
+    public long seed;
+
+    @Param({"1", "10"})
+    public int step;
+
+    private String inputPath;
+    private String outputPath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        inputPath = SyntheticLog.getLog(rows, seed);
+        outputPath = File.createTempFile("csvoptimizer-bench", ".csv").getAbsolutePath();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        new File(outputPath).delete();
+    }
+
+    @Benchmark
+    public void convertFile() {
+        Calendar startingDate = (Calendar) ConversionBenchmark.STARTING_DATE.clone();
+        new CSVConverter(inputPath, outputPath, step, startingDate, null).run();
+    }
+}
@@ -0,0 +1,68 @@
+package com.csvoptimizer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of decimal and integer fields of blackbox rows: JDK parsers of trimmed strings against {@link NumberParser}.
+ * Time is reported per field.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class NumberParserBenchmark {
+
+    private static final int SAMPLE_ROWS = 4096;
+
+    @Param({"GPS_coord[0]", "vbatLatest (V)", "GPS_speed (m/s)", "time (us)"})
+    public String column;
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"42"})
+    public long seed;
+
+    private String[] values;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        String[] sampleRows = SyntheticLog.readRows(SyntheticLog.getLog(rows, seed), SAMPLE_ROWS);
+        int columnIdx = RowListener.getColumnIndex(AbstractRunnable.getInputColumns(), column);
+
+        values = new String[sampleRows.length];
+        for (int i = 0; i < sampleRows.length; ++i) {
+            values[i] = sampleRows[i].split(Constants.CSV_DELIMITER, -1)[columnIdx];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_ROWS)
+    public void jdkDouble(Blackhole blackhole) {
+        for (String value : values) {
+            blackhole.consume(Double.parseDouble(value.trim()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_ROWS)
+    public void parserDouble(Blackhole blackhole) {
+        for (String value : values) {
+            blackhole.consume(NumberParser.parseDouble(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_ROWS)
+    public void parserLong(Blackhole blackhole) {
+        for (String value : values) {
+            blackhole.consume(NumberParser.parseLong(value, 0));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.csvoptimizer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to the first converted row of a new process: log has a single row, so the run is startup,
+ * parsing of parameters, setup of generators and writing of the row. Modes are the plain JVM,
+ * the JVM with class-data sharing archive (gradle appCds) and the native executable (gradle nativeImage).
+ * <p>
+ * Paths are passed by the jmh task as system properties, a mode without its file fails at setup.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    @Param({"jvm", "cds", "native"})
+    public String mode;
+
+    @Param({"1"})
+    public int rows;
+
+    @Param({"42"})
+    public long seed;
+
+    private List<String> command;
+    private String outputPath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        String inputPath = SyntheticLog.getLog(rows, seed);
+        outputPath = File.createTempFile("csvoptimizer-bench", ".csv").getAbsolutePath();
+
+        command = new ArrayList<>();
+        if ("native".equals(mode)) {
+            command.add(requireFile("csvoptimizer.native"));
+        } else {
+            command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+            if ("cds".equals(mode)) {
+                command.add("-XX:SharedArchiveFile=" + requireFile("csvoptimizer.cds"));
+            }
+            // Archive is valid only for the same class path it was created with.
+            command.add("-cp");
+            command.add(requireFile("csvoptimizer.jar"));
+            command.add(Run.class.getName());
+        }
+        command.add("in=" + inputPath);
+        command.add("out=" + outputPath);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        new File(outputPath).delete();
+    }
+
+    @Benchmark
+    public int convertFirstRow() throws Exception {
+
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException("Conversion failed with exit code " + exitCode + ": " + command);
+        }
+        return exitCode;
+    }
+
+    private static String requireFile(String property) {
+        String path = System.getProperty(property, "");
+        if (!new File(path).isFile()) {
+            throw new IllegalStateException("File of " + property + " not found: '" + path + "'");
+        }
+        return path;
+    }
+}
@@ -0,0 +1,60 @@
+package com.csvoptimizer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Tokenizer finding delimiters and line separators in 8 bytes at a time (SIMD within a register).
+ */
+public class SwarCsvTokenizer extends CsvTokenizer {
+
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long DELIMITERS = broadcast(DELIMITER);
+    private static final long NEW_LINES = broadcast(NEW_LINE);
+
+    @Override
+    public String getName() {
+        return "swar";
+    }
+
+    @Override
+    protected int scan(byte[] buffer, int from, int to, int[] offsets) {
+
+        int count = 0;
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+
+            long word = (long) LONG_VIEW.get(buffer, i);
+            long found = findBytes(word, DELIMITERS) | findBytes(word, NEW_LINES);
+
+            // High bit of every found byte is set, bytes are little-endian, so the lowest bit is the first byte.
+            while (found != 0) {
+                int position = i + (Long.numberOfTrailingZeros(found) >>> 3);
+                if (++count >= offsets.length) {
+                    return -1;
+                }
+                offsets[count] = position + 1;
+                if (buffer[position] == NEW_LINE) {
+                    return count;
+                }
+                found &= found - 1;
+            }
+        }
+
+        return scanBytes(buffer, i, to, offsets, count);
+    }
+
+    // Sets high bit of every byte equal to the pattern byte and clears all other bits (exactly, without carries).
+    private static long findBytes(long word, long pattern) {
+        long x = word ^ pattern;
+        long y = (x & LOW_BITS) + LOW_BITS;
+        return ~(y | x | LOW_BITS);
+    }
+
+    private static long broadcast(byte b) {
+        return (b & 0xFFL) * 0x0101010101010101L;
+    }
+}
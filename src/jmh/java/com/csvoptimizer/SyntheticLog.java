@@ -0,0 +1,70 @@
+package com.csvoptimizer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.csvoptimizer.Constants.DEFAULT_GENERATOR_RATE;
+
+/**
+ * Deterministic blackbox log written with {@link LogGenerator} and used as input of benchmarks.
+ * The same number of rows and seed always produce the same file, so results of different runs are comparable.
+ */
+public final class SyntheticLog {
+
+    // Log files are reused between forks and runs.
+    private static final String DATA_DIR = System.getProperty("java.io.tmpdir") + File.separator + "csvoptimizer-bench";
+
+    private SyntheticLog() {
+    }
+
+    /**
+     * Returns path to log with specified number of rows, writing it if it doesn't exist yet.
+     *
+     * @param rows number of data rows (without header);
+     * @param seed seed of pseudo-random values;
+     * @return absolute path to log file.
+     */
+    public static String getLog(int rows, long seed) throws IOException {
+
+        File dir = new File(DATA_DIR);
+        dir.mkdirs();
+
+        File file = new File(dir, "blackbox_" + rows + "_" + seed + ".csv");
+        if (!file.exists()) {
+            File tmpFile = new File(dir, file.getName() + ".tmp");
+            LogGenerator logGenerator = new LogGenerator(tmpFile.getAbsolutePath(), rows, 0, seed,
+                    DEFAULT_GENERATOR_RATE, Runtime.getRuntime().availableProcessors());
+            logGenerator.run();
+
+            // Incomplete log must not be taken for the cached one.
+            if (logGenerator.getFailure() != null) {
+                tmpFile.delete();
+                throw new IOException("Cannot generate " + file, logGenerator.getFailure());
+            }
+            if (!tmpFile.renameTo(file)) {
+                throw new IOException("Cannot create " + file);
+            }
+        }
+
+        return file.getAbsolutePath();
+    }
+
+    /**
+     * Reads specified number of data rows from the beginning of the log.
+     */
+    public static String[] readRows(String path, int rows) throws IOException {
+        List<String> result = new ArrayList<>(rows);
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            reader.readLine();
+            String row;
+            while (result.size() < rows && (row = reader.readLine()) != null) {
+                result.add(row);
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+}
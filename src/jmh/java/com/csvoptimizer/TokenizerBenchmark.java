@@ -0,0 +1,80 @@
+package com.csvoptimizer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Tokenization of blackbox rows: regex split used before, scanning of strings by the row slot
+ * and scanning of bytes by tokenizers. Time is reported per row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class TokenizerBenchmark {
+
+    private static final int SAMPLE_ROWS = 4096;
+
+    @Param({"split", "rowSlot", "swar", "vector"})
+    public String tokenizer;
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"42"})
+    public long seed;
+
+    private String[] sampleRows;
+    private byte[] buffer;
+    private int[] offsets;
+    private RowSlot rowSlot;
+    private CsvTokenizer csvTokenizer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        sampleRows = SyntheticLog.readRows(SyntheticLog.getLog(rows, seed), SAMPLE_ROWS);
+        buffer = (String.join("\n", sampleRows) + "\n").getBytes(StandardCharsets.US_ASCII);
+        offsets = new int[256];
+        rowSlot = new RowSlot(AbstractRunnable.getInputColumns().length);
+
+        if ("swar".equals(tokenizer)) {
+            csvTokenizer = new SwarCsvTokenizer();
+        } else if ("vector".equals(tokenizer)) {
+            if (!CsvTokenizer.isVectorApiAvailable()) {
+                throw new IllegalStateException("Run with --add-modules jdk.incubator.vector");
+            }
+            csvTokenizer = CsvTokenizer.create();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_ROWS)
+    public void tokenize(Blackhole blackhole) {
+
+        if ("split".equals(tokenizer)) {
+            for (String row : sampleRows) {
+                blackhole.consume(row.split(CSV_DELIMITER, -1));
+            }
+        } else if ("rowSlot".equals(tokenizer)) {
+            for (String row : sampleRows) {
+                rowSlot.reset(row);
+                blackhole.consume(rowSlot.size());
+            }
+        } else {
+            int from = 0;
+            while (from < buffer.length) {
+                int fields = csvTokenizer.tokenize(buffer, from, buffer.length, offsets);
+                from = offsets[fields];
+                blackhole.consume(fields);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.csvoptimizer;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Tokenizer comparing the widest vectors of bytes supported by CPU at a time (16-64 bytes).
+ * Requires module jdk.incubator.vector, so it is created only by {@link CsvTokenizer#create()} if the module is present.
+ */
+public class VectorCsvTokenizer extends CsvTokenizer {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    static CsvTokenizer newTokenizer() {
+        return new VectorCsvTokenizer();
+    }
+
+    @Override
+    public String getName() {
+        return "vector" + SPECIES.vectorBitSize();
+    }
+
+    @Override
+    protected int scan(byte[] buffer, int from, int to, int[] offsets) {
+
+        int count = 0;
+        int i = from;
+        int length = SPECIES.length();
+        for (; i + length <= to; i += length) {
+
+            ByteVector bytes = ByteVector.fromArray(SPECIES, buffer, i);
+            VectorMask<Byte> mask = bytes.eq(DELIMITER).or(bytes.eq(NEW_LINE));
+
+            long found = mask.toLong();
+            while (found != 0) {
+                int position = i + Long.numberOfTrailingZeros(found);
+                if (++count >= offsets.length) {
+                    return -1;
+                }
+                offsets[count] = position + 1;
+                if (buffer[position] == NEW_LINE) {
+                    return count;
+                }
+                found &= found - 1;
+            }
+        }
+
+        return scanBytes(buffer, i, to, offsets, count);
+    }
+}
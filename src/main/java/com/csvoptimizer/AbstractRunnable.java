@@ -7,6 +7,83 @@ import static com.csvoptimizer.Constants.*;
 
 public abstract class AbstractRunnable implements Runnable {
 
+    // Columns located BEFORE debug columns in imported file.
+    private static final String[] COLUMNS_BEFORE_DEBUG = {
+            LOOP_ITERATION_COLUMN_NAME,
+            "time (us)",
+            "axisP[0]",
+            "axisP[1]",
+            "axisP[2]",
+            "axisI[0]",
+            "axisI[1]",
+            "axisI[2]",
+            "axisD[0]",
+            "axisD[1]",
+            "axisF[0]",
+            "axisF[1]",
+            "axisF[2]",
+            "rcCommand[0]",
+            "rcCommand[1]",
+            "rcCommand[2]",
+            "rcCommand[3]",
+            "setpoint[0]",
+            "setpoint[1]",
+            "setpoint[2]",
+            "setpoint[3]",
+            "vbatLatest (V)",
+            "amperageLatest (A)",
+            "BaroAlt (cm)",
+            "rssi",
+            "gyroADC[0]",
+            "gyroADC[1]",
+            "gyroADC[2]",
+            "accSmooth[0]",
+            "accSmooth[1]",
+            "accSmooth[2]"
+    };
+
+    // Columns used as blackbox debug columns in imported file.
+    private static final String[] COLUMNS_DEBUG = {
+            "debug[0]",
+            "debug[1]",
+            "debug[2]",
+            "debug[3]"
+    };
+
+    // Columns located AFTER debug columns in imported file followed by generated columns.
+    private static final String[] COLUMNS_AFTER_DEBUG = {
+            "motor[0]",
+            "motor[1]",
+            "motor[2]",
+            "motor[3]",
+            "energyCumulative (mAh)",
+            FLIGHT_MODE_HEADER,
+            STATE_HEADER,
+            FAILSAFE_PHASE_HEADER,
+            "rxSignalReceived",
+            "rxFlightChannelsValid",
+            "GPS_numSat",
+            "GPS_coord[0]",
+            "GPS_coord[1]",
+            "GPS_altitude",
+            "GPS_speed (m/s)",
+            "GPS_ground_course",
+            GPX_DATE_COLUMN_HEADER,
+            USER_DATE_COLUMN_HEADER,
+            V_SPEED_BARO_HEADER,
+            FLIGHT_MODE_INDICATOR_HEADER,
+            STATE_INDICATOR_HEADER,
+            FAILSAFE_PHASE_INDICATOR_HEADER,
+            STATUS_ICON_INDICATOR_HEADER,
+            DISTANCE_HEADER,
+            HOME_DISTANCE_HEADER,
+            HOME_BEARING_HEADER,
+            SPEED_3D_HEADER
+    };
+
+    // Columns of imported file, i.e. all columns except of generated ones.
+    private static final String[] INPUT_COLUMNS = buildInputColumns();
+
     protected int countLines(String fileName) throws IOException {
         FileReader fileReader = new FileReader(fileName);
         BufferedReader bufferedReader = new BufferedReader(fileReader);
@@ -16,6 +93,24 @@ public abstract class AbstractRunnable implements Runnable {
         return lines;
     }
 
+    /**
+     * Returns columns of imported file, i.e. all columns except of generated ones. Readers of raw rows
+     * (e.g. filters and mergers) locate fields by this layout.
+     */
+    public static String[] getInputColumns() {
+        return INPUT_COLUMNS.clone();
+    }
+
+    private static String[] buildInputColumns() {
+
+        List<String> result = new ArrayList<>(Arrays.asList(COLUMNS_BEFORE_DEBUG));
+        result.addAll(Arrays.asList(COLUMNS_DEBUG));
+        result.addAll(Arrays.asList(COLUMNS_AFTER_DEBUG).subList(0,
+                Arrays.asList(COLUMNS_AFTER_DEBUG).indexOf(GPX_DATE_COLUMN_HEADER)));
+
+        return result.toArray(new String[0]);
+    }
+
     /**
      * Returns full collection of columns used in imported file including columns of blackbox debug mode.
      *
@@ -34,82 +129,21 @@ public abstract class AbstractRunnable implements Runnable {
      * Returns array of columns located BEFORE debug columns in imported file.
      */
     protected String[] getColumnsBeforeDebug() {
-        return new String[]{
-                "loopIteration",
-                "time (us)",
-                "axisP[0]",
-                "axisP[1]",
-                "axisP[2]",
-                "axisI[0]",
-                "axisI[1]",
-                "axisI[2]",
-                "axisD[0]",
-                "axisD[1]",
-                "axisF[0]",
-                "axisF[1]",
-                "axisF[2]",
-                "rcCommand[0]",
-                "rcCommand[1]",
-                "rcCommand[2]",
-                "rcCommand[3]",
-                "setpoint[0]",
-                "setpoint[1]",
-                "setpoint[2]",
-                "setpoint[3]",
-                "vbatLatest (V)",
-                "amperageLatest (A)",
-                "BaroAlt (cm)",
-                "rssi",
-                "gyroADC[0]",
-                "gyroADC[1]",
-                "gyroADC[2]",
-                "accSmooth[0]",
-                "accSmooth[1]",
-                "accSmooth[2]"
-        };
+        return COLUMNS_BEFORE_DEBUG.clone();
     }
 
     /**
      * Returns array of columns used as blackbox debug columns in imported file.
      */
     protected String[] getColumnsDebug() {
-        return new String[]{
-                "debug[0]",
-                "debug[1]",
-                "debug[2]",
-                "debug[3]"
-        };
+        return COLUMNS_DEBUG.clone();
     }
 
     /**
      * Return array of columns located AFTER debug columns in imported file.
      */
     protected String[] getColumnsAfterDebug() {
-        return new String[]{
-                "motor[0]",
-                "motor[1]",
-                "motor[2]",
-                "motor[3]",
-                "energyCumulative (mAh)",
-                FLIGHT_MODE_HEADER,
-                STATE_HEADER,
-                FAILSAFE_PHASE_HEADER,
-                "rxSignalReceived",
-                "rxFlightChannelsValid",
-                "GPS_numSat",
-                "GPS_coord[0]",
-                "GPS_coord[1]",
-                "GPS_altitude",
-                "GPS_speed (m/s)",
-                "GPS_ground_course",
-                GPX_DATE_COLUMN_HEADER,
-                USER_DATE_COLUMN_HEADER,
-                V_SPEED_BARO_HEADER,
-                FLIGHT_MODE_INDICATOR_HEADER,
-                STATE_INDICATOR_HEADER,
-                FAILSAFE_PHASE_INDICATOR_HEADER,
-                STATUS_ICON_INDICATOR_HEADER
-        };
+        return COLUMNS_AFTER_DEBUG.clone();
     }
 
     protected void processRows(Map<String, Object> parameters) throws Exception {
@@ -178,16 +212,22 @@ public abstract class AbstractRunnable implements Runnable {
         return lineCounterToPrint;
     }
 
-    protected void printHeaderRow(String[] columns, PrintWriter printWriter) {
+    protected int printHeaderRow(String[] columns, PrintWriter printWriter) {
         List<String> rowData = new ArrayList<>(Arrays.asList(columns));
-        printRowData(rowData, printWriter);
+        return printRowData(rowData, printWriter);
     }
 
-    protected void printRowData(List<String> rowData, PrintWriter printWriter) {
+    /**
+     * Writes values of a row.
+     *
+     * @return number of characters written including line separator.
+     */
+    protected int printRowData(List<String> rowData, PrintWriter printWriter) {
         String[] resultValues = rowData.toArray(new String[0]);
         String stringToWrite = String.join(CSV_DELIMITER, resultValues);
         printWriter.println(stringToWrite);
         printWriter.flush();
+        return stringToWrite.length() + LINE_SEPARATOR_LENGTH;
     }
 
     protected int getColumnIndex(String columnName) {
@@ -4,7 +4,6 @@ import java.io.PrintWriter;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import static com.csvoptimizer.Constants.*;
 
@@ -19,6 +18,9 @@ public class Averager extends AbstractRunnable {
     private String delimiter;
     private Class type;
 
+    // Number of values which are not numbers (e.g. empty or malformed), they are not averaged.
+    private long valuesSkipped;
+
     public Averager(String pathToInputFile, String pathToOutputFile, Set<String> averColumns, int depth) {
 
         this.pathToInputFile = pathToInputFile;
@@ -48,6 +50,10 @@ public class Averager extends AbstractRunnable {
 
             processRows(parameters);
 
+            if (valuesSkipped > 0) {
+                System.out.println("Values not averaged: " + valuesSkipped);
+            }
+
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -88,12 +94,22 @@ public class Averager extends AbstractRunnable {
                 queue = initQueue(delimiter);
             }
 
+            // Values which are not numbers are skipped not to pull averages towards zero.
             if (type == Integer.class) {
-                Integer val = Integer.parseInt(currentValue);
-                queue.put(val);
+                long val = NumberParser.parseLong(currentValue, Long.MIN_VALUE);
+                if (val < Integer.MIN_VALUE || val > Integer.MAX_VALUE) {
+                    ++valuesSkipped;
+                    continue;
+                }
+                queue.put((int) val);
                 Integer average = calculateAverageInteger(queue);
             } else if (type == Double.class) {
-                Double val = Double.parseDouble(currentValue);
+                // Both '.' and ',' are accepted as decimal separator.
+                double val = NumberParser.parseDouble(currentValue);
+                if (Double.isNaN(val)) {
+                    ++valuesSkipped;
+                    continue;
+                }
                 queue.put(val);
                 Double average = calculateAverageDouble(queue);
             }
@@ -107,7 +123,7 @@ public class Averager extends AbstractRunnable {
             return 0;
         }
 
-        Integer summ = Integer.parseInt((String) queue.stream().collect(Collectors.summarizingInt(Integer::intValue)));
+        int summ = val.stream().mapToInt(Integer::intValue).sum();
 
         return summ / size;
     }
@@ -119,7 +135,7 @@ public class Averager extends AbstractRunnable {
             return 0D;
         }
 
-        Double summ = (Double) queue.stream().collect(Collectors.summarizingDouble(Double::doubleValue));
+        double summ = val.stream().mapToDouble(Double::doubleValue).sum();
 
         return summ / size;
     }
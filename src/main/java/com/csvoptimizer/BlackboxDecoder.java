@@ -0,0 +1,1047 @@
+package com.csvoptimizer;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Decodes Betaflight blackbox binary logs (.bbl, .bfl) into rows of imported file, so they are converted
+ * without writing and parsing back the CSV of blackbox_decode.
+ * <p>
+ * Headers define fields of frames with their predictors and encodings. Main frames (I - intra, P - inter) give rows,
+ * slow (S), GPS (G) and GPS home (H) frames update values merged into the following rows, event frames (E) are
+ * skipped except of the end of log. A file can contain several logs, every one starts with its own headers.
+ * <p>
+ * As in blackbox_decode, a frame is valid only if the byte following it starts another frame or the file ends.
+ * A corrupted frame (or an unknown event) is dropped, decoding is resynchronized from the byte following its type and
+ * inter frames are dropped until the next intra frame.
+ * Values are kept as primitives between frames and formatted once, directly into the row, in units of
+ * blackbox_decode: volts, amperes, degrees, m/s and names of flags.
+ */
+public class BlackboxDecoder implements RowSource, AutoCloseable {
+
+    // Encodings of fields.
+    private static final int ENCODING_SIGNED_VB = 0;
+    private static final int ENCODING_UNSIGNED_VB = 1;
+    private static final int ENCODING_NEG_14BIT = 3;
+    private static final int ENCODING_TAG8_8SVB = 6;
+    private static final int ENCODING_TAG2_3S32 = 7;
+    private static final int ENCODING_TAG8_4S16 = 8;
+    private static final int ENCODING_NULL = 9;
+    private static final int ENCODING_TAG2_3SVARIABLE = 10;
+
+    // Predictors of fields: decoded value is a difference with prediction.
+    private static final int PREDICTOR_ZERO = 0;
+    private static final int PREDICTOR_PREVIOUS = 1;
+    private static final int PREDICTOR_STRAIGHT_LINE = 2;
+    private static final int PREDICTOR_AVERAGE_2 = 3;
+    private static final int PREDICTOR_MINTHROTTLE = 4;
+    private static final int PREDICTOR_MOTOR_0 = 5;
+    private static final int PREDICTOR_INC = 6;
+    private static final int PREDICTOR_HOME_COORD = 7;
+    private static final int PREDICTOR_1500 = 8;
+    private static final int PREDICTOR_VBATREF = 9;
+    private static final int PREDICTOR_LAST_MAIN_FRAME_TIME = 10;
+    private static final int PREDICTOR_MINMOTOR = 11;
+
+    // Events, only the end of log matters.
+    private static final int EVENT_SYNC_BEEP = 0;
+    private static final int EVENT_INFLIGHT_ADJUSTMENT = 13;
+    private static final int EVENT_LOGGING_RESUME = 14;
+    private static final int EVENT_DISARM = 15;
+    private static final int EVENT_FLIGHT_MODE = 30;
+    private static final int EVENT_LOG_END = 255;
+    private static final String LOG_END_MESSAGE = "End of log";
+
+    private static final String[] FLIGHT_MODE_NAMES = {
+            "ANGLE_MODE", "HORIZON_MODE", "MAG", "BARO", "GPS_HOME", "GPS_HOLD", "HEADFREE", "AUTOTUNE", "PASSTHRU", "SONAR"
+    };
+    private static final String[] STATE_NAMES = {"GPS_FIX_HOME", "GPS_FIX", "CALIBRATE_MAG", "SMALL_ANGLE", "FIXED_WING"};
+    private static final String[] FAILSAFE_PHASE_NAMES = {
+            "IDLE", "RX_LOSS_DETECTED", "LANDING", "LANDED", "RX_LOSS_MONITORING", "RX_LOSS_RECOVERED"
+    };
+
+    // Reference voltage of ADC of old firmware in tenths of volt.
+    private static final int ADC_VREF = 33;
+
+    // Sources of values of columns.
+    private static final int SOURCE_NONE = 0;
+    private static final int SOURCE_MAIN = 1;
+    private static final int SOURCE_SLOW = 2;
+    private static final int SOURCE_GPS = 3;
+    private static final int SOURCE_ENERGY = 4;
+
+    // Formats of values of columns.
+    private static final int FORMAT_RAW = 0;
+    private static final int FORMAT_VBAT = 1;
+    private static final int FORMAT_AMPERAGE = 2;
+    private static final int FORMAT_FLIGHT_MODE = 3;
+    private static final int FORMAT_STATE = 4;
+    private static final int FORMAT_FAILSAFE_PHASE = 5;
+    private static final int FORMAT_COORD = 6;
+    private static final int FORMAT_SPEED = 7;
+    private static final int FORMAT_COURSE = 8;
+
+    private static final String GPS_COURSE_COLUMN_NAME = "GPS_ground_course";
+    private static final String GPS_HOME_LON_FIELD = "GPS_home[1]";
+
+    // Frames are re-read from the mark on corruption, so the mark must hold any frame.
+    private static final int INPUT_BUFFER_SIZE = 1 << 16;
+
+    // Type of the next frame isn't read ahead yet.
+    private static final int NO_FRAME = -2;
+
+    private final InputStream input;
+    private final long fileSize;
+    private final String[] columns = AbstractRunnable.getInputColumns();
+    private final StringBuilder row = new StringBuilder(512);
+
+    private boolean headerReturned;
+    private boolean inLog;
+    private int nextFrameType = NO_FRAME;
+    private long logs;
+    private long frames;
+    private long droppedFrames;
+
+    // Headers of the current log.
+    private final Map<String, String> headers = new HashMap<>();
+    private Frame intraFrame;
+    private Frame interFrame;
+    private Frame slowFrame;
+    private Frame gpsFrame;
+    private Frame gpsHomeFrame;
+    private int minThrottle;
+    private int minMotor;
+    private int vbatRef;
+    private int vbatScale;
+    private int currentOffset;
+    private int currentScale;
+    private boolean centiUnits;
+    private int intervalI;
+    private int intervalPNum;
+    private int intervalPDenom;
+
+    // Decoded values: main frame with two previous ones, the last slow, GPS and GPS home frames.
+    // Other frames are decoded into the "next" arrays and swapped with the current ones only if they are valid.
+    private long[] main;
+    private long[] mainPrev;
+    private long[] mainPrev2;
+    private long[] slow;
+    private long[] slowNext;
+    private long[] gps;
+    private long[] gpsNext;
+    private long[] gpsHome;
+    private long[] gpsHomeNext;
+    private boolean hasMain;
+    private long lastMainIteration;
+    private long lastMainTime;
+    private int mainIterationIdx;
+    private int mainTimeIdx;
+    private int amperageIdx;
+    private int homeLonIdx;
+    private double energyMah;
+
+    // Decoded values of group encodings.
+    private final long[] groupValues = new long[8];
+
+    // Source, index of field and format of every column of row.
+    private int[] columnSources;
+    private int[] columnFields;
+    private int[] columnFormats;
+
+    /**
+     * @param pathToInputFile blackbox log to decode.
+     */
+    public BlackboxDecoder(String pathToInputFile) throws IOException {
+        this.fileSize = new File(pathToInputFile).length();
+        this.input = new BufferedInputStream(new FileInputStream(pathToInputFile), INPUT_BUFFER_SIZE);
+    }
+
+    /**
+     * Returns true if the file is a blackbox binary log by its extension.
+     */
+    public static boolean isBlackboxFile(String pathToFile) {
+        String lowerCase = pathToFile.toLowerCase(Locale.ROOT);
+        for (String extension : BLACKBOX_FILE_EXTENSIONS) {
+            if (lowerCase.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns number of rows estimated by size of file (used to show progress).
+     */
+    public long estimateRows() {
+        return Math.max(1, fileSize / BLACKBOX_ESTIMATED_FRAME_BYTES);
+    }
+
+    @Override
+    public String readRow() throws IOException {
+
+        if (!headerReturned) {
+            headerReturned = true;
+            return String.join(CSV_DELIMITER, columns);
+        }
+
+        while (true) {
+
+            if (!inLog && !readHeaders()) {
+                return null;
+            }
+
+            int frameType = nextFrameType != NO_FRAME ? nextFrameType : input.read();
+            nextFrameType = NO_FRAME;
+            if (frameType < 0) {
+                return null;
+            }
+
+            // Corrupted frame is dropped and the data is read again from here.
+            input.mark(INPUT_BUFFER_SIZE);
+
+            try {
+                switch (frameType) {
+                    case 'I':
+                        if (readMainFrame(true)) {
+                            return formatRow();
+                        }
+                        break;
+                    case 'P':
+                        if (readMainFrame(false)) {
+                            return formatRow();
+                        }
+                        break;
+                    case 'S':
+                        readFrame(slowFrame, slowNext, null, null, 0);
+                        if (isFrameComplete()) {
+                            long[] swap = slow;
+                            slow = slowNext;
+                            slowNext = swap;
+                        }
+                        break;
+                    case 'G':
+                        readFrame(gpsFrame, gpsNext, gps, gps, 0);
+                        if (isFrameComplete()) {
+                            long[] swap = gps;
+                            gps = gpsNext;
+                            gpsNext = swap;
+                        }
+                        break;
+                    case 'H':
+                        readFrame(gpsHomeFrame, gpsHomeNext, null, null, 0);
+                        if (isFrameComplete()) {
+                            long[] swap = gpsHome;
+                            gpsHome = gpsHomeNext;
+                            gpsHomeNext = swap;
+                        }
+                        break;
+                    case 'E':
+                        readEvent();
+                        break;
+                    default:
+                        // Corrupted data is skipped byte by byte until the next frame.
+                        break;
+                }
+            } catch (EOFException e) {
+                // Log truncated in the middle of frame (e.g. power loss).
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Returns number of logs started and of frames decoded so far.
+     */
+    public long getLogs() {
+        return logs;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Returns number of corrupted frames dropped so far.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    // Reads header lines "H name:value" of the next log, returns false if there is no more logs.
+    private boolean readHeaders() throws IOException {
+
+        headers.clear();
+        while (true) {
+            input.mark(2);
+            int first = input.read();
+            int second = input.read();
+            if (first < 0) {
+                break;
+            }
+
+            if (first == 'H' && second == ' ') {
+                String line = readLine();
+                int delimiter = line.indexOf(':');
+                if (delimiter > 0) {
+                    headers.put(line.substring(0, delimiter), line.substring(delimiter + 1));
+                }
+                continue;
+            }
+
+            // Frames follow headers, garbage before headers is skipped.
+            input.reset();
+            if (!headers.isEmpty()) {
+                break;
+            }
+            input.read();
+        }
+
+        if (headers.isEmpty()) {
+            return false;
+        }
+
+        startLog();
+        return true;
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = input.read()) >= 0 && b != '\n') {
+            line.append((char) b);
+        }
+        return line.toString();
+    }
+
+    // Definitions of frames and settings are taken from headers, values are reset.
+    private void startLog() {
+
+        intraFrame = new Frame("I", null);
+        interFrame = new Frame("P", intraFrame);
+        slowFrame = new Frame("S", null);
+        gpsFrame = new Frame("G", null);
+        gpsHomeFrame = new Frame("H", null);
+
+        minThrottle = getIntHeader("minthrottle", 1150);
+        int[] motorOutput = getIntsHeader("motorOutput");
+        minMotor = motorOutput.length > 0 ? motorOutput[0] : minThrottle;
+        vbatRef = getIntHeader("vbatref", 4095);
+        vbatScale = getIntHeader("vbatscale", getIntHeader("vbat_scale", 110));
+        int[] currentMeter = getIntsHeader(headers.containsKey("currentSensor") ? "currentSensor" : "currentMeter");
+        currentOffset = currentMeter.length > 0 ? currentMeter[0] : 0;
+        currentScale = currentMeter.length > 1 && currentMeter[1] != 0 ? currentMeter[1] : 400;
+        centiUnits = getFirmwareMajorVersion() >= 4;
+
+        // Inter frames are logged for some of iterations: "P interval:num/denom" or "P ratio:denom" of newer firmware.
+        intervalI = Math.max(1, getIntHeader("I interval", 1));
+        intervalPNum = 1;
+        intervalPDenom = 1;
+        String pInterval = headers.get("P interval");
+        if (pInterval != null && pInterval.contains("/")) {
+            intervalPNum = Math.max(1, parseInt(pInterval.substring(0, pInterval.indexOf('/'))));
+            intervalPDenom = Math.max(1, parseInt(pInterval.substring(pInterval.indexOf('/') + 1)));
+        } else if (headers.containsKey("P ratio")) {
+            intervalPDenom = Math.max(1, getIntHeader("P ratio", 1));
+        }
+
+        main = new long[intraFrame.size()];
+        mainPrev = new long[main.length];
+        mainPrev2 = new long[main.length];
+        slow = new long[slowFrame.size()];
+        slowNext = new long[slow.length];
+        gps = new long[gpsFrame.size()];
+        gpsNext = new long[gps.length];
+        gpsHome = new long[gpsHomeFrame.size()];
+        gpsHomeNext = new long[gpsHome.length];
+        hasMain = false;
+        lastMainIteration = -1;
+        lastMainTime = 0;
+        energyMah = 0;
+
+        mainIterationIdx = intraFrame.indexOf("loopIteration");
+        mainTimeIdx = intraFrame.indexOf("time");
+        amperageIdx = intraFrame.indexOf("amperageLatest");
+        homeLonIdx = gpsHomeFrame.indexOf(GPS_HOME_LON_FIELD);
+
+        mapColumns();
+
+        inLog = true;
+        ++logs;
+    }
+
+    // Columns are found among fields by names without units, e.g. "vbatLatest (V)" is field "vbatLatest".
+    private void mapColumns() {
+
+        columnSources = new int[columns.length];
+        columnFields = new int[columns.length];
+        columnFormats = new int[columns.length];
+
+        for (int i = 0; i < columns.length; ++i) {
+
+            String column = columns[i];
+            int unitStart = column.indexOf(" (");
+            String field = unitStart < 0 ? column : column.substring(0, unitStart);
+
+            if (column.equals(ENERGY_COLUMN_NAME)) {
+                columnSources[i] = SOURCE_ENERGY;
+            } else if (intraFrame.indexOf(field) >= 0) {
+                columnSources[i] = SOURCE_MAIN;
+                columnFields[i] = intraFrame.indexOf(field);
+            } else if (slowFrame.indexOf(field) >= 0) {
+                columnSources[i] = SOURCE_SLOW;
+                columnFields[i] = slowFrame.indexOf(field);
+            } else if (gpsFrame.indexOf(field) >= 0) {
+                columnSources[i] = SOURCE_GPS;
+                columnFields[i] = gpsFrame.indexOf(field);
+            } else {
+                columnSources[i] = SOURCE_NONE;
+            }
+
+            if (column.equals(VBAT_COLUMN_NAME)) {
+                columnFormats[i] = FORMAT_VBAT;
+            } else if (column.equals(AMPERAGE_COLUMN_NAME)) {
+                columnFormats[i] = FORMAT_AMPERAGE;
+            } else if (column.equals(FLIGHT_MODE_HEADER)) {
+                columnFormats[i] = FORMAT_FLIGHT_MODE;
+            } else if (column.equals(STATE_HEADER)) {
+                columnFormats[i] = FORMAT_STATE;
+            } else if (column.equals(FAILSAFE_PHASE_HEADER)) {
+                columnFormats[i] = FORMAT_FAILSAFE_PHASE;
+            } else if (column.equals(GPS_LAT_COLUMN_NAME) || column.equals(GPS_LON_COLUMN_NAME)) {
+                columnFormats[i] = FORMAT_COORD;
+            } else if (column.equals(GPS_SPEED_COLUMN_NAME)) {
+                columnFormats[i] = FORMAT_SPEED;
+            } else if (column.equals(GPS_COURSE_COLUMN_NAME)) {
+                columnFormats[i] = FORMAT_COURSE;
+            } else {
+                columnFormats[i] = FORMAT_RAW;
+            }
+        }
+    }
+
+    // Returns true if the frame gives a row: it is valid and, if it is an inter frame, so are the previous ones.
+    private boolean readMainFrame(boolean intra) throws IOException {
+
+        long[] swap = mainPrev2;
+        mainPrev2 = mainPrev;
+        mainPrev = main;
+        main = swap;
+
+        if (intra) {
+            readFrame(intraFrame, main, mainPrev, mainPrev2, 0);
+        } else {
+            readFrame(interFrame, main, mainPrev, mainPrev2, countSkippedFrames());
+        }
+
+        if (!isFrameComplete()) {
+            return false;
+        }
+
+        if (intra) {
+            // The next inter frame is predicted from this one only.
+            System.arraycopy(main, 0, mainPrev, 0, main.length);
+            System.arraycopy(main, 0, mainPrev2, 0, main.length);
+            hasMain = true;
+        } else if (!hasMain) {
+            // Inter frame can't be decoded without the previous frames.
+            return false;
+        }
+
+        long timeUs = mainTimeIdx >= 0 ? main[mainTimeIdx] : 0;
+        if (amperageIdx >= 0 && lastMainTime > 0 && timeUs > lastMainTime) {
+            // Energy is integrated from current as blackbox_decode does: milliamperes by microseconds.
+            energyMah += toMilliamperes(main[amperageIdx]) * (double) (timeUs - lastMainTime) / 3.6e9;
+        }
+
+        lastMainIteration = mainIterationIdx >= 0 ? main[mainIterationIdx] : lastMainIteration + 1;
+        lastMainTime = timeUs;
+        ++frames;
+        return true;
+    }
+
+    // Frame is complete if the next byte starts another frame or the file ends. Otherwise the frame is dropped,
+    // the data is read again from the byte following its type and inter frames wait for the next intra frame.
+    private boolean isFrameComplete() throws IOException {
+
+        int next = input.read();
+        if (next < 0 || isFrameType(next)) {
+            nextFrameType = next;
+            return true;
+        }
+
+        dropFrame();
+        return false;
+    }
+
+    private void dropFrame() throws IOException {
+        input.reset();
+        hasMain = false;
+        ++droppedFrames;
+    }
+
+    private static boolean isFrameType(int b) {
+        return b == 'I' || b == 'P' || b == 'S' || b == 'G' || b == 'H' || b == 'E';
+    }
+
+    // Number of iterations not logged by design between the last main frame and the next one.
+    private int countSkippedFrames() {
+
+        if (lastMainIteration < 0) {
+            return 0;
+        }
+
+        int count = 0;
+        for (long iteration = lastMainIteration + 1; !shouldHaveFrame(iteration) && count < intervalI; ++iteration) {
+            ++count;
+        }
+        return count;
+    }
+
+    private boolean shouldHaveFrame(long iteration) {
+        return (iteration % intervalI + intervalPNum - 1) % intervalPDenom < intervalPNum;
+    }
+
+    // Decodes fields of frame into current values applying predictors.
+    private void readFrame(Frame frame, long[] current, long[] previous, long[] previous2, int skippedFrames)
+            throws IOException {
+
+        int fieldCount = frame.size();
+        for (int i = 0; i < fieldCount; ++i) {
+
+            int predictor = frame.predictors[i];
+            if (predictor == PREDICTOR_INC) {
+                current[i] = skippedFrames + 1 + (previous == null ? 0 : previous[i]);
+                continue;
+            }
+
+            int encoding = frame.encodings[i];
+            int groupSize;
+            switch (encoding) {
+                case ENCODING_TAG8_4S16:
+                    readTag8_4S16();
+                    groupSize = 4;
+                    break;
+                case ENCODING_TAG2_3S32:
+                    readTag2_3S32();
+                    groupSize = 3;
+                    break;
+                case ENCODING_TAG2_3SVARIABLE:
+                    readTag2_3SVariable();
+                    groupSize = 3;
+                    break;
+                case ENCODING_TAG8_8SVB:
+                    groupSize = 1;
+                    while (groupSize < 8 && i + groupSize < fieldCount
+                            && frame.encodings[i + groupSize] == ENCODING_TAG8_8SVB) {
+                        ++groupSize;
+                    }
+                    readTag8_8SVB(groupSize);
+                    break;
+                default:
+                    groupValues[0] = readValue(encoding);
+                    groupSize = 1;
+                    break;
+            }
+
+            for (int j = 0; j < groupSize && i + j < fieldCount; ++j) {
+                current[i + j] = predict(frame, i + j, groupValues[j], current, previous, previous2);
+            }
+            i += groupSize - 1;
+        }
+    }
+
+    private long readValue(int encoding) throws IOException {
+        switch (encoding) {
+            case ENCODING_SIGNED_VB:
+                return readSignedVB();
+            case ENCODING_UNSIGNED_VB:
+                return readUnsignedVB();
+            case ENCODING_NEG_14BIT:
+                return -signExtend(readUnsignedVB(), 14);
+            case ENCODING_NULL:
+                return 0;
+            default:
+                throw new IOException("Unknown encoding: " + encoding);
+        }
+    }
+
+    private long predict(Frame frame, int fieldIdx, long value, long[] current, long[] previous, long[] previous2) {
+
+        switch (frame.predictors[fieldIdx]) {
+            case PREDICTOR_ZERO:
+                break;
+            case PREDICTOR_PREVIOUS:
+                value += previous == null ? 0 : previous[fieldIdx];
+                break;
+            case PREDICTOR_STRAIGHT_LINE:
+                value += previous == null ? 0 : 2 * previous[fieldIdx] - previous2[fieldIdx];
+                break;
+            case PREDICTOR_AVERAGE_2:
+                // Division truncates towards zero as in firmware.
+                value += previous == null ? 0 : (previous[fieldIdx] + previous2[fieldIdx]) / 2;
+                break;
+            case PREDICTOR_MINTHROTTLE:
+                value += minThrottle;
+                break;
+            case PREDICTOR_MOTOR_0:
+                value += frame.motor0Idx >= 0 ? current[frame.motor0Idx] : 0;
+                break;
+            case PREDICTOR_HOME_COORD:
+                // Longitude is predicted from longitude of home, any other coordinate from latitude.
+                int homeIdx = frame.names[fieldIdx].equals(GPS_LON_COLUMN_NAME) ? homeLonIdx : 0;
+                value += homeIdx >= 0 && homeIdx < gpsHome.length ? gpsHome[homeIdx] : 0;
+                break;
+            case PREDICTOR_1500:
+                value += 1500;
+                break;
+            case PREDICTOR_VBATREF:
+                value += vbatRef;
+                break;
+            case PREDICTOR_LAST_MAIN_FRAME_TIME:
+                value += lastMainTime;
+                break;
+            case PREDICTOR_MINMOTOR:
+                value += minMotor;
+                break;
+            default:
+                break;
+        }
+
+        // Fields are 32-bit integers of firmware.
+        return frame.signed[fieldIdx] ? (int) value : value & 0xFFFFFFFFL;
+    }
+
+    private void readEvent() throws IOException {
+
+        int event = readByte();
+        switch (event) {
+            case EVENT_SYNC_BEEP:
+            case EVENT_DISARM:
+                readUnsignedVB();
+                break;
+            case EVENT_INFLIGHT_ADJUSTMENT:
+                // Adjustment of float value has the highest bit of function set.
+                if ((readByte() & 0x80) != 0) {
+                    readByte();
+                    readByte();
+                    readByte();
+                    readByte();
+                } else {
+                    readSignedVB();
+                }
+                break;
+            case EVENT_LOGGING_RESUME: {
+                long iteration = readUnsignedVB();
+                long timeUs = readUnsignedVB();
+                if (isFrameComplete()) {
+                    lastMainIteration = iteration;
+                    lastMainTime = timeUs;
+                }
+                return;
+            }
+            case EVENT_FLIGHT_MODE:
+                readUnsignedVB();
+                readUnsignedVB();
+                break;
+            case EVENT_LOG_END:
+                // Event of corrupted data would end the log early, so the message is checked.
+                for (int i = 0; i < LOG_END_MESSAGE.length(); ++i) {
+                    if (input.read() != LOG_END_MESSAGE.charAt(i)) {
+                        dropFrame();
+                        return;
+                    }
+                }
+                // The message ends with zero and is followed by the next log (if any) starting with headers.
+                input.read();
+                inLog = false;
+                return;
+            default:
+                // Unknown event can't be skipped, so it is dropped as a corrupted frame.
+                dropFrame();
+                return;
+        }
+
+        isFrameComplete();
+    }
+
+    private String formatRow() {
+
+        row.setLength(0);
+        for (int i = 0; i < columns.length; ++i) {
+
+            if (i > 0) {
+                row.append(CSV_DELIMITER);
+            }
+
+            long value;
+            switch (columnSources[i]) {
+                case SOURCE_MAIN:
+                    value = main[columnFields[i]];
+                    break;
+                case SOURCE_SLOW:
+                    value = slow[columnFields[i]];
+                    break;
+                case SOURCE_GPS:
+                    value = gps[columnFields[i]];
+                    break;
+                case SOURCE_ENERGY:
+                    row.append((long) energyMah);
+                    continue;
+                default:
+                    continue;
+            }
+
+            switch (columnFormats[i]) {
+                case FORMAT_VBAT:
+                    appendFixed(toMillivolts(value), 3);
+                    break;
+                case FORMAT_AMPERAGE:
+                    appendFixed(toMilliamperes(value), 3);
+                    break;
+                case FORMAT_FLIGHT_MODE:
+                    appendFlags(value, FLIGHT_MODE_NAMES);
+                    break;
+                case FORMAT_STATE:
+                    appendFlags(value, STATE_NAMES);
+                    break;
+                case FORMAT_FAILSAFE_PHASE:
+                    if (value >= 0 && value < FAILSAFE_PHASE_NAMES.length) {
+                        row.append(FAILSAFE_PHASE_NAMES[(int) value]);
+                    } else {
+                        row.append(value);
+                    }
+                    break;
+                case FORMAT_COORD:
+                    appendFixed(value, 7);
+                    break;
+                case FORMAT_SPEED:
+                    appendFixed(value, 2);
+                    break;
+                case FORMAT_COURSE:
+                    appendFixed(value, 1);
+                    break;
+                default:
+                    row.append(value);
+                    break;
+            }
+        }
+
+        return row.toString();
+    }
+
+    // Firmware 4.0 and newer logs voltage in centivolts, older one logs raw ADC value.
+    private long toMillivolts(long vbat) {
+        return centiUnits ? vbat * 10 : vbat * ADC_VREF * 10 * vbatScale / 4095;
+    }
+
+    // Firmware 4.0 and newer logs current in centiamperes, older one logs raw ADC value.
+    private long toMilliamperes(long amperage) {
+        if (centiUnits) {
+            return amperage * 10;
+        }
+        long millivolts = amperage * ADC_VREF * 100 / 4095 - currentOffset;
+        return millivolts * 10000 / currentScale;
+    }
+
+    // Appends integer scaled by 10^decimals as decimal number, e.g. 552091290 with 7 decimals as "55.2091290".
+    private void appendFixed(long value, int decimals) {
+
+        if (value < 0) {
+            row.append('-');
+            value = -value;
+        }
+
+        long scale = 1;
+        for (int i = 0; i < decimals; ++i) {
+            scale *= 10;
+        }
+
+        row.append(value / scale).append('.');
+        String fraction = Long.toString(value % scale);
+        for (int i = fraction.length(); i < decimals; ++i) {
+            row.append('0');
+        }
+        row.append(fraction);
+    }
+
+    // Names of set bits delimited by '|' or "0" if no bit is set.
+    private void appendFlags(long flags, String[] names) {
+
+        if (flags == 0) {
+            row.append('0');
+            return;
+        }
+
+        boolean first = true;
+        for (int bit = 0; bit < 32; ++bit) {
+            if ((flags & (1L << bit)) != 0) {
+                if (!first) {
+                    row.append('|');
+                }
+                first = false;
+                if (bit < names.length) {
+                    row.append(names[bit]);
+                } else {
+                    row.append(bit);
+                }
+            }
+        }
+    }
+
+    private int readByte() throws IOException {
+        int b = input.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private long readUnsignedVB() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if (b < 0x80) {
+                return result & 0xFFFFFFFFL;
+            }
+        }
+        // Too long value means corrupted data.
+        return 0;
+    }
+
+    private long readSignedVB() throws IOException {
+        long zigZag = readUnsignedVB();
+        return (int) ((zigZag >>> 1) ^ -(zigZag & 1));
+    }
+
+    private static long signExtend(long value, int bits) {
+        int shift = 64 - bits;
+        return value << shift >> shift;
+    }
+
+    // Up to 8 signed VB values, the header byte tells which of them are not zero.
+    private void readTag8_8SVB(int count) throws IOException {
+
+        if (count == 1) {
+            groupValues[0] = readSignedVB();
+            return;
+        }
+
+        int header = readByte();
+        for (int i = 0; i < count; ++i, header >>= 1) {
+            groupValues[i] = (header & 1) != 0 ? readSignedVB() : 0;
+        }
+    }
+
+    // Three values of 2, 4, 6 bits or of 8 to 32 bits each as selected by two upper bits of the lead byte.
+    private void readTag2_3S32() throws IOException {
+
+        int lead = readByte();
+        switch (lead >> 6) {
+            case 0:
+                groupValues[0] = signExtend((lead >> 4) & 0x03, 2);
+                groupValues[1] = signExtend((lead >> 2) & 0x03, 2);
+                groupValues[2] = signExtend(lead & 0x03, 2);
+                break;
+            case 1:
+                groupValues[0] = signExtend(lead & 0x0F, 4);
+                lead = readByte();
+                groupValues[1] = signExtend(lead >> 4, 4);
+                groupValues[2] = signExtend(lead & 0x0F, 4);
+                break;
+            case 2:
+                groupValues[0] = signExtend(lead & 0x3F, 6);
+                groupValues[1] = signExtend(readByte() & 0x3F, 6);
+                groupValues[2] = signExtend(readByte() & 0x3F, 6);
+                break;
+            default:
+                readSizedValues(lead);
+                break;
+        }
+    }
+
+    // Like TAG2_3S32 but with 5-5-4 and 8-7-7 bit layouts of newer firmware.
+    private void readTag2_3SVariable() throws IOException {
+
+        int lead = readByte();
+        switch (lead >> 6) {
+            case 0:
+                groupValues[0] = signExtend((lead >> 4) & 0x03, 2);
+                groupValues[1] = signExtend((lead >> 2) & 0x03, 2);
+                groupValues[2] = signExtend(lead & 0x03, 2);
+                break;
+            case 1: {
+                groupValues[0] = signExtend((lead & 0x3E) >> 1, 5);
+                int b1 = readByte();
+                groupValues[1] = signExtend(((lead & 0x01) << 4) | ((b1 & 0xF0) >> 4), 5);
+                groupValues[2] = signExtend(b1 & 0x0F, 4);
+                break;
+            }
+            case 2: {
+                int b1 = readByte();
+                groupValues[0] = signExtend(((lead & 0x3F) << 2) | ((b1 & 0xC0) >> 6), 8);
+                int b2 = readByte();
+                groupValues[1] = signExtend(((b1 & 0x3F) << 1) | ((b2 & 0x80) >> 7), 7);
+                groupValues[2] = signExtend(b2 & 0x7F, 7);
+                break;
+            }
+            default:
+                readSizedValues(lead);
+                break;
+        }
+    }
+
+    // Three little-endian values of 1 to 4 bytes, sizes are in pairs of bits of the lead byte.
+    private void readSizedValues(int lead) throws IOException {
+        for (int i = 0; i < 3; ++i, lead >>= 2) {
+            int bytes = (lead & 0x03) + 1;
+            long value = 0;
+            for (int b = 0; b < bytes; ++b) {
+                value |= (long) readByte() << (8 * b);
+            }
+            groupValues[i] = signExtend(value, bytes * 8);
+        }
+    }
+
+    // Four values of 0, 4, 8 or 16 bits, sizes are in pairs of bits of the selector; nibbles are packed.
+    private void readTag8_4S16() throws IOException {
+
+        int selector = readByte();
+        boolean halfByte = false;
+        int buffer = 0;
+
+        for (int i = 0; i < 4; ++i, selector >>= 2) {
+            switch (selector & 0x03) {
+                case 0:
+                    groupValues[i] = 0;
+                    break;
+                case 1:
+                    if (!halfByte) {
+                        buffer = readByte();
+                        groupValues[i] = signExtend(buffer >> 4, 4);
+                    } else {
+                        groupValues[i] = signExtend(buffer & 0x0F, 4);
+                    }
+                    halfByte = !halfByte;
+                    break;
+                case 2:
+                    if (!halfByte) {
+                        groupValues[i] = signExtend(readByte(), 8);
+                    } else {
+                        int high = (buffer & 0x0F) << 4;
+                        buffer = readByte();
+                        groupValues[i] = signExtend(high | (buffer >> 4), 8);
+                    }
+                    break;
+                default:
+                    if (!halfByte) {
+                        int high = readByte();
+                        groupValues[i] = signExtend((high << 8) | readByte(), 16);
+                    } else {
+                        int middle = readByte();
+                        int low = readByte();
+                        groupValues[i] = signExtend(((buffer & 0x0F) << 12) | (middle << 4) | (low >> 4), 16);
+                        buffer = low;
+                    }
+                    break;
+            }
+        }
+    }
+
+    private int getIntHeader(String name, int defaultValue) {
+        String value = headers.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        long parsed = NumberParser.parseLong(value, Long.MIN_VALUE);
+        return parsed == Long.MIN_VALUE ? defaultValue : (int) parsed;
+    }
+
+    private int[] getIntsHeader(String name) {
+        String value = headers.get(name);
+        if (value == null || value.trim().isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = value.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; ++i) {
+            result[i] = parseInt(parts[i]);
+        }
+        return result;
+    }
+
+    // E.g. "Betaflight 4.2.9 (1234abcd) STM32F7X2".
+    private int getFirmwareMajorVersion() {
+        String revision = headers.get("Firmware revision");
+        if (revision == null || !revision.toLowerCase(Locale.ROOT).startsWith("betaflight ")) {
+            return 0;
+        }
+        String version = revision.substring("betaflight ".length()).trim();
+        int end = version.indexOf('.');
+        return end > 0 ? parseInt(version.substring(0, end)) : 0;
+    }
+
+    private static int parseInt(String value) {
+        long parsed = NumberParser.parseLong(value, 0);
+        return (int) parsed;
+    }
+
+    // Definition of fields of a frame type by headers "Field <type> name|signed|predictor|encoding".
+    private class Frame {
+
+        final String[] names;
+        final boolean[] signed;
+        final int[] predictors;
+        final int[] encodings;
+        final int motor0Idx;
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        // Inter frame takes names and signs of intra frame.
+        Frame(String type, Frame base) {
+
+            String nameHeader = headers.get("Field " + type + " name");
+            names = base != null ? base.names
+                    : nameHeader == null || nameHeader.isEmpty() ? new String[0] : nameHeader.split(",");
+
+            int[] signs = base != null ? null : getIntsHeader("Field " + type + " signed");
+            signed = base != null ? base.signed : new boolean[names.length];
+            if (signs != null) {
+                for (int i = 0; i < signed.length && i < signs.length; ++i) {
+                    signed[i] = signs[i] != 0;
+                }
+            }
+
+            predictors = Arrays.copyOf(getIntsHeader("Field " + type + " predictor"), names.length);
+            encodings = Arrays.copyOf(getIntsHeader("Field " + type + " encoding"), names.length);
+
+            for (int i = 0; i < names.length; ++i) {
+                indexes.put(names[i].toLowerCase(Locale.ROOT), i);
+            }
+            motor0Idx = indexOf(MOTOR_COLUMN_NAMES[0]);
+        }
+
+        int size() {
+            return names.length;
+        }
+
+        // Names are compared ignoring case, e.g. "BaroAlt" column and "baroAlt" field.
+        int indexOf(String name) {
+            return indexes.getOrDefault(name.toLowerCase(Locale.ROOT), -1);
+        }
+    }
+}
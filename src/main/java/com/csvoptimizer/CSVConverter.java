@@ -2,11 +2,16 @@ package com.csvoptimizer;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 import static com.csvoptimizer.Constants.*;
 
 public class CSVConverter extends AbstractRunnable {
 
+    // Rows are written field by field, so output is buffered before characters are encoded.
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
     private String pathToInputFile;
     private String pathToOutputFile;
     private Calendar startingDate;
@@ -14,8 +19,49 @@ public class CSVConverter extends AbstractRunnable {
 
     private Map<String, FieldGenerator> generators = new HashMap<>();
 
-    // Unmodifiable collection can be used in calculation values for another row.
-    private List<String> prevResultValues;
+    // Additional outputs fed with every converted row.
+    private List<RowListener> rowListeners = new ArrayList<>();
+
+    // Collected only if set, otherwise conversion isn't slowed down with time measurements.
+    private ConversionMetrics metrics;
+
+    // Rows are read from this source instead of input file if set.
+    private RowSource rowSource;
+    private long rowSourceLines;
+
+    // Samples latencies of generators if set.
+    private GeneratorProfiler profiler;
+    private boolean profileCurrentRow;
+
+    // Number of bytes written into output file so far.
+    private long outputOffset;
+
+    // Row reused for every converted row and indexes of its columns filled by generators.
+    private RowSlot rowSlot;
+    private int[] generatedColumnIdxs;
+
+    // Definitions of generated columns declared in parameters file by names of the columns.
+    private Map<String, String> declaredGenerators = new LinkedHashMap<>();
+
+    // Exception conversion failed with or null.
+    private Exception failure;
+
+    // Collapses rows repeating values of watched columns or null to convert all rows.
+    private RowDeduplicator deduplicator;
+
+    // Selects rows by time range and conditions on columns or null to convert all rows.
+    private RowFilter rowFilter;
+
+    // Time window of vertical speed and values of the previous row it is calculated from.
+    private int vSpeedWindowMs = DEFAULT_VSPEED_WINDOW_MS;
+    private long prevTime;
+    private long prevBaroAltCm;
+    private boolean hasPrevBaroAlt;
+    private double vSpeedCmSec;
+
+    // The last GPS speed parsed.
+    private String lastGpsSpeed;
+    private double gpsSpeedMs;
 
     public CSVConverter(String pathToInputFile, String pathToOutputFile, int step, Calendar startingDate, Averager averager) {
 
@@ -28,9 +74,6 @@ public class CSVConverter extends AbstractRunnable {
 
         this.step = step;
         this.startingDate = startingDate;
-
-        // Initial state identified as null.
-        this.prevResultValues = null;
     }
 
     @Override
@@ -38,24 +81,200 @@ public class CSVConverter extends AbstractRunnable {
 
         initGenerators(this.startingDate);
 
+        if (metrics != null) {
+            metrics.start(generators.keySet());
+        }
+
+        if (profiler != null) {
+            profiler.start(getColumnsDebugOn(), generators);
+        }
+
         try {
             processRows(pathToInputFile, pathToOutputFile);
         } catch (Exception e) {
+            failure = e;
             e.printStackTrace();
+        } finally {
+            closeRowListeners();
+            if (metrics != null) {
+                metrics.close();
+            }
+            if (profiler != null) {
+                profiler.close();
+            }
+        }
+    }
+
+    /**
+     * Returns exception the last conversion failed with or null if it succeeded.
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    /**
+     * Sets metrics to be collected during conversion.
+     *
+     * @param metrics metrics instance or null not to collect metrics.
+     */
+    public void setMetrics(ConversionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets profiler to sample latencies of generators during conversion.
+     *
+     * @param profiler profiler instance or null not to profile generators.
+     */
+    public void setProfiler(GeneratorProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Sets time window of vertical speed.
+     *
+     * @param vSpeedWindowMs window in milliseconds or 0 to calculate speed from the previous row only.
+     */
+    public void setVSpeedWindow(int vSpeedWindowMs) {
+        this.vSpeedWindowMs = vSpeedWindowMs;
+    }
+
+    /**
+     * Sets generated columns declared in parameters file, they are added after all other columns.
+     *
+     * @param declaredGenerators definitions of generators by names of their columns (see {@link GeneratorCompiler}).
+     */
+    public void setDeclaredGenerators(Map<String, String> declaredGenerators) {
+        this.declaredGenerators = new LinkedHashMap<>(declaredGenerators);
+        this.columnPlan = null;
+    }
+
+    // Columns and their indexes are resolved once per layout and shared by conversions (e.g. jobs of daemon).
+    private static final Map<List<String>, ColumnPlan> COLUMN_PLANS = new ConcurrentHashMap<>();
+
+    private ColumnPlan columnPlan;
+
+    @Override
+    protected String[] getColumnsDebugOn() {
+        return getColumnPlan().columns;
+    }
+
+    @Override
+    protected int getColumnIndex(String columnName) {
+
+        Integer found = getColumnPlan().indexes.get(columnName);
+        if (found == null) {
+            throw new IndexOutOfBoundsException(INDEX_OUT_OF_BOUND_MESSAGE);
+        }
+
+        return found;
+    }
+
+    private ColumnPlan getColumnPlan() {
+
+        // Layout is the same until declared generators change.
+        if (columnPlan == null) {
+            columnPlan = COLUMN_PLANS.computeIfAbsent(new ArrayList<>(declaredGenerators.keySet()),
+                    key -> new ColumnPlan(super.getColumnsDebugOn()));
+        }
+
+        return columnPlan;
+    }
+
+    @Override
+    protected String[] getColumnsAfterDebug() {
+
+        String[] columns = super.getColumnsAfterDebug();
+        if (declaredGenerators.isEmpty()) {
+            return columns;
+        }
+
+        List<String> result = new ArrayList<>(Arrays.asList(columns));
+        result.addAll(declaredGenerators.keySet());
+        return result.toArray(new String[0]);
+    }
+
+    /**
+     * Sets deduplicator to skip rows repeating values of the previous written row.
+     *
+     * @param deduplicator deduplicator instance or null to write all rows.
+     */
+    public void setDeduplicator(RowDeduplicator deduplicator) {
+        this.deduplicator = deduplicator;
+    }
+
+    /**
+     * Sets filter to convert only rows of time range meeting conditions on columns.
+     *
+     * @param rowFilter filter instance or null to convert all rows.
+     */
+    public void setRowFilter(RowFilter rowFilter) {
+        this.rowFilter = rowFilter;
+    }
+
+    /**
+     * Sets source of rows to read them from instead of input file.
+     *
+     * @param rowSource  source of rows starting with header;
+     * @param totalLines number of rows the source provides (used to show progress).
+     */
+    public void setRowSource(RowSource rowSource, long totalLines) {
+        this.rowSource = rowSource;
+        this.rowSourceLines = totalLines;
+    }
+
+    /**
+     * Registers listener to receive every converted row.
+     *
+     * @param rowListener listener to add.
+     */
+    public void addRowListener(RowListener rowListener) {
+        rowListeners.add(rowListener);
+    }
+
+    private void closeRowListeners() {
+        for (RowListener rowListener : rowListeners) {
+            try {
+                rowListener.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
         }
     }
 
     private void processRows(String inputPath, String outputPath) throws Exception {
 
-        float totalLines = countLines(inputPath);
+        if (rowSource != null) {
+            processRows(rowSource, rowSourceLines, outputPath);
+            return;
+        }
+
+        try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(new FileInputStream(inputPath)))) {
+            processRows(bufferedReader::readLine, countLines(inputPath), outputPath);
+        }
+    }
+
+    private void processRows(RowSource source, float totalLines, String outputPath) throws Exception {
+
         System.out.println("Lines to process: " + Math.round(totalLines));
 
-        FileWriter outputFileWriter = new FileWriter(outputPath);
-        PrintWriter printWriter = new PrintWriter(outputFileWriter);
+        // Output file can be omitted if only additional outputs (e.g. GPX) are required. Rows are not flushed
+        // one by one, so the writer is closed (and buffered rows written) even if conversion fails.
+        try (PrintWriter printWriter = outputPath != null
+                ? new PrintWriter(new BufferedWriter(new FileWriter(outputPath), OUTPUT_BUFFER_SIZE)) : null) {
+            convertRows(source, totalLines, printWriter);
+        }
+
+        if (deduplicator != null) {
+            System.out.println("Rows collapsed: " + deduplicator.getRowsSkipped());
+        }
+
+        if (rowFilter != null) {
+            System.out.println("Rows filtered out: " + rowFilter.getRowsSkipped());
+        }
+    }
 
-        InputStream inputStream = new FileInputStream(inputPath);
-        InputStreamReader inputStreamReader = new InputStreamReader(inputStream);
-        BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
+    private void convertRows(RowSource source, float totalLines, PrintWriter printWriter) throws Exception {
 
         String lastPrintedCounter = "";
         int currentLineCounter = -1;
@@ -63,8 +282,18 @@ public class CSVConverter extends AbstractRunnable {
 
         String[] columns = getColumnsDebugOn();
 
-        String row;
-        while ((row = bufferedReader.readLine()) != null) {
+        while (true) {
+
+            // Reading of every row is measured, including the header and rows skipped below.
+            long readStart = metrics != null ? System.nanoTime() : 0;
+            String row = source.readRow();
+            if (row == null) {
+                break;
+            }
+
+            if (metrics != null) {
+                metrics.addRead(row.length() + 1, System.nanoTime() - readStart);
+            }
 
             ++currentLineCounter;
 
@@ -72,7 +301,17 @@ public class CSVConverter extends AbstractRunnable {
 
             // The very first line needed despite of the step because it's a header.
             if (currentLineCounter == 0) {
-                printHeaderRow(columns, printWriter);
+                if (printWriter != null) {
+                    outputOffset += printHeaderRow(columns, printWriter);
+                }
+                continue;
+            }
+
+            // Rows out of the slice are skipped before the step is counted, reading stops after the time range.
+            if (rowFilter != null && !rowFilter.accept(row)) {
+                if (rowFilter.isFinished()) {
+                    break;
+                }
                 continue;
             }
 
@@ -82,6 +321,11 @@ public class CSVConverter extends AbstractRunnable {
                 continue;
             }
 
+            // Repeating rows are skipped until some watched value changes keeping the step counter reached.
+            if (deduplicator != null && !deduplicator.accept(row)) {
+                continue;
+            }
+
             printRow(row, columns, printWriter);
 
             // Reset to initial value to start skipping further rows.
@@ -89,7 +333,10 @@ public class CSVConverter extends AbstractRunnable {
         }
     }
 
-    private void initGenerators(Calendar startDate) {
+    void initGenerators(Calendar startDate) {
+
+        // Generated columns are found again for the next row.
+        rowSlot = null;
 
         // Generates value from milliseconds into format used in GPX.
         generators.put(GPX_DATE_COLUMN_HEADER, (columns, rowValues, columnIdx) -> {
@@ -102,30 +349,54 @@ public class CSVConverter extends AbstractRunnable {
         generators.put(USER_DATE_COLUMN_HEADER, (columns, rowValues, columnIdx) -> {
             int timeColumnIdx = getColumnIndex(GPX_DATE_COLUMN_HEADER);
             String timeMs = rowValues.get(timeColumnIdx).trim();
-            Date date = DATE_FORMATTER_GPX.parse(timeMs);
-            return DATE_FORMATTER_USER.format(date.getTime());
+            Date date = DATE_FORMATTER_GPX.get().parse(timeMs);
+            return DATE_FORMATTER_USER.get().format(date.getTime());
         });
 
-        // Adds column value for vertical speed calculated from barometer altitude.
+        // Adds column value for vertical speed calculated from barometer altitude: slope of least-squares line
+        // through altitudes of the time window (of its part at the beginning of a log or session) or difference
+        // with the previous row without window or if rows are too sparse for it, e.g. logs of 1 Hz.
+        TimeWindow baroAltWindow = vSpeedWindowMs > 0 ? new TimeWindow(vSpeedWindowMs) : null;
+        hasPrevBaroAlt = false;
+        lastGpsSpeed = null;
+        vSpeedCmSec = 0;
         generators.put(V_SPEED_BARO_HEADER, (columns, rowValues, columnIdx) -> {
 
-            if (prevResultValues == null) {
-                return "0";
+            long currTime = parseLongField(rowValues.get(getColumnIndex(TIME_COLUMN_NAME)));
+            long currBaroAltCm = parseLongField(rowValues.get(getColumnIndex(BARO_ALT_COLUMN_NAME)));
+
+            // Difference of two close rows divides steps of altitude by short time, so it is used for sparse rows only.
+            // Time going back starts a new session, its first row has no previous one.
+            boolean sparse = hasPrevBaroAlt && currTime > prevTime
+                    && (baroAltWindow == null || currTime - prevTime >= vSpeedWindowMs * 500L);
+
+            // Slope of values covering less than a tenth of the window is noisy as well, speed is 0 until then.
+            double slope = Double.NaN;
+            if (baroAltWindow != null) {
+                baroAltWindow.add(currTime, currBaroAltCm);
+                if (!sparse && currTime - baroAltWindow.getFirstTime() >= vSpeedWindowMs * 100L) {
+                    slope = baroAltWindow.getSlope();
+                }
             }
 
-            int timeColumnIdx = getColumnIndex(TIME_COLUMN_NAME);
-            String currTimeMs = rowValues.get(timeColumnIdx).trim();
-            String prevTimeMs = prevResultValues.get(timeColumnIdx).trim();
-            long currTime = Long.parseLong(currTimeMs);
-            long prevTime = Long.parseLong(prevTimeMs);
-
-            int baroAltColumnIdx = getColumnIndex(BARO_ALT_COLUMN_NAME);
-            String currBaroAlt = rowValues.get(baroAltColumnIdx).trim();
-            String prevBaroAlt = prevResultValues.get(baroAltColumnIdx).trim();
-            long currentBaroAltCm = Long.parseLong(currBaroAlt);
-            long prevBaroAltCm = Long.parseLong(prevBaroAlt);
-
-            return calculateVertSpeed(currTime, prevTime, currentBaroAltCm, prevBaroAltCm);
+            String result;
+            if (sparse) {
+                vSpeedCmSec = (currBaroAltCm - prevBaroAltCm) / (double) (currTime - prevTime) * 1000000;
+                result = String.valueOf(vSpeedCmSec);
+            } else if (!Double.isNaN(slope)) {
+                vSpeedCmSec = slope;
+                result = String.valueOf(vSpeedCmSec);
+            } else {
+                vSpeedCmSec = 0;
+                result = "0";
+            }
+
+            // Values of the row are kept to be used for the next one without parsing them again.
+            prevTime = currTime;
+            prevBaroAltCm = currBaroAltCm;
+            hasPrevBaroAlt = true;
+
+            return result;
         });
 
         // Sets digital representation of flight mode.
@@ -197,10 +468,50 @@ public class CSVConverter extends AbstractRunnable {
                 return "0";
             }
         });
+
+        // Adds columns of distance travelled and of distance and bearing to home calculated from GPS coordinates.
+        GpsKinematics gpsKinematics = new GpsKinematics();
+        generators.put(DISTANCE_HEADER, (columns, rowValues, columnIdx) -> {
+            String state = rowValues.get(getColumnIndex(STATE_HEADER));
+            gpsKinematics.update(rowValues.get(getColumnIndex(GPS_LAT_COLUMN_NAME)),
+                    rowValues.get(getColumnIndex(GPS_LON_COLUMN_NAME)), hasFlag(state, GPS_FIX_HOME_FLAG));
+            return gpsKinematics.getDistance();
+        });
+
+        generators.put(HOME_DISTANCE_HEADER, (columns, rowValues, columnIdx) -> gpsKinematics.getHomeDistance());
+
+        generators.put(HOME_BEARING_HEADER, (columns, rowValues, columnIdx) -> gpsKinematics.getHomeBearing());
+
+        // Adds column of speed combining GPS ground speed and vertical speed.
+        generators.put(SPEED_3D_HEADER, (columns, rowValues, columnIdx) -> {
+
+            String gpsSpeed = rowValues.get(getColumnIndex(GPS_SPEED_COLUMN_NAME));
+            if (!gpsSpeed.equals(lastGpsSpeed)) {
+                lastGpsSpeed = gpsSpeed;
+                gpsSpeedMs = NumberParser.parseDouble(gpsSpeed);
+                if (Double.isNaN(gpsSpeedMs)) {
+                    gpsSpeedMs = 0;
+                }
+            }
+
+            double vSpeedMs = vSpeedCmSec / 100;
+            return String.valueOf(Math.round(Math.sqrt(gpsSpeedMs * gpsSpeedMs + vSpeedMs * vSpeedMs) * 100) / 100.0);
+        });
+
+        // Adds columns declared in parameters file.
+        GeneratorCompiler generatorCompiler = new GeneratorCompiler(getColumnsDebugOn());
+        for (Map.Entry<String, String> declared : declaredGenerators.entrySet()) {
+            generators.put(declared.getKey(), generatorCompiler.compile(declared.getValue()));
+        }
+    }
+
+    // Returns generator designated for the specified column or null if the column is copied as it is.
+    FieldGenerator getGenerator(String columnName) {
+        return generators.get(columnName);
     }
 
     // Returns value of a column as original or generated (transformed) from original content.
-    private String generateValue(String[] columns, List<String> rowValues, int columnIdx) throws Exception {
+    String generateValue(String[] columns, List<String> rowValues, int columnIdx) throws Exception {
 
         if (columnIdx >= columns.length) {
             throw new IndexOutOfBoundsException(INDEX_OUT_OF_BOUND_MESSAGE);
@@ -223,25 +534,72 @@ public class CSVConverter extends AbstractRunnable {
 
         // Obtain value using designated generator.
         FieldGenerator generator = generators.get(columnName);
-        return generator.generateValue(columns, rowValues, columnIdx);
+        if (metrics == null && !profileCurrentRow) {
+            return generator.generateValue(columns, rowValues, columnIdx);
+        }
+
+        long generatorStart = System.nanoTime();
+        String result = generator.generateValue(columns, rowValues, columnIdx);
+        long generatorNanos = System.nanoTime() - generatorStart;
+
+        if (metrics != null) {
+            metrics.addGenerator(columnName, generatorNanos);
+        }
+
+        if (profileCurrentRow) {
+            profiler.record(columnIdx, generator, generatorNanos);
+        }
+
+        return result;
     }
 
     // Outputs values of another row into result file.
-    private void printRow(String row, String[] columns, PrintWriter printWriter) throws Exception {
+    void printRow(String row, String[] columns, PrintWriter printWriter) throws Exception {
+
+        long splitStart = metrics == null ? 0 : System.nanoTime();
+
+        profileCurrentRow = profiler != null && profiler.sampleRow();
 
-        String[] rowValues = row.split(CSV_DELIMITER, -1);
+        // The same slot takes every row, values of the previous row needed by generators are kept by them.
+        if (rowSlot == null) {
+            rowSlot = new RowSlot(columns.length);
+            generatedColumnIdxs = IntStream.range(0, columns.length)
+                    .filter(i -> generators.containsKey(columns[i])).toArray();
+        }
+        rowSlot.reset(row);
+
+        if (metrics != null) {
+            metrics.addSplit(System.nanoTime() - splitStart);
+        }
+
+        // Columns without generators keep their original content.
+        for (int columnIdx : generatedColumnIdxs) {
+            rowSlot.set(columnIdx, generateValue(columns, rowSlot, columnIdx));
+        }
+
+        long writeStart = metrics == null ? 0 : System.nanoTime();
 
-        // From the beginning the result is filled with initial values.
-        List<String> resultValues = new ArrayList<>(Arrays.asList(rowValues));
-        for (int i = 0; i < columns.length; ++i) {
-            String result = generateValue(columns, resultValues, i);
-            resultValues.set(i, result);
+        int charsWritten = 0;
+        long rowOffset = -1;
+        if (printWriter != null) {
+            charsWritten = rowSlot.writeTo(printWriter);
+            rowOffset = outputOffset;
+            outputOffset += charsWritten;
         }
 
-        // Store current result to use it for calculations of the next row.
-        prevResultValues = Collections.unmodifiableList(resultValues);
+        long listenersStart = metrics == null ? 0 : System.nanoTime();
 
-        printRowData(resultValues, printWriter);
+        for (RowListener rowListener : rowListeners) {
+            rowListener.onRow(columns, rowSlot, rowOffset);
+        }
+
+        if (metrics != null) {
+            // Rows are counted as written only if there is output file (not only GPX or other listeners).
+            if (printWriter != null) {
+                metrics.addWrite(charsWritten, listenersStart - writeStart);
+            }
+            metrics.addListeners(System.nanoTime() - listenersStart);
+        }
     }
 
     /**
@@ -270,22 +628,31 @@ public class CSVConverter extends AbstractRunnable {
         Calendar rowDate = (Calendar) startDate.clone();
         rowDate.add(Calendar.SECOND, secondsInt);
 
-        String startDateFormatted = DATE_FORMATTER_GPX.format(rowDate.getTime());
+        String startDateFormatted = DATE_FORMATTER_GPX.get().format(rowDate.getTime());
         return startDateFormatted + "." + secondsString + "Z";
     }
 
-    private String calculateVertSpeed(long currTimeMs, long prevTimeMs, long currBaroAltCm, long prevBaroAltCm) {
-
-        long timeIntervalMillis = Math.abs(currTimeMs - prevTimeMs);
-
-        if (timeIntervalMillis == 0) {
-            return "0";
+    // Flags are delimited by '|', e.g. "GPS_FIX_HOME|GPS_FIX".
+    static boolean hasFlag(String flags, String flag) {
+        int from = 0;
+        while ((from = flags.indexOf(flag, from)) >= 0) {
+            int end = from + flag.length();
+            if ((from == 0 || isFlagDelimiter(flags.charAt(from - 1)))
+                    && (end == flags.length() || isFlagDelimiter(flags.charAt(end)))) {
+                return true;
+            }
+            from = end;
         }
+        return false;
+    }
 
-        long heightInterval = currBaroAltCm - prevBaroAltCm;
-        double vertSpeedCmSec = heightInterval / (double) timeIntervalMillis * 1000000;
+    private static boolean isFlagDelimiter(char c) {
+        return c == '|' || c == ' ';
+    }
 
-        return String.valueOf(vertSpeedCmSec);
+    // Parses integer field skipping surrounding spaces without creating trimmed string, returns 0 if invalid.
+    static long parseLongField(String val) {
+        return NumberParser.parseLong(val, 0);
     }
 
     public static int parseInt(String val) {
@@ -323,4 +690,18 @@ public class CSVConverter extends AbstractRunnable {
 
         printRow(row, columns, printWriter);
     }
+
+    // Columns of converted file with index of every column.
+    private static class ColumnPlan {
+
+        final String[] columns;
+        final Map<String, Integer> indexes = new HashMap<>();
+
+        ColumnPlan(String[] columns) {
+            this.columns = columns;
+            for (int i = columns.length - 1; i >= 0; --i) {
+                indexes.put(columns[i], i);
+            }
+        }
+    }
 }
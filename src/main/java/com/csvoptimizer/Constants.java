@@ -26,12 +26,28 @@ public final class Constants {
     public static final String DATE_FORMAT_GPX = "yyyy-MM-dd'T'HH:mm:ss";
     public static final String DATE_FORMAT_MS = "yyyy-MM-dd'T'HH:mm:ss.SSS";
 
-    public static final SimpleDateFormat DATE_FORMATTER_INPUT = new SimpleDateFormat(DATE_FORMAT_INPUT, DATE_LOCALE);
-    public static final SimpleDateFormat DATE_FORMATTER_USER = new SimpleDateFormat(DATE_FORMAT_USER, DATE_LOCALE);
-    public static final SimpleDateFormat DATE_FORMATTER_GPX = new SimpleDateFormat(DATE_FORMAT_GPX, DATE_LOCALE);
+    // SimpleDateFormat is not thread-safe, so every thread converting files has its own formatters.
+    public static final ThreadLocal<SimpleDateFormat> DATE_FORMATTER_INPUT =
+            ThreadLocal.withInitial(() -> new SimpleDateFormat(DATE_FORMAT_INPUT, DATE_LOCALE));
+    public static final ThreadLocal<SimpleDateFormat> DATE_FORMATTER_USER =
+            ThreadLocal.withInitial(() -> new SimpleDateFormat(DATE_FORMAT_USER, DATE_LOCALE));
+    public static final ThreadLocal<SimpleDateFormat> DATE_FORMATTER_GPX =
+            ThreadLocal.withInitial(() -> new SimpleDateFormat(DATE_FORMAT_GPX, DATE_LOCALE));
 
     public static final int DEFAULT_STEP = 1;
 
+    // Time window of vertical speed regression.
+    public static final int DEFAULT_VSPEED_WINDOW_MS = 200;
+
+    // Minimal number of satellites for GPS point to be written into GPX track.
+    public static final int DEFAULT_GPX_MIN_SAT = 6;
+
+    public static final int DEFAULT_GENERATOR_ROWS = 1000000;
+    public static final long DEFAULT_GENERATOR_SEED = 42;
+
+    // Logging rate of synthetic log, rows per second.
+    public static final int DEFAULT_GENERATOR_RATE = 2000;
+
     public static final String CLI_PARAM_FILE = "pars";
 
     public static final String CLI_PARAM_IN = "in";
@@ -40,24 +56,151 @@ public final class Constants {
     public static final String CLI_PARAM_DATE = "date";
     public static final String CLI_PARAM_AVER_COLUMNS = "avercols";
     public static final String CLI_PARAM_AVER_DEPTH = "averdep";
+    public static final String CLI_PARAM_GPX = "gpx";
+    public static final String CLI_PARAM_GPX_MIN_SAT = "gpxminsat";
+    public static final String CLI_PARAM_JMX = "jmx";
+    public static final String CLI_PARAM_METRICS = "metrics";
+    public static final String CLI_PARAM_METRICS_INTERVAL = "metricsint";
+    public static final String CLI_PARAM_PROFILE = "profile";
+    public static final String CLI_PARAM_PROFILE_OUT = "profileout";
+    public static final String CLI_PARAM_MERGE = "merge";
+    public static final String CLI_PARAM_INDEX = "index";
+    public static final String CLI_PARAM_INDEX_STEP = "indexstep";
+    public static final String CLI_PARAM_SUMMARY = "summary";
+    public static final String CLI_PARAM_BATCH = "batch";
+    public static final String CLI_PARAM_OUT_DIR = "outdir";
+    public static final String CLI_PARAM_EVENTS = "events";
+    public static final String CLI_PARAM_VSPEED_WINDOW = "vspeedwin";
+    public static final String CLI_PARAM_DEDUP = "dedup";
+    public static final String CLI_PARAM_DEDUP_COLUMNS = "dedupcols";
+    public static final String CLI_PARAM_HEARTBEAT = "heartbeat";
+    public static final String CLI_PARAM_DAEMON = "daemon";
+    public static final String CLI_PARAM_SPOOL = "spool";
+    public static final String CLI_PARAM_SOCKET = "socket";
+    public static final String CLI_PARAM_FROM = "from";
+    public static final String CLI_PARAM_TO = "to";
+    public static final String CLI_PARAM_WHERE = "where";
+    public static final String CLI_PARAM_LOD = "lod";
+    public static final String CLI_PARAM_LOD_FACTOR = "lodfactor";
+    public static final String CLI_PARAM_SEGMENTS = "segments";
     public static final String CLI_PARAM_NAME_DELIMITER = "=";
 
+    // Prefix of parameters declaring generated columns, e.g. "gen.power (W)=expr:...".
+    public static final String GENERATOR_PARAM_PREFIX = "gen.";
+
+    // Parameters of synthetic log generator.
+    public static final String CLI_PARAM_ROWS = "rows";
+    public static final String CLI_PARAM_SIZE = "size";
+    public static final String CLI_PARAM_SEED = "seed";
+    public static final String CLI_PARAM_RATE = "rate";
+    public static final String CLI_PARAM_THREADS = "threads";
+
     public static final String AVER_COLUMNS = CLI_PARAM_AVER_COLUMNS;
     public static final String AVER_DEPTH = CLI_PARAM_AVER_DEPTH;
 
     public static final String CLI_ARRAY_BEGIN = "{";
     public static final String CLI_ARRAY_END = "}";
     public static final String CLI_ARRAY_DELIMITER = ",";
+
+    // Sidecar index of converted file: entries of indexed time and of changes of indicators.
+    public static final String INDEX_FILE_EXTENSION = ".idx";
+    public static final String INDEX_TIME_ENTRY = "T";
+    public static final String INDEX_EVENT_ENTRY = "E";
+    public static final int DEFAULT_INDEX_STEP_MS = 1000;
+
+    // Summary of each converted file and summary of all files converted in batch mode.
+    public static final String SUMMARY_FILE_EXTENSION = ".summary.json";
+    public static final String BATCH_SUMMARY_FILE_NAME = "summary.csv";
+    public static final String BATCH_SUMMARY_TOTAL_NAME = "TOTAL";
+
+    // Events detected during conversion and parameters of their rules.
+    public static final String EVENTS_FILE_EXTENSION = ".events.csv";
+    public static final String EVENT_FAILSAFE = "failsafe";
+    public static final String EVENT_GPS_FIX = "gpsFix";
+    public static final String EVENT_BARO_JUMP = "baroJump";
+    public static final String EVENT_CURRENT_SPIKE = "currentSpike";
+    public static final String EVENT_MOTOR_SATURATION = "motorSaturation";
+    public static final String CLI_PARAM_EVENT_MIN_SAT = "evminsat";
+    public static final String CLI_PARAM_EVENT_BARO_JUMP = "evbarojump";
+    public static final String CLI_PARAM_EVENT_BARO_WINDOW = "evbarowin";
+    public static final String CLI_PARAM_EVENT_CURRENT_FACTOR = "evcurrentfactor";
+    public static final String CLI_PARAM_EVENT_CURRENT_MIN = "evcurrentmin";
+    public static final String CLI_PARAM_EVENT_CURRENT_WINDOW = "evcurrentwin";
+    public static final String CLI_PARAM_EVENT_MOTOR_MAX = "evmotormax";
+    public static final String CLI_PARAM_EVENT_MOTOR_WINDOW = "evmotorwin";
+    public static final int DEFAULT_EVENT_BARO_JUMP_CM = 500;
+    public static final int DEFAULT_EVENT_BARO_WINDOW_MS = 200;
+    public static final double DEFAULT_EVENT_CURRENT_FACTOR = 2.0;
+    public static final double DEFAULT_EVENT_CURRENT_MIN_A = 5.0;
+    public static final int DEFAULT_EVENT_CURRENT_WINDOW_MS = 1000;
+    public static final int DEFAULT_EVENT_MOTOR_MAX = 1990;
+    public static final int DEFAULT_EVENT_MOTOR_WINDOW_MS = 100;
+
+    // Levels of detail of converted file: files of levels, columns of aggregates and number of rows per bucket.
+    public static final String LOD_FILE_EXTENSION_PREFIX = ".lod";
+    public static final String LOD_FILE_EXTENSION = ".csv";
+    public static final String LOD_MIN_SUFFIX = " min";
+    public static final String LOD_MAX_SUFFIX = " max";
+    public static final String LOD_ROWS_HEADER = "lodRows";
+    public static final int DEFAULT_LOD_FACTOR = 4;
+
+    // Sessions of log converted separately: files of segments and their manifest.
+    public static final String SEGMENT_FILE_EXTENSION_PREFIX = ".seg";
+    public static final String SEGMENT_FILE_EXTENSION = ".csv";
+    public static final String SEGMENTS_MANIFEST_EXTENSION = ".segments.json";
+
+    // Blackbox binary logs decoded without CSV and average size of their frames (used to estimate number of rows).
+    public static final String[] BLACKBOX_FILE_EXTENSIONS = {".bbl", ".bfl"};
+    public static final int BLACKBOX_ESTIMATED_FRAME_BYTES = 32;
+
+    // System property set by native image (both at build time and at run time of the image).
+    public static final String NATIVE_IMAGE_CODE_PROPERTY = "org.graalvm.nativeimage.imagecode";
+
+    // Jobs of daemon: spooled files by their state and responses on socket.
+    public static final String DAEMON_JOB_EXTENSION = ".job";
+    public static final String DAEMON_RUNNING_EXTENSION = ".running";
+    public static final String DAEMON_DONE_EXTENSION = ".done";
+    public static final String DAEMON_FAILED_EXTENSION = ".failed";
+    public static final String DAEMON_RESPONSE_OK = "OK";
+    public static final String DAEMON_RESPONSE_ERROR = "ERROR";
+    public static final int DEFAULT_DAEMON_THREADS = 2;
+
+    // Separates file to merge from its start date (e.g. "log2.csv|2021-01-01_12:05:00").
+    public static final String MERGE_DATE_DELIMITER = "|";
     public static final String COMMA_DELIMITER = ",";
     public static final String POINT_DELIMITER = ".";
 
     public static final String CSV_DELIMITER = COMMA_DELIMITER;
 
+    // Number of characters written at the end of every output row.
+    public static final int LINE_SEPARATOR_LENGTH = System.lineSeparator().length();
+
     public static final String INDEX_OUT_OF_BOUND_MESSAGE = "Wrong column index!";
 
     // Columns used in calculations.
+    public static final String LOOP_ITERATION_COLUMN_NAME = "loopIteration";
     public static final String TIME_COLUMN_NAME = "time (us)";
     public static final String BARO_ALT_COLUMN_NAME = "BaroAlt (cm)";
+    public static final String GPS_NUM_SAT_COLUMN_NAME = "GPS_numSat";
+    public static final String GPS_LAT_COLUMN_NAME = "GPS_coord[0]";
+    public static final String GPS_LON_COLUMN_NAME = "GPS_coord[1]";
+    public static final String GPS_ALTITUDE_COLUMN_NAME = "GPS_altitude";
+    // GPS altitude is logged in decimeters.
+    public static final double GPS_ALTITUDE_UNITS_PER_METER = 10;
+    public static final String GPS_SPEED_COLUMN_NAME = "GPS_speed (m/s)";
+    public static final String VBAT_COLUMN_NAME = "vbatLatest (V)";
+    public static final String ENERGY_COLUMN_NAME = "energyCumulative (mAh)";
+    public static final String AMPERAGE_COLUMN_NAME = "amperageLatest (A)";
+    public static final String[] MOTOR_COLUMN_NAMES = {"motor[0]", "motor[1]", "motor[2]", "motor[3]"};
+
+    // Flag of state set while GPS has fix.
+    public static final String GPS_FIX_FLAG = "GPS_FIX";
+
+    // Flag of state set once home point is set.
+    public static final String GPS_FIX_HOME_FLAG = "GPS_FIX_HOME";
+
+    // Value of failsafe phase when failsafe is not active.
+    public static final String FAILSAFE_IDLE = "IDLE";
 
     // Additional columns.
     // Column header for date compatible with GPX-format (e.g. "2000-01-01T00:00:41.092541Z").
@@ -83,4 +226,31 @@ public final class Constants {
 
     // Icon to display flight mode, state or failsafe phase.
     public static final String STATUS_ICON_INDICATOR_HEADER = "statusIconIndicator";
+
+    // Column headers for GPS kinematics.
+    public static final String DISTANCE_HEADER = "distanceTravelled (m)";
+    public static final String HOME_DISTANCE_HEADER = "homeDistance (m)";
+    public static final String HOME_BEARING_HEADER = "homeBearing (deg)";
+    public static final String SPEED_3D_HEADER = "speed3D (m/s)";
+
+    // Changes of these columns are written into index of converted file.
+    public static final String[] INDEXED_EVENT_COLUMNS = {
+            FLIGHT_MODE_INDICATOR_HEADER,
+            STATE_INDICATOR_HEADER,
+            FAILSAFE_PHASE_INDICATOR_HEADER,
+            STATUS_ICON_INDICATOR_HEADER
+    };
+
+    // Changes of these columns close buckets of all levels of detail.
+    public static final String[] LOD_STATE_COLUMNS = {
+            FLIGHT_MODE_HEADER,
+            STATE_HEADER,
+            FAILSAFE_PHASE_HEADER,
+            FLIGHT_MODE_INDICATOR_HEADER,
+            STATE_INDICATOR_HEADER,
+            FAILSAFE_PHASE_INDICATOR_HEADER,
+            STATUS_ICON_INDICATOR_HEADER,
+            "rxSignalReceived",
+            "rxFlightChannelsValid"
+    };
 }
@@ -0,0 +1,246 @@
+package com.csvoptimizer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Converts files by jobs received while running, so JVM startup and JIT warm-up are paid once for all of them.
+ * <p>
+ * Job is a list of the same parameters as of command line, one parameter per line. Jobs are accepted:
+ * <ul>
+ * <li>from spool directory: file {@code <name>.job} is taken (it should be written under other name and then renamed),
+ * and after conversion replaced by {@code <name>.done} or {@code <name>.failed} with the error;</li>
+ * <li>from Unix domain socket: client sends parameters followed by empty line and receives the only line
+ * {@code OK} or {@code ERROR <message>} when the job is finished.</li>
+ * </ul>
+ * All jobs run on one shared pool of threads.
+ */
+public class ConversionDaemon implements Runnable, AutoCloseable {
+
+    private final Path spoolDir;
+    private final Path socketPath;
+    private final ExecutorService executor;
+
+    private final AtomicLong jobsDone = new AtomicLong();
+    private final AtomicLong jobsFailed = new AtomicLong();
+
+    private volatile boolean closed;
+    private ServerSocketChannel serverChannel;
+    private WatchService watchService;
+
+    /**
+     * @param spoolDir   directory to take job files from or null;
+     * @param socketPath path of Unix domain socket to accept jobs on or null;
+     * @param threads    number of jobs converted simultaneously.
+     */
+    public ConversionDaemon(String spoolDir, String socketPath, int threads) {
+
+        if (spoolDir == null && socketPath == null) {
+            throw new IllegalArgumentException("Neither spool directory nor socket specified");
+        }
+
+        this.spoolDir = spoolDir == null ? null : Paths.get(spoolDir);
+        this.socketPath = socketPath == null ? null : Paths.get(socketPath);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "conversion-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void run() {
+
+        try {
+            Thread socketThread = null;
+            if (socketPath != null) {
+                openSocket();
+                socketThread = new Thread(this::acceptConnections, "conversion-socket");
+                socketThread.start();
+            }
+
+            if (spoolDir != null) {
+                watchSpool();
+            } else {
+                socketThread.join();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Daemon is closed.
+        } catch (Exception e) {
+            if (!closed) {
+                e.printStackTrace();
+            }
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+                Files.deleteIfExists(socketPath);
+            }
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        System.out.println("Jobs done: " + jobsDone.get() + ", failed: " + jobsFailed.get());
+    }
+
+    private void openSocket() throws IOException {
+
+        // Socket file left by previous run prevents binding.
+        Files.deleteIfExists(socketPath);
+
+        serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        serverChannel.bind(UnixDomainSocketAddress.of(socketPath));
+        System.out.println("Accepting jobs on " + socketPath);
+    }
+
+    private void acceptConnections() {
+        while (!closed) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                executor.execute(() -> serveConnection(channel));
+            } catch (IOException e) {
+                if (!closed) {
+                    e.printStackTrace();
+                }
+                return;
+            }
+        }
+    }
+
+    private void serveConnection(SocketChannel channel) {
+
+        try (SocketChannel autoClosed = channel;
+             BufferedReader reader = new BufferedReader(Channels.newReader(autoClosed, StandardCharsets.UTF_8));
+             PrintWriter writer = new PrintWriter(Channels.newWriter(autoClosed, StandardCharsets.UTF_8))) {
+
+            List<String> args = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                args.add(line.trim());
+            }
+
+            String error = runJob(args);
+            // Only the first line of stack trace is returned: type and message of exception.
+            writer.println(error == null ? DAEMON_RESPONSE_OK : DAEMON_RESPONSE_ERROR + " " + error.split("\\R", 2)[0]);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void watchSpool() throws IOException, InterruptedException {
+
+        Files.createDirectories(spoolDir);
+        watchService = spoolDir.getFileSystem().newWatchService();
+        spoolDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+        System.out.println("Watching jobs in " + spoolDir);
+
+        // Jobs spooled while daemon was not running.
+        try (DirectoryStream<Path> jobs = Files.newDirectoryStream(spoolDir, "*" + DAEMON_JOB_EXTENSION)) {
+            for (Path job : jobs) {
+                submitSpooledJob(job);
+            }
+        }
+
+        while (!closed) {
+            WatchKey key = watchService.take();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.context() instanceof Path) {
+                    Path job = spoolDir.resolve((Path) event.context());
+                    if (job.toString().endsWith(DAEMON_JOB_EXTENSION)) {
+                        submitSpooledJob(job);
+                    }
+                }
+            }
+            key.reset();
+        }
+    }
+
+    private void submitSpooledJob(Path job) {
+
+        // The job is renamed first, so it is taken only once.
+        String name = job.getFileName().toString();
+        name = name.substring(0, name.length() - DAEMON_JOB_EXTENSION.length());
+        Path running = spoolDir.resolve(name + DAEMON_RUNNING_EXTENSION);
+        try {
+            Files.move(job, running, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            return;
+        }
+
+        String jobName = name;
+        executor.execute(() -> {
+            try {
+                List<String> args = new ArrayList<>();
+                for (String line : Files.readAllLines(running, StandardCharsets.UTF_8)) {
+                    if (!line.trim().isEmpty()) {
+                        args.add(line.trim());
+                    }
+                }
+
+                String error = runJob(args);
+                if (error == null) {
+                    Files.move(running, spoolDir.resolve(jobName + DAEMON_DONE_EXTENSION),
+                            StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    Files.write(spoolDir.resolve(jobName + DAEMON_FAILED_EXTENSION), error.getBytes(StandardCharsets.UTF_8));
+                    Files.deleteIfExists(running);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // Returns null if the job is done or description of its error.
+    private String runJob(List<String> args) {
+        try {
+            Run.runJob(args.toArray(new String[0]));
+            jobsDone.incrementAndGet();
+            return null;
+        } catch (Exception e) {
+            jobsFailed.incrementAndGet();
+            StringWriter stackTrace = new StringWriter();
+            e.printStackTrace(new PrintWriter(stackTrace));
+            return stackTrace.toString();
+        }
+    }
+}
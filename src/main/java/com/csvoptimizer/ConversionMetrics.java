@@ -0,0 +1,357 @@
+package com.csvoptimizer;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.*;
+import javax.management.openmbean.CompositeData;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects throughput, time spent per stage of conversion, allocation and GC pauses.
+ * <p>
+ * Counters are updated by the converting thread only; JMX and periodic dumps read them without locking,
+ * so they may lag by a row.
+ */
+public class ConversionMetrics implements ConversionMetricsMXBean, NotificationListener {
+
+    // Number of registered conversions, makes names of MBeans unique for jobs of daemon converting files
+    // of the same name at the same time.
+    private static final AtomicLong REGISTRATION_SEQUENCE = new AtomicLong();
+
+    private final String inputFile;
+    private long startNanos;
+    private long threadId;
+    private long startAllocatedBytes;
+    private long startGcCount;
+
+    private long rowsRead;
+    private long rowsWritten;
+    private long bytesRead;
+    private long bytesWritten;
+
+    private long readNanos;
+    private long splitNanos;
+    private long writeNanos;
+    private long listenersNanos;
+
+    // Nanoseconds spent in each generator identified by its column.
+    private final Map<String, long[]> generatorNanos = new LinkedHashMap<>();
+
+    private long gcPauseMillis;
+    private long gcMaxPauseMillis;
+
+    private ObjectName objectName;
+    private ScheduledExecutorService dumpExecutor;
+    private String pathToDumpFile;
+
+    public ConversionMetrics(String inputFile) {
+        this.inputFile = inputFile;
+        this.startNanos = System.nanoTime();
+        this.threadId = Thread.currentThread().getId();
+    }
+
+    /**
+     * Starts measuring on behalf of current (converting) thread.
+     *
+     * @param generatorColumns columns having generators to measure time of.
+     */
+    void start(Collection<String> generatorColumns) {
+
+        startNanos = System.nanoTime();
+        threadId = Thread.currentThread().getId();
+        startAllocatedBytes = getThreadAllocatedBytes();
+        startGcCount = getTotalGcCount();
+
+        // Map is filled before conversion, so concurrent readers never see it changing structurally.
+        for (String columnName : generatorColumns) {
+            generatorNanos.putIfAbsent(columnName, new long[1]);
+        }
+
+        // Pauses are taken from GC notifications since collectors report only total time.
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gcBean instanceof NotificationEmitter) {
+                ((NotificationEmitter) gcBean).addNotificationListener(this, null, null);
+            }
+        }
+    }
+
+    void addRead(long bytes, long nanos) {
+        ++rowsRead;
+        bytesRead += bytes;
+        readNanos += nanos;
+    }
+
+    void addSplit(long nanos) {
+        splitNanos += nanos;
+    }
+
+    void addGenerator(String columnName, long nanos) {
+        long[] total = generatorNanos.get(columnName);
+        if (total != null) {
+            total[0] += nanos;
+        }
+    }
+
+    void addWrite(long bytes, long nanos) {
+        ++rowsWritten;
+        bytesWritten += bytes;
+        writeNanos += nanos;
+    }
+
+    void addListeners(long nanos) {
+        listenersNanos += nanos;
+    }
+
+    /**
+     * Registers metrics in platform MBean server under name of input file and sequence number of conversion.
+     */
+    public void registerMBean() throws JMException {
+        String name = new java.io.File(inputFile).getName();
+        objectName = new ObjectName("com.csvoptimizer:type=ConversionMetrics,name=" + ObjectName.quote(name)
+                + ",id=" + REGISTRATION_SEQUENCE.incrementAndGet());
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+    }
+
+    /**
+     * Starts dumping metrics into file. Every dump is appended as one JSON object per line.
+     *
+     * @param pathToDumpFile  file to append metrics to;
+     * @param intervalSeconds interval of periodic dumps or 0 to dump only at the end of conversion.
+     */
+    public void startDumping(String pathToDumpFile, int intervalSeconds) throws IOException {
+
+        this.pathToDumpFile = pathToDumpFile;
+
+        // The file is truncated to hold metrics of current conversion only.
+        new FileWriter(pathToDumpFile).close();
+
+        if (intervalSeconds > 0) {
+            dumpExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+            dumpExecutor.scheduleAtFixedRate(this::dump, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Writes final metrics and releases JMX and GC subscriptions.
+     */
+    public void close() {
+
+        if (dumpExecutor != null) {
+            dumpExecutor.shutdownNow();
+        }
+
+        if (pathToDumpFile != null) {
+            dump();
+        }
+
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gcBean instanceof NotificationEmitter) {
+                try {
+                    ((NotificationEmitter) gcBean).removeNotificationListener(this);
+                } catch (ListenerNotFoundException e) {
+                    // Nothing to remove.
+                }
+            }
+        }
+
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private synchronized void dump() {
+        try (PrintWriter printWriter = new PrintWriter(new FileWriter(pathToDumpFile, true))) {
+            printWriter.println(toJson());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        long duration = info.getGcInfo().getDuration();
+
+        synchronized (this) {
+            gcPauseMillis += duration;
+            gcMaxPauseMillis = Math.max(gcMaxPauseMillis, duration);
+        }
+    }
+
+    /**
+     * Returns metrics as JSON object.
+     */
+    public String toJson() {
+
+        StringBuilder json = new StringBuilder();
+        json.append('{');
+        json.append("\"inputFile\":\"").append(inputFile.replace("\\", "\\\\").replace("\"", "\\\"")).append("\",");
+        json.append("\"elapsedMillis\":").append(getElapsedMillis()).append(',');
+        json.append("\"rowsRead\":").append(rowsRead).append(',');
+        json.append("\"rowsWritten\":").append(rowsWritten).append(',');
+        json.append("\"bytesRead\":").append(bytesRead).append(',');
+        json.append("\"bytesWritten\":").append(bytesWritten).append(',');
+        json.append("\"rowsPerSecond\":").append(Math.round(getRowsPerSecond())).append(',');
+        json.append("\"bytesPerSecond\":").append(Math.round(getBytesPerSecond())).append(',');
+        json.append("\"stageNanos\":{");
+        json.append("\"read\":").append(readNanos).append(',');
+        json.append("\"split\":").append(splitNanos).append(',');
+        json.append("\"write\":").append(writeNanos).append(',');
+        json.append("\"listeners\":").append(listenersNanos).append(',');
+        json.append("\"generators\":{");
+        String delimiter = "";
+        for (Map.Entry<String, Long> entry : getGeneratorNanos().entrySet()) {
+            json.append(delimiter).append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+            delimiter = ",";
+        }
+        json.append("}},");
+        json.append("\"allocatedBytes\":").append(getAllocatedBytes()).append(',');
+        json.append("\"allocationBytesPerSecond\":").append(Math.round(getAllocationBytesPerSecond())).append(',');
+        json.append("\"gcCount\":").append(getGcCount()).append(',');
+        json.append("\"gcPauseMillis\":").append(getGcPauseMillis()).append(',');
+        json.append("\"gcMaxPauseMillis\":").append(getGcMaxPauseMillis());
+        json.append('}');
+
+        return json.toString();
+    }
+
+    @Override
+    public String getInputFile() {
+        return inputFile;
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1000000;
+    }
+
+    @Override
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    @Override
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public double getRowsPerSecond() {
+        return rowsRead / getElapsedSeconds();
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return bytesRead / getElapsedSeconds();
+    }
+
+    @Override
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    @Override
+    public long getSplitNanos() {
+        return splitNanos;
+    }
+
+    @Override
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+
+    @Override
+    public long getListenersNanos() {
+        return listenersNanos;
+    }
+
+    @Override
+    public Map<String, Long> getGeneratorNanos() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : generatorNanos.entrySet()) {
+            result.put(entry.getKey(), entry.getValue()[0]);
+        }
+        return result;
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        long allocated = getThreadAllocatedBytes();
+        return allocated < 0 ? -1 : allocated - startAllocatedBytes;
+    }
+
+    @Override
+    public double getAllocationBytesPerSecond() {
+        return getAllocatedBytes() / getElapsedSeconds();
+    }
+
+    @Override
+    public long getGcCount() {
+        return getTotalGcCount() - startGcCount;
+    }
+
+    @Override
+    public synchronized long getGcPauseMillis() {
+        return gcPauseMillis;
+    }
+
+    @Override
+    public synchronized long getGcMaxPauseMillis() {
+        return gcMaxPauseMillis;
+    }
+
+    private double getElapsedSeconds() {
+        return Math.max(1, System.nanoTime() - startNanos) / 1e9;
+    }
+
+    // Bytes allocated by converting thread or -1 if JVM doesn't support it.
+    private long getThreadAllocatedBytes() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(threadId);
+        }
+        return -1;
+    }
+
+    private static long getTotalGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gcBean.getCollectionCount());
+        }
+        return count;
+    }
+}
@@ -0,0 +1,45 @@
+package com.csvoptimizer;
+
+import java.util.Map;
+
+/**
+ * Metrics of running conversion exposed via JMX.
+ */
+public interface ConversionMetricsMXBean {
+
+    String getInputFile();
+
+    long getElapsedMillis();
+
+    long getRowsRead();
+
+    long getRowsWritten();
+
+    long getBytesRead();
+
+    long getBytesWritten();
+
+    double getRowsPerSecond();
+
+    double getBytesPerSecond();
+
+    long getReadNanos();
+
+    long getSplitNanos();
+
+    long getWriteNanos();
+
+    long getListenersNanos();
+
+    Map<String, Long> getGeneratorNanos();
+
+    long getAllocatedBytes();
+
+    double getAllocationBytesPerSecond();
+
+    long getGcCount();
+
+    long getGcPauseMillis();
+
+    long getGcMaxPauseMillis();
+}
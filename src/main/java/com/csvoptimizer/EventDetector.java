@@ -0,0 +1,260 @@
+package com.csvoptimizer;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Detects events in converted rows and writes them into sidecar file as soon as they are detected.
+ * Every rule keeps constant state (windows are bounded by time) and costs O(1) per row.
+ */
+public class EventDetector implements RowListener {
+
+    private final Writer writer;
+    private final Map<String, EventRule> rules = new LinkedHashMap<>();
+
+    private final int minSatellites;
+    private final long baroJumpCm;
+    private final long baroWindowMs;
+    private final double currentSpikeFactor;
+    private final double currentSpikeMin;
+    private final long currentWindowMs;
+    private final long motorSaturationValue;
+    private final long motorSaturationMs;
+
+    private int timeColumnIdx = -1;
+    private int gpxDateColumnIdx;
+
+    private long eventsDetected;
+
+    /**
+     * @param pathToEventsFile file to write events to;
+     * @param parameters       parameters of rules (thresholds and windows), missing ones have default values.
+     */
+    public EventDetector(String pathToEventsFile, Map<String, Object> parameters) throws IOException {
+
+        minSatellites = (int) getNumber(parameters, CLI_PARAM_EVENT_MIN_SAT, DEFAULT_GPX_MIN_SAT);
+        baroJumpCm = (long) getNumber(parameters, CLI_PARAM_EVENT_BARO_JUMP, DEFAULT_EVENT_BARO_JUMP_CM);
+        baroWindowMs = (long) getNumber(parameters, CLI_PARAM_EVENT_BARO_WINDOW, DEFAULT_EVENT_BARO_WINDOW_MS);
+        currentSpikeFactor = getNumber(parameters, CLI_PARAM_EVENT_CURRENT_FACTOR, DEFAULT_EVENT_CURRENT_FACTOR);
+        currentSpikeMin = getNumber(parameters, CLI_PARAM_EVENT_CURRENT_MIN, DEFAULT_EVENT_CURRENT_MIN_A);
+        currentWindowMs = (long) getNumber(parameters, CLI_PARAM_EVENT_CURRENT_WINDOW, DEFAULT_EVENT_CURRENT_WINDOW_MS);
+        motorSaturationValue = (long) getNumber(parameters, CLI_PARAM_EVENT_MOTOR_MAX, DEFAULT_EVENT_MOTOR_MAX);
+        motorSaturationMs = (long) getNumber(parameters, CLI_PARAM_EVENT_MOTOR_WINDOW, DEFAULT_EVENT_MOTOR_WINDOW_MS);
+
+        writer = new BufferedWriter(new FileWriter(pathToEventsFile));
+        writer.write(String.join(CSV_DELIMITER, TIME_COLUMN_NAME, GPX_DATE_COLUMN_HEADER, "event", "detail"));
+        writer.write(System.lineSeparator());
+    }
+
+    // Rules are created on the first row with indexes of their columns, so no column is looked up by name per row.
+    private void initRules(String[] columns) {
+
+        int failsafePhaseIdx = RowListener.getColumnIndex(columns, FAILSAFE_PHASE_HEADER);
+        int stateIdx = RowListener.getColumnIndex(columns, STATE_HEADER);
+        int numSatIdx = RowListener.getColumnIndex(columns, GPS_NUM_SAT_COLUMN_NAME);
+        int baroAltIdx = RowListener.getColumnIndex(columns, BARO_ALT_COLUMN_NAME);
+        int amperageIdx = RowListener.getColumnIndex(columns, AMPERAGE_COLUMN_NAME);
+        int[] motorIdxs = new int[MOTOR_COLUMN_NAMES.length];
+        for (int i = 0; i < motorIdxs.length; ++i) {
+            motorIdxs[i] = RowListener.getColumnIndex(columns, MOTOR_COLUMN_NAMES[i]);
+        }
+
+        // Entry into failsafe and exit from it.
+        rules.put(EVENT_FAILSAFE, new EventRule() {
+
+            private String prevPhase = FAILSAFE_IDLE;
+
+            @Override
+            public String detect(String[] columns, List<String> rowValues, long timeUs) {
+
+                String phase = rowValues.get(failsafePhaseIdx).trim();
+                boolean idle = phase.isEmpty() || FAILSAFE_IDLE.equals(phase) || "0".equals(phase);
+                boolean prevIdle = FAILSAFE_IDLE.equals(prevPhase);
+                String prev = prevPhase;
+                prevPhase = idle ? FAILSAFE_IDLE : phase;
+
+                if (!idle && prevIdle) {
+                    return "enter " + phase;
+                } else if (idle && !prevIdle) {
+                    return "exit " + prev;
+                } else if (!idle && !phase.equals(prev)) {
+                    return "phase " + phase;
+                }
+
+                return null;
+            }
+        });
+
+        // Loss of GPS fix: state flag is cleared or too few satellites.
+        rules.put(EVENT_GPS_FIX, new EventRule() {
+
+            private boolean hadFix;
+
+            @Override
+            public String detect(String[] columns, List<String> rowValues, long timeUs) {
+
+                String state = rowValues.get(stateIdx);
+                long numSat = parseLong(rowValues.get(numSatIdx));
+                boolean fix = CSVConverter.hasFlag(state, GPS_FIX_FLAG) && numSat >= minSatellites;
+
+                boolean prevFix = hadFix;
+                hadFix = fix;
+
+                if (prevFix && !fix) {
+                    return "lost, satellites " + numSat;
+                } else if (!prevFix && fix) {
+                    return "acquired, satellites " + numSat;
+                }
+
+                return null;
+            }
+        });
+
+        // Sudden change of barometer altitude within the window.
+        rules.put(EVENT_BARO_JUMP, new EventRule() {
+
+            private final TimeWindow window = new TimeWindow(baroWindowMs);
+            private long holdOffUntil = Long.MIN_VALUE;
+
+            @Override
+            public String detect(String[] columns, List<String> rowValues, long timeUs) {
+
+                long baroAlt = parseLong(rowValues.get(baroAltIdx));
+                window.add(timeUs, baroAlt);
+
+                long jump = baroAlt - (long) window.getFirst();
+                if (Math.abs(jump) < baroJumpCm || timeUs < holdOffUntil) {
+                    return null;
+                }
+
+                // The same jump is reported once.
+                holdOffUntil = timeUs + baroWindowMs * 1000;
+                return String.format(Locale.ROOT, "%+d cm in %d ms", jump, (timeUs - window.getFirstTime()) / 1000);
+            }
+        });
+
+        // Current exceeding mean current of the window.
+        rules.put(EVENT_CURRENT_SPIKE, new EventRule() {
+
+            private final TimeWindow window = new TimeWindow(currentWindowMs);
+            private long holdOffUntil = Long.MIN_VALUE;
+
+            @Override
+            public String detect(String[] columns, List<String> rowValues, long timeUs) {
+
+                double current = parseDouble(rowValues.get(amperageIdx));
+                double mean = window.getMean();
+                boolean spike = window.size() > 0 && current >= currentSpikeMin && current > mean * currentSpikeFactor;
+                window.add(timeUs, current);
+
+                if (!spike || timeUs < holdOffUntil) {
+                    return null;
+                }
+
+                holdOffUntil = timeUs + currentWindowMs * 1000;
+                return String.format(Locale.ROOT, "%.2f A, mean %.2f A", current, mean);
+            }
+        });
+
+        // Any motor kept at its maximum longer than allowed.
+        rules.put(EVENT_MOTOR_SATURATION, new EventRule() {
+
+            private final long[] saturatedSince = {-1, -1, -1, -1};
+            private final boolean[] reported = new boolean[4];
+
+            @Override
+            public String detect(String[] columns, List<String> rowValues, long timeUs) {
+
+                String result = null;
+                for (int i = 0; i < MOTOR_COLUMN_NAMES.length; ++i) {
+
+                    long motor = parseLong(rowValues.get(motorIdxs[i]));
+                    if (motor < motorSaturationValue) {
+                        saturatedSince[i] = -1;
+                        reported[i] = false;
+                        continue;
+                    }
+
+                    if (saturatedSince[i] < 0) {
+                        saturatedSince[i] = timeUs;
+                    }
+
+                    if (!reported[i] && timeUs - saturatedSince[i] >= motorSaturationMs * 1000) {
+                        reported[i] = true;
+                        String saturated = MOTOR_COLUMN_NAMES[i] + " at " + motor;
+                        result = result == null ? saturated : result + "; " + saturated;
+                    }
+                }
+
+                return result;
+            }
+        });
+    }
+
+    @Override
+    public void onRow(String[] columns, List<String> rowValues, long outputOffset) throws Exception {
+
+        if (timeColumnIdx < 0) {
+            timeColumnIdx = RowListener.getColumnIndex(columns, TIME_COLUMN_NAME);
+            gpxDateColumnIdx = RowListener.getColumnIndex(columns, GPX_DATE_COLUMN_HEADER);
+            initRules(columns);
+        }
+
+        long timeUs = parseLong(rowValues.get(timeColumnIdx));
+
+        for (Map.Entry<String, EventRule> rule : rules.entrySet()) {
+            String detail = rule.getValue().detect(columns, rowValues, timeUs);
+            if (detail == null) {
+                continue;
+            }
+
+            writer.write(String.valueOf(timeUs));
+            writer.write(CSV_DELIMITER);
+            writer.write(rowValues.get(gpxDateColumnIdx));
+            writer.write(CSV_DELIMITER);
+            writer.write(rule.getKey());
+            writer.write(CSV_DELIMITER);
+            writer.write(detail.replace(CSV_DELIMITER, ";"));
+            writer.write(System.lineSeparator());
+            ++eventsDetected;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+        System.out.println("Events detected: " + eventsDetected);
+    }
+
+    /**
+     * Returns path to events of converted file.
+     */
+    public static String getPathToEventsFile(String pathToOutputFile) {
+        return pathToOutputFile + EVENTS_FILE_EXTENSION;
+    }
+
+    private static double getNumber(Map<String, Object> parameters, String name, double defaultValue) {
+        Object value = parameters.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(((String) value).trim());
+    }
+
+    private static long parseLong(String value) {
+        return NumberParser.parseLong(value, 0);
+    }
+
+    private static double parseDouble(String value) {
+        double result = NumberParser.parseDouble(value);
+        return Double.isNaN(result) ? 0 : result;
+    }
+}
@@ -0,0 +1,14 @@
+package com.csvoptimizer;
+
+import java.util.List;
+
+/**
+ * Rule detecting events in converted rows, applied to every row the same way as {@link FieldGenerator}.
+ */
+public interface EventRule {
+
+    /**
+     * @return description of detected event or null if there is no event in this row.
+     */
+    String detect(String[] columns, List<String> rowValues, long timeUs) throws Exception;
+}
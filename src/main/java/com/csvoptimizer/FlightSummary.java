@@ -0,0 +1,198 @@
+package com.csvoptimizer;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Locale;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Summary statistics of a flight accumulated from converted rows in the same pass they are written.
+ * Summaries of several files are combined with {@link #add(FlightSummary)}.
+ */
+public class FlightSummary implements RowListener {
+
+    private static final String CSV_HEADER = "file,rows,durationSec,maxBaroAltM,maxGpsAltitudeM,maxVSpeedMs,"
+            + "maxGpsSpeedMs,energyMah,minVbatV,failsafeCount";
+
+    private final String name;
+    private final String pathToSummaryFile;
+
+    private int timeColumnIdx = -1;
+    private int baroAltColumnIdx;
+    private int gpsAltitudeColumnIdx;
+    private int vSpeedColumnIdx;
+    private int gpsSpeedColumnIdx;
+    private int energyColumnIdx;
+    private int vbatColumnIdx;
+    private int failsafeColumnIdx;
+
+    private long rows;
+    private long durationUs;
+    private long firstTimeUs = Long.MIN_VALUE;
+    private long lastTimeUs;
+    private long maxBaroAltCm = Long.MIN_VALUE;
+    private long maxGpsAltitudeDm = Long.MIN_VALUE;
+    private double maxVSpeedCmSec = Double.NaN;
+    private double maxGpsSpeed = Double.NaN;
+    private long firstEnergyMah = Long.MIN_VALUE;
+    private long energyMah;
+    private double minVbat = Double.NaN;
+    private long failsafeCount;
+    private boolean inFailsafe;
+
+    /**
+     * @param name              name of summarized file;
+     * @param pathToSummaryFile JSON file to write summary to on close or null not to write it.
+     */
+    public FlightSummary(String name, String pathToSummaryFile) {
+        this.name = name;
+        this.pathToSummaryFile = pathToSummaryFile;
+    }
+
+    @Override
+    public void onRow(String[] columns, List<String> rowValues, long outputOffset) {
+
+        if (timeColumnIdx < 0) {
+            timeColumnIdx = RowListener.getColumnIndex(columns, TIME_COLUMN_NAME);
+            baroAltColumnIdx = RowListener.getColumnIndex(columns, BARO_ALT_COLUMN_NAME);
+            gpsAltitudeColumnIdx = RowListener.getColumnIndex(columns, GPS_ALTITUDE_COLUMN_NAME);
+            vSpeedColumnIdx = RowListener.getColumnIndex(columns, V_SPEED_BARO_HEADER);
+            gpsSpeedColumnIdx = RowListener.getColumnIndex(columns, GPS_SPEED_COLUMN_NAME);
+            energyColumnIdx = RowListener.getColumnIndex(columns, ENERGY_COLUMN_NAME);
+            vbatColumnIdx = RowListener.getColumnIndex(columns, VBAT_COLUMN_NAME);
+            failsafeColumnIdx = RowListener.getColumnIndex(columns, FAILSAFE_PHASE_HEADER);
+        }
+
+        ++rows;
+
+        long time = parseLong(rowValues.get(timeColumnIdx), Long.MIN_VALUE);
+        if (time != Long.MIN_VALUE) {
+            if (firstTimeUs == Long.MIN_VALUE) {
+                firstTimeUs = time;
+            }
+            lastTimeUs = time;
+            durationUs = lastTimeUs - firstTimeUs;
+        }
+
+        maxBaroAltCm = Math.max(maxBaroAltCm, parseLong(rowValues.get(baroAltColumnIdx), Long.MIN_VALUE));
+        maxGpsAltitudeDm = Math.max(maxGpsAltitudeDm, parseLong(rowValues.get(gpsAltitudeColumnIdx), Long.MIN_VALUE));
+        maxVSpeedCmSec = max(maxVSpeedCmSec, parseDouble(rowValues.get(vSpeedColumnIdx)));
+        maxGpsSpeed = max(maxGpsSpeed, parseDouble(rowValues.get(gpsSpeedColumnIdx)));
+        minVbat = min(minVbat, parseDouble(rowValues.get(vbatColumnIdx)));
+
+        // Consumed energy is difference between the last and the first values of cumulative counter.
+        long energy = parseLong(rowValues.get(energyColumnIdx), Long.MIN_VALUE);
+        if (energy != Long.MIN_VALUE) {
+            if (firstEnergyMah == Long.MIN_VALUE) {
+                firstEnergyMah = energy;
+            }
+            energyMah = energy - firstEnergyMah;
+        }
+
+        // Every entry into any phase but idle is counted as failsafe.
+        String failsafe = rowValues.get(failsafeColumnIdx).trim();
+        boolean failsafeNow = !failsafe.isEmpty() && !FAILSAFE_IDLE.equals(failsafe) && !"0".equals(failsafe);
+        if (failsafeNow && !inFailsafe) {
+            ++failsafeCount;
+        }
+        inFailsafe = failsafeNow;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (pathToSummaryFile == null) {
+            return;
+        }
+
+        try (PrintWriter printWriter = new PrintWriter(new FileWriter(pathToSummaryFile))) {
+            printWriter.println(toJson());
+        }
+    }
+
+    /**
+     * Adds statistics of another summary: extremes are combined, durations, energy and counters are summed.
+     */
+    public void add(FlightSummary other) {
+        rows += other.rows;
+        durationUs += other.durationUs;
+        maxBaroAltCm = Math.max(maxBaroAltCm, other.maxBaroAltCm);
+        maxGpsAltitudeDm = Math.max(maxGpsAltitudeDm, other.maxGpsAltitudeDm);
+        maxVSpeedCmSec = max(maxVSpeedCmSec, other.maxVSpeedCmSec);
+        maxGpsSpeed = max(maxGpsSpeed, other.maxGpsSpeed);
+        energyMah += other.energyMah;
+        minVbat = min(minVbat, other.minVbat);
+        failsafeCount += other.failsafeCount;
+    }
+
+    public String toJson() {
+        return String.format(Locale.ROOT, "{\"file\":\"%s\",\"rows\":%d,\"durationSec\":%.3f,\"maxBaroAltM\":%s,"
+                        + "\"maxGpsAltitudeM\":%s,\"maxVSpeedMs\":%s,\"maxGpsSpeedMs\":%s,\"energyMah\":%d,"
+                        + "\"minVbatV\":%s,\"failsafeCount\":%d}",
+                name.replace("\\", "\\\\").replace("\"", "\\\""), rows, durationUs / 1e6,
+                format(maxBaroAltCm == Long.MIN_VALUE ? Double.NaN : maxBaroAltCm / 100.0, "null"),
+                format(maxGpsAltitudeDm == Long.MIN_VALUE ? Double.NaN : maxGpsAltitudeDm / GPS_ALTITUDE_UNITS_PER_METER,
+                        "null"),
+                format(maxVSpeedCmSec / 100, "null"), format(maxGpsSpeed, "null"), energyMah,
+                format(minVbat, "null"), failsafeCount);
+    }
+
+    public String toCsv() {
+        return String.join(CSV_DELIMITER, name, String.valueOf(rows), String.format(Locale.ROOT, "%.3f", durationUs / 1e6),
+                format(maxBaroAltCm == Long.MIN_VALUE ? Double.NaN : maxBaroAltCm / 100.0, ""),
+                format(maxGpsAltitudeDm == Long.MIN_VALUE ? Double.NaN : maxGpsAltitudeDm / GPS_ALTITUDE_UNITS_PER_METER, ""),
+                format(maxVSpeedCmSec / 100, ""), format(maxGpsSpeed, ""), String.valueOf(energyMah),
+                format(minVbat, ""), String.valueOf(failsafeCount));
+    }
+
+    /**
+     * Writes summaries into CSV file, one row per summary.
+     */
+    public static void writeCsv(String pathToFile, List<FlightSummary> summaries) throws IOException {
+        try (PrintWriter printWriter = new PrintWriter(new FileWriter(pathToFile))) {
+            printWriter.println(CSV_HEADER);
+            for (FlightSummary summary : summaries) {
+                printWriter.println(summary.toCsv());
+            }
+        }
+    }
+
+    /**
+     * Returns path to summary of converted file.
+     */
+    public static String getPathToSummaryFile(String pathToOutputFile) {
+        return pathToOutputFile + SUMMARY_FILE_EXTENSION;
+    }
+
+    /**
+     * Returns name of the file to be shown in summary.
+     */
+    public static String getName(String pathToFile) {
+        return new File(pathToFile).getName();
+    }
+
+    private static String format(double value, String undefined) {
+        return Double.isNaN(value) ? undefined : String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    // Extremes ignore undefined (NaN) values.
+    private static double max(double accumulated, double value) {
+        return Double.isNaN(accumulated) || value > accumulated ? value : accumulated;
+    }
+
+    private static double min(double accumulated, double value) {
+        return Double.isNaN(accumulated) || value < accumulated ? value : accumulated;
+    }
+
+    private static long parseLong(String value, long undefined) {
+        return NumberParser.parseLong(value, undefined);
+    }
+
+    private static double parseDouble(String value) {
+        return NumberParser.parseDouble(value);
+    }
+}
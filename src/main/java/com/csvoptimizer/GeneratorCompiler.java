@@ -0,0 +1,334 @@
+package com.csvoptimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Compiles definitions of generated columns declared in parameters file into generators.
+ * <p>
+ * Definitions are parsed once: column names are resolved into indexes and expressions are turned into
+ * a tree of closures, so the generated column costs about the same as a hand-written generator. Columns are
+ * referenced by names in double quotes. Supported definitions:
+ * <ul>
+ * <li>{@code expr:<expression>} - arithmetic of columns and numbers with {@code + - * /}, parentheses and functions
+ * {@code abs, sqrt, min, max}, e.g. {@code expr:"vbatLatest (V)" * "amperageLatest (A)"};</li>
+ * <li>{@code map:"<column>":<flag>=<value>;...;*=<value>} - value of the first flag the column has
+ * (flags are delimited by '|') or of '*' if there is no such flag;</li>
+ * <li>{@code mean|slope|delta:<window ms>:"<column>"} - mean, least-squares slope per second or difference between
+ * the last and the first values of the column over the time window.</li>
+ * </ul>
+ */
+public class GeneratorCompiler {
+
+    private static final String EXPRESSION = "expr";
+    private static final String MAPPING = "map";
+    private static final String MEAN = "mean";
+    private static final String SLOPE = "slope";
+    private static final String DELTA = "delta";
+    private static final String ANY_FLAG = "*";
+
+    private final String[] columns;
+
+    /**
+     * @param columns all columns of converted file including the declared ones.
+     */
+    public GeneratorCompiler(String[] columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Returns generator for the definition.
+     *
+     * @throws IllegalArgumentException if the definition is wrong.
+     */
+    public FieldGenerator compile(String definition) {
+
+        int typeEnd = definition.indexOf(':');
+        if (typeEnd < 0) {
+            throw new IllegalArgumentException("Type of generator is not specified: " + definition);
+        }
+
+        String type = definition.substring(0, typeEnd).trim();
+        String body = definition.substring(typeEnd + 1);
+
+        switch (type) {
+            case EXPRESSION:
+                return compileExpression(body);
+            case MAPPING:
+                return compileMapping(body);
+            case MEAN:
+            case SLOPE:
+            case DELTA:
+                return compileWindow(type, body);
+            default:
+                throw new IllegalArgumentException("Unknown type of generator: " + type);
+        }
+    }
+
+    private FieldGenerator compileExpression(String body) {
+
+        Parser parser = new Parser(body);
+        Expression expression = parser.parseSum();
+        parser.expectEnd();
+
+        return (columns, rowValues, columnIdx) -> format(expression.evaluate(rowValues));
+    }
+
+    private FieldGenerator compileMapping(String body) {
+
+        Parser parser = new Parser(body);
+        int sourceIdx = parser.parseColumn();
+        parser.expect(':');
+
+        List<String> flags = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        String otherwise = "";
+        for (String mapping : parser.rest().split(";")) {
+            int delimiter = mapping.indexOf('=');
+            if (delimiter < 1) {
+                throw new IllegalArgumentException("Wrong mapping: " + mapping);
+            }
+
+            String flag = mapping.substring(0, delimiter).trim();
+            String value = mapping.substring(delimiter + 1).trim();
+            if (ANY_FLAG.equals(flag)) {
+                otherwise = value;
+            } else {
+                flags.add(flag);
+                values.add(value);
+            }
+        }
+
+        String[] flagArray = flags.toArray(new String[0]);
+        String[] valueArray = values.toArray(new String[0]);
+        String otherwiseValue = otherwise;
+
+        return (columns, rowValues, columnIdx) -> {
+            String source = rowValues.get(sourceIdx).trim();
+            for (int i = 0; i < flagArray.length; ++i) {
+                if (CSVConverter.hasFlag(source, flagArray[i])) {
+                    return valueArray[i];
+                }
+            }
+            return otherwiseValue;
+        };
+    }
+
+    private FieldGenerator compileWindow(String type, String body) {
+
+        int windowEnd = body.indexOf(':');
+        if (windowEnd < 0) {
+            throw new IllegalArgumentException("Window is not specified: " + body);
+        }
+
+        long windowMs = Long.parseLong(body.substring(0, windowEnd).trim());
+        Parser parser = new Parser(body.substring(windowEnd + 1));
+        int sourceIdx = parser.parseColumn();
+        parser.expectEnd();
+
+        int timeColumnIdx = indexOf(TIME_COLUMN_NAME);
+        TimeWindow window = new TimeWindow(windowMs);
+
+        return (columns, rowValues, columnIdx) -> {
+
+            double value = parseDouble(rowValues.get(sourceIdx));
+            if (!Double.isNaN(value)) {
+                window.add(CSVConverter.parseLongField(rowValues.get(timeColumnIdx)), value);
+            }
+
+            if (window.size() == 0) {
+                return "";
+            } else if (MEAN.equals(type)) {
+                return format(window.getMean());
+            } else if (SLOPE.equals(type)) {
+                return format(window.getSlope());
+            } else {
+                return format(window.getLast() - window.getFirst());
+            }
+        };
+    }
+
+    private int indexOf(String columnName) {
+        for (int i = 0; i < columns.length; ++i) {
+            if (columns[i].equals(columnName)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown column: " + columnName);
+    }
+
+    // Integral values are written without fraction, undefined ones as empty values.
+    private static String format(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "";
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return String.valueOf((long) value);
+        }
+        return String.valueOf(value);
+    }
+
+    private static double parseDouble(String value) {
+        return NumberParser.parseDouble(value);
+    }
+
+    // Compiled arithmetic expression.
+    private interface Expression {
+        double evaluate(List<String> rowValues);
+    }
+
+    // Recursive descent parser of definitions.
+    private class Parser {
+
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        // sum := product (('+' | '-') product)*
+        Expression parseSum() {
+            Expression result = parseProduct();
+            while (true) {
+                if (accept('+')) {
+                    result = binary(result, parseProduct(), (a, b) -> a + b);
+                } else if (accept('-')) {
+                    result = binary(result, parseProduct(), (a, b) -> a - b);
+                } else {
+                    return result;
+                }
+            }
+        }
+
+        // product := factor (('*' | '/') factor)*
+        Expression parseProduct() {
+            Expression result = parseFactor();
+            while (true) {
+                if (accept('*')) {
+                    result = binary(result, parseFactor(), (a, b) -> a * b);
+                } else if (accept('/')) {
+                    result = binary(result, parseFactor(), (a, b) -> a / b);
+                } else {
+                    return result;
+                }
+            }
+        }
+
+        // factor := '-' factor | number | column | function '(' arguments ')' | '(' sum ')'
+        Expression parseFactor() {
+
+            if (accept('-')) {
+                Expression operand = parseFactor();
+                return rowValues -> -operand.evaluate(rowValues);
+            }
+
+            if (accept('(')) {
+                Expression result = parseSum();
+                expect(')');
+                return result;
+            }
+
+            skipSpaces();
+            if (position < text.length() && text.charAt(position) == '"') {
+                int columnIdx = parseColumn();
+                return rowValues -> parseDouble(rowValues.get(columnIdx));
+            }
+
+            int begin = position;
+            while (position < text.length()
+                    && (Character.isLetterOrDigit(text.charAt(position)) || text.charAt(position) == '.')) {
+                ++position;
+            }
+            String token = text.substring(begin, position);
+            if (token.isEmpty()) {
+                throw new IllegalArgumentException("Unexpected symbol at " + position + ": " + text);
+            }
+
+            if (Character.isDigit(token.charAt(0)) || token.charAt(0) == '.') {
+                double constant = Double.parseDouble(token);
+                return rowValues -> constant;
+            }
+
+            return parseFunction(token);
+        }
+
+        private Expression parseFunction(String name) {
+
+            expect('(');
+            Expression first = parseSum();
+            Expression second = accept(',') ? parseSum() : null;
+            expect(')');
+
+            switch (name + (second == null ? "/1" : "/2")) {
+                case "abs/1":
+                    return unary(first, Math::abs);
+                case "sqrt/1":
+                    return unary(first, Math::sqrt);
+                case "min/2":
+                    return binary(first, second, Math::min);
+                case "max/2":
+                    return binary(first, second, Math::max);
+                default:
+                    throw new IllegalArgumentException("Unknown function: " + name);
+            }
+        }
+
+        // Returns index of column which name is in double quotes.
+        int parseColumn() {
+            expect('"');
+            int end = text.indexOf('"', position);
+            if (end < 0) {
+                throw new IllegalArgumentException("Column name is not closed: " + text);
+            }
+            String columnName = text.substring(position, end);
+            position = end + 1;
+            return indexOf(columnName);
+        }
+
+        String rest() {
+            String result = text.substring(position);
+            position = text.length();
+            return result;
+        }
+
+        void expect(char c) {
+            if (!accept(c)) {
+                throw new IllegalArgumentException("Expected '" + c + "' at " + position + ": " + text);
+            }
+        }
+
+        void expectEnd() {
+            skipSpaces();
+            if (position < text.length()) {
+                throw new IllegalArgumentException("Unexpected symbol at " + position + ": " + text);
+            }
+        }
+
+        private boolean accept(char c) {
+            skipSpaces();
+            if (position < text.length() && text.charAt(position) == c) {
+                ++position;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipSpaces() {
+            while (position < text.length() && text.charAt(position) == ' ') {
+                ++position;
+            }
+        }
+
+        private Expression unary(Expression operand, DoubleUnaryOperator operator) {
+            return rowValues -> operator.applyAsDouble(operand.evaluate(rowValues));
+        }
+
+        private Expression binary(Expression left, Expression right, DoubleBinaryOperator operator) {
+            return rowValues -> operator.applyAsDouble(left.evaluate(rowValues), right.evaluate(rowValues));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.csvoptimizer;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+ * Records latencies of generators on sampled rows (1 of N) and reports the most expensive ones.
+ * Unsampled rows cost the converter a single check, sampled ones two calls of {@link System#nanoTime()}
+ * per generated column.
+ */
+public class GeneratorProfiler {
+
+    private final int samplingRate;
+    private final String pathToReportFile;
+
+    private long rowCounter;
+    private long sampledRows;
+
+    // Histograms indexed by column and shared by all columns of the same generator.
+    private LatencyHistogram[] columnHistograms;
+    private final Map<FieldGenerator, LatencyHistogram> generatorHistograms = new IdentityHashMap<>();
+    private final Map<FieldGenerator, String> generatorNames = new IdentityHashMap<>();
+    private String[] columns;
+
+    /**
+     * @param samplingRate     every N-th row is measured;
+     * @param pathToReportFile file to write report to or null to print it only.
+     */
+    public GeneratorProfiler(int samplingRate, String pathToReportFile) {
+        this.samplingRate = samplingRate < 1 ? 1 : samplingRate;
+        this.pathToReportFile = pathToReportFile;
+    }
+
+    /**
+     * Prepares histograms for columns having generators.
+     */
+    void start(String[] columns, Map<String, FieldGenerator> generators) {
+
+        this.columns = columns;
+        columnHistograms = new LatencyHistogram[columns.length];
+
+        for (int i = 0; i < columns.length; ++i) {
+            FieldGenerator generator = generators.get(columns[i]);
+            if (generator == null) {
+                continue;
+            }
+
+            columnHistograms[i] = new LatencyHistogram();
+            generatorHistograms.computeIfAbsent(generator, g -> new LatencyHistogram());
+            generatorNames.merge(generator, columns[i], (name, column) -> name + "+" + column);
+        }
+    }
+
+    /**
+     * Returns true if the next row should be measured.
+     */
+    boolean sampleRow() {
+        if (rowCounter++ % samplingRate != 0) {
+            return false;
+        }
+        ++sampledRows;
+        return true;
+    }
+
+    void record(int columnIdx, FieldGenerator generator, long nanos) {
+
+        LatencyHistogram columnHistogram = columnHistograms[columnIdx];
+        if (columnHistogram == null) {
+            return;
+        }
+
+        // Columns of the same generator are measured separately and together.
+        columnHistogram.record(nanos);
+        generatorHistograms.get(generator).record(nanos);
+    }
+
+    /**
+     * Prints report and writes it into file if the one is specified.
+     */
+    void close() {
+
+        String report = getReport();
+        System.out.println();
+        System.out.print(report);
+
+        if (pathToReportFile != null) {
+            try (PrintWriter printWriter = new PrintWriter(new FileWriter(pathToReportFile))) {
+                printWriter.print(report);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Returns generators ranked by estimated total time, i.e. sampled time multiplied by sampling rate.
+     */
+    public String getReport() {
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "Generator profile: %d of %d rows sampled (1 of %d)%n",
+                sampledRows, rowCounter, samplingRate));
+
+        Map<String, LatencyHistogram> byColumn = new LinkedHashMap<>();
+        for (int i = 0; i < columns.length; ++i) {
+            if (columnHistograms[i] != null) {
+                byColumn.put(columns[i], columnHistograms[i]);
+            }
+        }
+        appendTable(report, "Column", byColumn);
+
+        // Generators serving several columns are reported separately.
+        if (generatorHistograms.size() < byColumn.size()) {
+            Map<String, LatencyHistogram> byGenerator = new LinkedHashMap<>();
+            for (Map.Entry<FieldGenerator, LatencyHistogram> entry : generatorHistograms.entrySet()) {
+                byGenerator.put(generatorNames.get(entry.getKey()), entry.getValue());
+            }
+            appendTable(report, "Generator", byGenerator);
+        }
+
+        return report.toString();
+    }
+
+    private void appendTable(StringBuilder report, String title, Map<String, LatencyHistogram> histograms) {
+
+        List<Map.Entry<String, LatencyHistogram>> ranked = new ArrayList<>(histograms.entrySet());
+        ranked.sort((a, b) -> Long.compare(b.getValue().getTotalValue(), a.getValue().getTotalValue()));
+
+        report.append(String.format(Locale.ROOT, "%-4s %-32s %10s %10s %10s %10s %10s %12s%n",
+                "Rank", title, "Samples", "Mean ns", "p50 ns", "p99 ns", "Max ns", "Est. ms"));
+
+        int rank = 0;
+        for (Map.Entry<String, LatencyHistogram> entry : ranked) {
+            LatencyHistogram histogram = entry.getValue();
+            report.append(String.format(Locale.ROOT, "%-4d %-32s %10d %10.0f %10d %10d %10d %12.1f%n",
+                    ++rank,
+                    entry.getKey(),
+                    histogram.getTotalCount(),
+                    histogram.getMean(),
+                    histogram.getValueAtPercentile(50),
+                    histogram.getValueAtPercentile(99),
+                    histogram.getMaxValue(),
+                    histogram.getTotalValue() * (double) samplingRate / 1e6));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.csvoptimizer;
+
+/**
+ * Distance travelled, distance and bearing to home calculated incrementally from GPS coordinates of rows.
+ * <p>
+ * GPS updates slower than rows are logged, so coordinates are compared as they are written in the log
+ * and calculations (including formatting) are made only when they change. Trigonometric values of the home
+ * and of the previous point are cached.
+ */
+public class GpsKinematics {
+
+    private static final double EARTH_RADIUS_M = 6371008.8;
+
+    private String lastLat;
+    private String lastLon;
+
+    private boolean hasPoint;
+    private double pointLatRad;
+    private double pointLonRad;
+    private double pointCosLat;
+
+    private boolean hasHome;
+    private double homeLatRad;
+    private double homeLonRad;
+    private double homeSinLat;
+    private double homeCosLat;
+
+    private double distanceM;
+    private String distance = "0.0";
+    private String homeDistance = "";
+    private String homeBearing = "";
+
+    /**
+     * Takes coordinates of the next row.
+     *
+     * @param lat     latitude in degrees as written in the log;
+     * @param lon     longitude in degrees as written in the log;
+     * @param homeSet whether home point is set, the first point having it becomes home.
+     */
+    public void update(String lat, String lon, boolean homeSet) {
+
+        if (hasPoint && lat.equals(lastLat) && lon.equals(lastLon) && (hasHome || !homeSet)) {
+            return;
+        }
+
+        lastLat = lat;
+        lastLon = lon;
+
+        double latDeg = parseDouble(lat);
+        double lonDeg = parseDouble(lon);
+        // Zero coordinates mean no fix.
+        if (Double.isNaN(latDeg) || Double.isNaN(lonDeg) || latDeg == 0 && lonDeg == 0) {
+            return;
+        }
+
+        double latRad = Math.toRadians(latDeg);
+        double lonRad = Math.toRadians(lonDeg);
+        double cosLat = Math.cos(latRad);
+
+        if (hasPoint) {
+            distanceM += haversine(pointLatRad, pointCosLat, latRad, cosLat, lonRad - pointLonRad);
+            distance = format(distanceM);
+        }
+
+        hasPoint = true;
+        pointLatRad = latRad;
+        pointLonRad = lonRad;
+        pointCosLat = cosLat;
+
+        if (!hasHome && homeSet) {
+            hasHome = true;
+            homeLatRad = latRad;
+            homeLonRad = lonRad;
+            homeSinLat = Math.sin(latRad);
+            homeCosLat = cosLat;
+        }
+
+        if (hasHome) {
+            double deltaLon = homeLonRad - lonRad;
+            homeDistance = format(haversine(latRad, cosLat, homeLatRad, homeCosLat, deltaLon));
+
+            // Initial bearing from the point to home, degrees clockwise from north.
+            double y = Math.sin(deltaLon) * homeCosLat;
+            double x = cosLat * homeSinLat - Math.sin(latRad) * homeCosLat * Math.cos(deltaLon);
+            double bearing = Math.toDegrees(Math.atan2(y, x));
+            homeBearing = format(bearing < 0 ? bearing + 360 : bearing);
+        }
+    }
+
+    // Distance in meters between points ordered by time.
+    public String getDistance() {
+        return distance;
+    }
+
+    // Distance in meters to home or empty value until home is set.
+    public String getHomeDistance() {
+        return homeDistance;
+    }
+
+    // Bearing in degrees to home or empty value until home is set.
+    public String getHomeBearing() {
+        return homeBearing;
+    }
+
+    private static double haversine(double lat1, double cosLat1, double lat2, double cosLat2, double deltaLon) {
+        double sinLat = Math.sin((lat2 - lat1) / 2);
+        double sinLon = Math.sin(deltaLon / 2);
+        double a = sinLat * sinLat + cosLat1 * cosLat2 * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // One decimal is enough for meters and degrees.
+    private static String format(double value) {
+        return String.valueOf(Math.round(value * 10) / 10.0);
+    }
+
+    private static double parseDouble(String value) {
+        return NumberParser.parseDouble(value);
+    }
+}
@@ -0,0 +1,102 @@
+package com.csvoptimizer;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Streams GPS columns of converted rows into GPX track.
+ * Only values of the last written point are kept, so memory doesn't depend on size of the log.
+ */
+public class GpxWriter implements RowListener {
+
+    private final Writer writer;
+    private final int minSatellites;
+
+    private int latColumnIdx = -1;
+    private int lonColumnIdx = -1;
+    private int altColumnIdx = -1;
+    private int timeColumnIdx = -1;
+    private int numSatColumnIdx = -1;
+
+    // Coordinates of the last written point to skip repeated ones.
+    private String prevLat;
+    private String prevLon;
+
+    private long pointsWritten;
+
+    public GpxWriter(String pathToGpxFile, int minSatellites) throws IOException {
+
+        this.writer = new BufferedWriter(new FileWriter(pathToGpxFile));
+        this.minSatellites = minSatellites;
+
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        writer.write(System.lineSeparator());
+        writer.write("<gpx version=\"1.1\" creator=\"CSV_Optimizer\" xmlns=\"http://www.topografix.com/GPX/1/1\">");
+        writer.write(System.lineSeparator());
+        writer.write("<trk><trkseg>");
+        writer.write(System.lineSeparator());
+    }
+
+    @Override
+    public void onRow(String[] columns, List<String> rowValues, long outputOffset) throws IOException {
+
+        // Indices are resolved once because the columns are the same for every row.
+        if (latColumnIdx < 0) {
+            latColumnIdx = RowListener.getColumnIndex(columns, GPS_LAT_COLUMN_NAME);
+            lonColumnIdx = RowListener.getColumnIndex(columns, GPS_LON_COLUMN_NAME);
+            altColumnIdx = RowListener.getColumnIndex(columns, GPS_ALTITUDE_COLUMN_NAME);
+            timeColumnIdx = RowListener.getColumnIndex(columns, GPX_DATE_COLUMN_HEADER);
+            numSatColumnIdx = RowListener.getColumnIndex(columns, GPS_NUM_SAT_COLUMN_NAME);
+        }
+
+        int numSat = CSVConverter.parseInt(rowValues.get(numSatColumnIdx).trim());
+        if (numSat < minSatellites) {
+            return;
+        }
+
+        String lat = rowValues.get(latColumnIdx).trim();
+        String lon = rowValues.get(lonColumnIdx).trim();
+        if (lat.isEmpty() || lon.isEmpty() || (lat.equals(prevLat) && lon.equals(prevLon))) {
+            return;
+        }
+
+        writer.write("<trkpt lat=\"");
+        writer.write(lat);
+        writer.write("\" lon=\"");
+        writer.write(lon);
+        writer.write("\">");
+        // Elevation of GPX is in meters, it is omitted if altitude isn't a number.
+        long altitude = NumberParser.parseLong(rowValues.get(altColumnIdx), Long.MIN_VALUE);
+        if (altitude != Long.MIN_VALUE) {
+            writer.write("<ele>");
+            writer.write(String.format(Locale.ROOT, "%.1f", altitude / GPS_ALTITUDE_UNITS_PER_METER));
+            writer.write("</ele>");
+        }
+        writer.write("<time>");
+        writer.write(rowValues.get(timeColumnIdx).trim());
+        writer.write("</time><sat>");
+        writer.write(String.valueOf(numSat));
+        writer.write("</sat></trkpt>");
+        writer.write(System.lineSeparator());
+
+        prevLat = lat;
+        prevLon = lon;
+        ++pointsWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.write("</trkseg></trk>");
+        writer.write(System.lineSeparator());
+        writer.write("</gpx>");
+        writer.write(System.lineSeparator());
+        writer.close();
+        System.out.println("GPX points written: " + pointsWritten);
+    }
+}
@@ -0,0 +1,95 @@
+package com.csvoptimizer;
+
+/**
+ * Histogram of latencies in nanoseconds with fixed relative precision (about 1.5%) in the manner of HdrHistogram.
+ * Values below 128 are counted exactly, greater ones fall into 64 sub-buckets per power of two.
+ * Recording doesn't allocate memory.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long totalValue;
+    private long maxValue;
+
+    public void record(long value) {
+
+        if (value < 0) {
+            value = 0;
+        }
+
+        ++counts[getIndex(value)];
+        ++totalCount;
+        totalValue += value;
+        if (value > maxValue) {
+            maxValue = value;
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getTotalValue() {
+        return totalValue;
+    }
+
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : totalValue / (double) totalCount;
+    }
+
+    /**
+     * Returns value at the specified percentile.
+     *
+     * @param percentile percentile in range 0..100.
+     */
+    public long getValueAtPercentile(double percentile) {
+
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long count = 0;
+        for (int i = 0; i < counts.length; ++i) {
+            count += counts[i];
+            if (count >= countAtPercentile) {
+                return Math.min(getMedianEquivalentValue(i), maxValue);
+            }
+        }
+
+        return maxValue;
+    }
+
+    static int getIndex(long value) {
+
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        // Value shifted to have exactly SUB_BUCKET_BITS - 1 significant bits under its highest one.
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + (int) (value >>> shift) - SUB_BUCKET_HALF_COUNT;
+    }
+
+    // Returns value in the middle of range of values counted in the bucket.
+    static long getMedianEquivalentValue(int index) {
+
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return (subBucket << shift) + (1L << (shift - 1));
+    }
+}
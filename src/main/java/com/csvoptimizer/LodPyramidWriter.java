@@ -0,0 +1,345 @@
+package com.csvoptimizer;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Writes levels of detail of converted file in the same pass: level N has a row per bucket of factor^N rows
+ * (e.g. 4, 16, 64 rows), so a viewer takes the level fitting its zoom instead of the full-rate output.
+ * <p>
+ * Every numeric column of level is written as mean of the bucket followed by its minimum and maximum
+ * (original values, so peaks are not lost). Time columns take the first row of the bucket. State columns
+ * (flags, indicators and other non-numeric values) close buckets of all levels when they change, so every
+ * change is kept exactly at every level.
+ * <p>
+ * Levels are built as a cascade: a closed bucket of a level is added into the bucket of the next level,
+ * so a row is aggregated only once and memory doesn't depend on length of log.
+ */
+public class LodPyramidWriter implements RowListener {
+
+    private static final char DELIMITER = CSV_DELIMITER.charAt(0);
+
+    private static final long MEAN_SCALE = 10_000_000L;
+    private static final double MAX_FIXED_MEAN = 1e11;
+
+    private static final int KIND_FIRST = 0;
+    private static final int KIND_STATE = 1;
+    private static final int KIND_NUMERIC = 2;
+
+    // Columns taking value of the first row of bucket.
+    private static final Set<String> FIRST_ROW_COLUMNS = new HashSet<>(Arrays.asList(
+            LOOP_ITERATION_COLUMN_NAME, TIME_COLUMN_NAME, GPX_DATE_COLUMN_HEADER, USER_DATE_COLUMN_HEADER));
+
+    private final String pathToOutputFile;
+    private final int levelCount;
+    private final int factor;
+
+    private int[] kinds;
+    private Level[] levels;
+    private String[] prevStateValues;
+
+    // Row of level being written.
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * @param pathToOutputFile converted file, levels are written next to it;
+     * @param levelCount       number of levels;
+     * @param factor           number of buckets (rows) of a level aggregated into a bucket of the next level.
+     */
+    public LodPyramidWriter(String pathToOutputFile, int levelCount, int factor) {
+        this.pathToOutputFile = pathToOutputFile;
+        this.levelCount = levelCount;
+        this.factor = Math.max(2, factor);
+    }
+
+    /**
+     * Returns path to file of level (starting from 1) of converted file.
+     */
+    public static String getPathToLevelFile(String pathToOutputFile, int level) {
+        return pathToOutputFile + LOD_FILE_EXTENSION_PREFIX + level + LOD_FILE_EXTENSION;
+    }
+
+    @Override
+    public void onRow(String[] columns, List<String> rowValues, long outputOffset) throws IOException {
+
+        if (levels == null) {
+            init(columns, rowValues);
+        }
+
+        // Bucket of the lowest level not empty is closed with all buckets above it.
+        if (isStateChanged(rowValues)) {
+            for (int i = 0; i < levels.length; ++i) {
+                if (levels[i].inputs > 0) {
+                    closeBucket(i, true);
+                    break;
+                }
+            }
+        }
+
+        Level first = levels[0];
+        first.addRow(rowValues);
+        if (first.inputs == factor) {
+            closeBucket(0, false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (levels == null) {
+            return;
+        }
+
+        // Incomplete buckets are written as well, each one into the bucket of the next level.
+        for (int i = 0; i < levels.length; ++i) {
+            if (levels[i].inputs > 0) {
+                writeBucket(i);
+            }
+        }
+
+        for (Level level : levels) {
+            level.writer.close();
+        }
+    }
+
+    // Kinds of columns are recognized by the first row.
+    private void init(String[] columns, List<String> rowValues) throws IOException {
+
+        Set<String> stateColumns = new HashSet<>(Arrays.asList(LOD_STATE_COLUMNS));
+
+        kinds = new int[columns.length];
+        for (int i = 0; i < columns.length; ++i) {
+            String value = rowValues.get(i).trim();
+            if (FIRST_ROW_COLUMNS.contains(columns[i])) {
+                kinds[i] = KIND_FIRST;
+            } else if (stateColumns.contains(columns[i])
+                    || !value.isEmpty() && Double.isNaN(NumberParser.parseDouble(value))) {
+                kinds[i] = KIND_STATE;
+            } else {
+                kinds[i] = KIND_NUMERIC;
+            }
+        }
+
+        prevStateValues = new String[columns.length];
+
+        levels = new Level[Math.max(1, levelCount)];
+        for (int i = 0; i < levels.length; ++i) {
+            levels[i] = new Level(getPathToLevelFile(pathToOutputFile, i + 1), columns.length);
+            writeHeader(levels[i].writer, columns);
+        }
+    }
+
+    private boolean isStateChanged(List<String> rowValues) {
+
+        boolean changed = false;
+        for (int i = 0; i < kinds.length; ++i) {
+            if (kinds[i] == KIND_STATE) {
+                String value = rowValues.get(i);
+                if (prevStateValues[i] != null && !value.equals(prevStateValues[i])) {
+                    changed = true;
+                }
+                prevStateValues[i] = value;
+            }
+        }
+
+        return changed;
+    }
+
+    // Writes bucket of the level and continues with the next level if its bucket is complete or state changed.
+    private void closeBucket(int levelIdx, boolean stateChanged) throws IOException {
+
+        writeBucket(levelIdx);
+
+        int nextIdx = levelIdx + 1;
+        if (nextIdx < levels.length && (stateChanged || levels[nextIdx].inputs == factor)) {
+            closeBucket(nextIdx, stateChanged);
+        }
+    }
+
+    private void writeBucket(int levelIdx) throws IOException {
+
+        Level level = levels[levelIdx];
+        level.write();
+
+        if (levelIdx + 1 < levels.length) {
+            levels[levelIdx + 1].addBucket(level);
+        }
+
+        level.reset();
+    }
+
+    private void writeHeader(Writer writer, String[] columns) throws IOException {
+
+        for (int i = 0; i < columns.length; ++i) {
+            if (i > 0) {
+                writer.write(CSV_DELIMITER);
+            }
+            writer.write(columns[i]);
+            if (kinds[i] == KIND_NUMERIC) {
+                writer.write(CSV_DELIMITER + columns[i] + LOD_MIN_SUFFIX);
+                writer.write(CSV_DELIMITER + columns[i] + LOD_MAX_SUFFIX);
+            }
+        }
+
+        writer.write(CSV_DELIMITER + LOD_ROWS_HEADER);
+        writer.write(System.lineSeparator());
+    }
+
+    // Means are written with precision of GPS coordinates without trailing zeros. Digits are appended directly
+    // because Double.toString costs more than aggregation of the row.
+    private static void appendMean(StringBuilder builder, double value) {
+
+        if (Math.abs(value) >= MAX_FIXED_MEAN) {
+            builder.append(value);
+            return;
+        }
+
+        long scaled = Math.round(value * MEAN_SCALE);
+        if (scaled < 0) {
+            builder.append('-');
+            scaled = -scaled;
+        }
+
+        builder.append(scaled / MEAN_SCALE);
+
+        // Fraction digits are appended until the rest is zero, so trailing zeros are not written.
+        long fraction = scaled % MEAN_SCALE;
+        if (fraction > 0) {
+            builder.append('.');
+        }
+        for (long unit = MEAN_SCALE / 10; fraction > 0; unit /= 10) {
+            builder.append((char) ('0' + fraction / unit));
+            fraction %= unit;
+        }
+    }
+
+    // Bucket being aggregated at one level.
+    private class Level {
+
+        final Writer writer;
+
+        // Number of rows or buckets of the previous level added and number of rows of log they cover.
+        int inputs;
+        long rows;
+
+        final String[] first;
+        final double[] sums;
+        final long[] counts;
+        final double[] mins;
+        final double[] maxs;
+        final String[] minValues;
+        final String[] maxValues;
+
+        Level(String pathToFile, int columnCount) throws IOException {
+            writer = new BufferedWriter(new FileWriter(pathToFile));
+            first = new String[columnCount];
+            sums = new double[columnCount];
+            counts = new long[columnCount];
+            mins = new double[columnCount];
+            maxs = new double[columnCount];
+            minValues = new String[columnCount];
+            maxValues = new String[columnCount];
+            reset();
+        }
+
+        void addRow(List<String> rowValues) {
+
+            for (int i = 0; i < kinds.length; ++i) {
+                String value = rowValues.get(i);
+                if (kinds[i] != KIND_NUMERIC) {
+                    if (inputs == 0) {
+                        first[i] = value;
+                    }
+                    continue;
+                }
+
+                // Empty and invalid values are not aggregated.
+                double number = NumberParser.parseDouble(value);
+                if (Double.isNaN(number)) {
+                    continue;
+                }
+
+                sums[i] += number;
+                ++counts[i];
+                if (number < mins[i]) {
+                    mins[i] = number;
+                    minValues[i] = value.trim();
+                }
+                if (number > maxs[i]) {
+                    maxs[i] = number;
+                    maxValues[i] = value.trim();
+                }
+            }
+
+            ++inputs;
+            ++rows;
+        }
+
+        void addBucket(Level bucket) {
+
+            for (int i = 0; i < kinds.length; ++i) {
+                if (kinds[i] != KIND_NUMERIC) {
+                    if (inputs == 0) {
+                        first[i] = bucket.first[i];
+                    }
+                    continue;
+                }
+
+                sums[i] += bucket.sums[i];
+                counts[i] += bucket.counts[i];
+                if (bucket.counts[i] > 0 && bucket.mins[i] < mins[i]) {
+                    mins[i] = bucket.mins[i];
+                    minValues[i] = bucket.minValues[i];
+                }
+                if (bucket.counts[i] > 0 && bucket.maxs[i] > maxs[i]) {
+                    maxs[i] = bucket.maxs[i];
+                    maxValues[i] = bucket.maxValues[i];
+                }
+            }
+
+            ++inputs;
+            rows += bucket.rows;
+        }
+
+        void write() throws IOException {
+
+            line.setLength(0);
+            for (int i = 0; i < kinds.length; ++i) {
+                if (i > 0) {
+                    line.append(DELIMITER);
+                }
+
+                if (kinds[i] != KIND_NUMERIC) {
+                    line.append(first[i]);
+                } else if (counts[i] == 0) {
+                    line.append(DELIMITER).append(DELIMITER);
+                } else {
+                    appendMean(line, sums[i] / counts[i]);
+                    line.append(DELIMITER).append(minValues[i]);
+                    line.append(DELIMITER).append(maxValues[i]);
+                }
+            }
+
+            line.append(DELIMITER).append(rows).append(System.lineSeparator());
+            writer.append(line);
+        }
+
+        void reset() {
+            inputs = 0;
+            rows = 0;
+            Arrays.fill(first, null);
+            Arrays.fill(sums, 0);
+            Arrays.fill(counts, 0);
+            Arrays.fill(mins, Double.POSITIVE_INFINITY);
+            Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+        }
+    }
+}
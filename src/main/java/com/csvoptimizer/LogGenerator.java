@@ -0,0 +1,533 @@
+package com.csvoptimizer;
+
+import com.csvoptimizer.exceptions.CliParametersException;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Writes synthetic blackbox logs with layout of imported files for load and scale testing.
+ * <p>
+ * Every value of a row is a function of the seed and the row number only, so chunks of rows are generated
+ * in parallel and the same parameters always produce the same file.
+ */
+public class LogGenerator implements Runnable {
+
+    private static final int CHUNK_ROWS = 16384;
+
+    // Failsafe episode lasts up to 10 seconds, about one episode is scheduled per 10 minutes of flight.
+    private static final long FAILSAFE_EPISODE_US = 10000000L;
+    private static final long FAILSAFE_PERIOD_US = 600000000L;
+
+    // GPS module updates position 10 times per second.
+    private static final long GPS_PERIOD_US = 100000;
+
+    private static final double HOME_LAT = 55.2091290;
+    private static final double HOME_LON = 83.1516301;
+    private static final double METERS_PER_DEGREE = 111320;
+
+    private static final String[] FLIGHT_MODES = {
+            "ANGLE_MODE", "ANGLE_MODE", "ANGLE_MODE|MAG", "HORIZON_MODE", "ANGLE_MODE|AUTOTUNE",
+            "ANGLE_MODE|PASSTHRU|AUTOTUNE"
+    };
+
+    private static final String[] FAILSAFE_PHASES = {"RX_LOSS_DETECTED", "6", "RX_LOSS_RECOVERED"};
+
+    private final String pathToOutputFile;
+    private final long rows;
+    private final long targetSize;
+    private final long seed;
+    private final int rate;
+    private final int threads;
+
+    private Exception failure;
+
+    // Derived from the seed: times of flight mode switches and failsafe events.
+    private long[] modeSwitchTimes;
+    private String[] modeSwitchValues;
+    private long[] failsafeTimes;
+    private long gpsFixTime;
+    private long disarmTime;
+    private double[] phases;
+
+    /**
+     * @param pathToOutputFile file to write log to;
+     * @param rows             number of data rows, ignored if target size is set;
+     * @param targetSize       approximate size of file in bytes or 0 to write specified number of rows;
+     * @param seed             seed making the log reproducible;
+     * @param rate             logging rate, rows per second;
+     * @param threads          number of threads generating chunks of rows.
+     */
+    public LogGenerator(String pathToOutputFile, long rows, long targetSize, long seed, int rate, int threads) {
+
+        this.pathToOutputFile = pathToOutputFile;
+        this.rows = rows;
+        this.targetSize = targetSize;
+        this.seed = seed;
+        this.rate = rate < 1 ? DEFAULT_GENERATOR_RATE : rate;
+        this.threads = threads < 1 ? 1 : threads;
+    }
+
+    @Override
+    public void run() {
+        try {
+            generate();
+        } catch (Exception e) {
+            failure = e;
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns exception the last generation failed with or null if it succeeded. The file is incomplete then.
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    private void generate() throws Exception {
+
+        failure = null;
+
+        long startNanos = System.nanoTime();
+
+        // Number of rows for target size is defined by average size of rows of sample chunk taken in flight.
+        long totalRows = rows;
+        if (targetSize > 0) {
+            Chunk sampleChunk = new Chunk(CHUNK_ROWS * 400);
+            initSchedule(Integer.MAX_VALUE);
+            generateRows(sampleChunk, rate * 60L, rate * 60L + CHUNK_ROWS);
+            double bytesPerRow = sampleChunk.size / (double) CHUNK_ROWS;
+            totalRows = Math.max(1, Math.round(targetSize / bytesPerRow));
+        }
+
+        initSchedule(totalRows);
+
+        // Every row has the same layout, so the first one is enough to check it against columns of imported file.
+        Chunk firstRow = new Chunk(1024);
+        generateRows(firstRow, 0, 1);
+        if (firstRow.countFields() != AbstractRunnable.getInputColumns().length) {
+            throw new IllegalStateException("Layout of generated log doesn't match columns of imported file");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (OutputStream outputStream = new FileOutputStream(pathToOutputFile)) {
+
+            // The header ends with '\n' as rows do, whatever the platform is.
+            outputStream.write((String.join(CSV_DELIMITER, AbstractRunnable.getInputColumns()) + '\n')
+                    .getBytes(StandardCharsets.US_ASCII));
+
+            // Chunks are generated in parallel and written in order; number of chunks in flight is limited
+            // to keep memory bounded.
+            Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+            long nextRow = 0;
+            long bytesWritten = 0;
+            while (nextRow < totalRows || !inFlight.isEmpty()) {
+
+                while (nextRow < totalRows && inFlight.size() < threads * 2) {
+                    long from = nextRow;
+                    long to = Math.min(totalRows, from + CHUNK_ROWS);
+                    inFlight.add(executor.submit(() -> {
+                        Chunk chunk = new Chunk((int) (to - from) * 400);
+                        generateRows(chunk, from, to);
+                        return chunk;
+                    }));
+                    nextRow = to;
+                }
+
+                Chunk chunk = inFlight.poll().get();
+                outputStream.write(chunk.bytes, 0, chunk.size);
+                bytesWritten += chunk.size;
+            }
+
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            System.out.println("Rows written: " + totalRows + ", bytes: " + bytesWritten
+                    + ", seconds: " + String.format(Locale.ROOT, "%.2f", seconds));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Defines events of the whole flight: arming, getting GPS fix, flight mode switches and failsafe events.
+     *
+     * @param totalRows number of rows of the log.
+     */
+    private void initSchedule(long totalRows) {
+
+        SplittableRandom random = new SplittableRandom(seed);
+        long flightTime = totalRows * 1000000L / rate;
+
+        phases = new double[16];
+        for (int i = 0; i < phases.length; ++i) {
+            phases[i] = random.nextDouble() * 2 * Math.PI;
+        }
+
+        gpsFixTime = 5000000L + random.nextLong(10000000L);
+        disarmTime = flightTime - 3000000L;
+
+        // The craft stays disarmed for a few seconds, then modes switch every 5..60 seconds.
+        List<Long> times = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        times.add(0L);
+        values.add("0");
+        long time = 3000000L + random.nextLong(5000000L);
+        while (time < disarmTime && times.size() < 100000) {
+            times.add(time);
+            values.add(FLIGHT_MODES[random.nextInt(FLIGHT_MODES.length)]);
+            time += 5000000L + random.nextLong(55000000L);
+        }
+        times.add(Math.max(time, disarmTime));
+        values.add("0");
+
+        modeSwitchTimes = new long[times.size()];
+        modeSwitchValues = values.toArray(new String[0]);
+        for (int i = 0; i < modeSwitchTimes.length; ++i) {
+            modeSwitchTimes[i] = times.get(i);
+        }
+
+        // Failsafe episodes happen while armed: at least one if the flight is long enough to hold it, otherwise
+        // about one per 10 minutes. Every episode starts at random time of its share of the flight.
+        long armTime = modeSwitchTimes[1];
+        long failsafeSpan = disarmTime - armTime - FAILSAFE_EPISODE_US;
+        int failsafeCount = failsafeSpan < FAILSAFE_EPISODE_US ? 0
+                : (int) Math.min(10000, Math.max(1, failsafeSpan / FAILSAFE_PERIOD_US));
+        failsafeTimes = new long[failsafeCount];
+        for (int i = 0; i < failsafeCount; ++i) {
+            long share = failsafeSpan / failsafeCount;
+            failsafeTimes[i] = armTime + i * share + random.nextLong(share - FAILSAFE_EPISODE_US / 2);
+        }
+    }
+
+    private void generateRows(Chunk chunk, long from, long to) {
+
+        long periodUs = 1000000L / rate;
+
+        for (long i = from; i < to; ++i) {
+
+            // Loop jitter doesn't exceed a quarter of period, so time stays monotonic.
+            long time = i * periodUs + Math.round(noise(i, 0) * periodUs / 4) + periodUs / 4;
+            double t = time / 1e6;
+
+            boolean armed = time >= modeSwitchTimes[1] && time < disarmTime;
+            double altitude = armed ? getAltitude(t) : 0;
+            double climb = armed ? (getAltitude(t + 0.1) - altitude) * 10 : 0;
+
+            int throttle = armed ? (int) clamp(1350 + climb * 60 + noise(i, 1) * 40, 1000, 2000) : 1000;
+            double current = armed ? getCurrent(t) + Math.max(0, climb) * 4 + noise(i, 2) : 0.5 + noise(i, 2) * 0.1;
+
+            chunk.appendLong(i).comma().appendLong(time);
+
+            // axisP, axisI, axisD, axisF.
+            for (int c = 0; c < 11; ++c) {
+                chunk.comma().appendLong(armed ? Math.round(noise(i, 3 + c) * (c < 8 ? 60 : 20)) : 0);
+            }
+
+            // rcCommand and setpoint of roll, pitch and yaw are smooth stick movements.
+            double roll = armed ? Math.sin(t * 0.7 + phases[0]) * 200 : 0;
+            double pitch = armed ? Math.sin(t * 0.5 + phases[1]) * 200 : 0;
+            double yaw = armed ? Math.sin(t * 0.3 + phases[2]) * 100 : 0;
+            chunk.comma().appendLong(Math.round(roll)).comma().appendLong(Math.round(pitch))
+                    .comma().appendLong(Math.round(yaw));
+            chunk.comma().appendLong(throttle);
+            chunk.comma().appendLong(Math.round(roll * 2)).comma().appendLong(Math.round(pitch * 2))
+                    .comma().appendLong(Math.round(yaw * 2));
+            chunk.comma().appendLong(throttle - 1000);
+
+            // Voltage sags with current and drops while the battery drains.
+            double vbat = 25.2 - t / 3600 * 3 - current * 0.02 + noise(i, 14) * 0.01;
+            chunk.comma().appendFixed(vbat, 3);
+            chunk.comma().appendFixed(current, 3);
+
+            // Barometer altitude drifts slowly apart from actual altitude.
+            double baroDrift = Math.sin(t / 300 + phases[3]) * 150 + Math.sin(t / 47 + phases[4]) * 40;
+            chunk.comma().appendLong(Math.round(altitude * 100 + baroDrift + noise(i, 15) * 20));
+
+            chunk.comma().appendLong(700 + Math.round(noise(i, 16) * 20));
+
+            // gyroADC, accSmooth (Z axis carries gravity) and debug columns.
+            for (int c = 0; c < 3; ++c) {
+                chunk.comma().appendLong(Math.round(noise(i, 17 + c) * (armed ? 80 : 2)));
+            }
+            for (int c = 0; c < 3; ++c) {
+                chunk.comma().appendLong((c == 2 ? 2048 : 0) + Math.round(noise(i, 20 + c) * (armed ? 200 : 30)));
+            }
+            for (int c = 0; c < 4; ++c) {
+                chunk.comma().appendLong(Math.round(noise(i, 23 + c) * 100));
+            }
+
+            // Motors follow throttle and saturate on hard climbs.
+            for (int c = 0; c < 4; ++c) {
+                long motor = armed ? Math.round(clamp(throttle + noise(i, 27 + c) * 80, 1000, 2000)) : 1000;
+                chunk.comma().appendLong(motor);
+            }
+
+            chunk.comma().appendLong(Math.round(getEnergy(t)));
+
+            chunk.comma().appendAscii(getFlightMode(time));
+            chunk.comma().appendAscii(time >= gpsFixTime ? "GPS_FIX_HOME|GPS_FIX" : "0");
+            chunk.comma().appendAscii(getFailsafePhase(time));
+
+            chunk.comma().appendLong(1).comma().appendLong(1);
+
+            appendGps(chunk, time);
+
+            chunk.newLine();
+        }
+    }
+
+    // GPS columns are updated with GPS rate, so they repeat between updates as in real logs.
+    private void appendGps(Chunk chunk, long time) {
+
+        long gpsTime = time - time % GPS_PERIOD_US;
+        double t = gpsTime / 1e6;
+        long gpsStep = gpsTime / GPS_PERIOD_US;
+
+        if (time < gpsFixTime) {
+            long numSat = Math.min(5, gpsTime * 6 / Math.max(1, gpsFixTime));
+            chunk.comma().appendLong(numSat);
+            chunk.comma().appendAscii("0.0000000,0.0000000,0,0.00,0.0");
+            return;
+        }
+
+        chunk.comma().appendLong(Math.round(16 + noise(gpsStep / 50, 40) * 5));
+
+        // Track is a Lissajous figure around home point with periods of a few minutes.
+        double flying = time >= modeSwitchTimes[1] && time < disarmTime ? 1 : 0;
+        double east = Math.sin(t / 40 + phases[5]) * 400 - Math.sin(phases[5]) * 400;
+        double north = Math.sin(t / 65 + phases[6]) * 300 - Math.sin(phases[6]) * 300;
+        double vEast = Math.cos(t / 40 + phases[5]) * 400 / 40 * flying;
+        double vNorth = Math.cos(t / 65 + phases[6]) * 300 / 65 * flying;
+
+        double lat = HOME_LAT + north * flying / METERS_PER_DEGREE;
+        double lon = HOME_LON + east * flying / (METERS_PER_DEGREE * Math.cos(Math.toRadians(HOME_LAT)));
+
+        double speed = Math.sqrt(vEast * vEast + vNorth * vNorth);
+        double course = (Math.toDegrees(Math.atan2(vEast, vNorth)) + 360) % 360;
+
+        chunk.comma().appendFixed(lat, 7);
+        chunk.comma().appendFixed(lon, 7);
+        chunk.comma().appendLong(Math.round((150 + getAltitude(t) * flying) * 10));
+        chunk.comma().appendFixed(speed, 2);
+        chunk.comma().appendFixed(course, 1);
+    }
+
+    // Altitude in meters: climb after arming, then waves around cruise altitude.
+    private double getAltitude(double t) {
+        double fromArm = t - modeSwitchTimes[1] / 1e6;
+        double toDisarm = disarmTime / 1e6 - t;
+        double envelope = clamp(Math.min(fromArm, toDisarm) / 20, 0, 1);
+        return envelope * (60 + Math.sin(t / 30 + phases[7]) * 30 + Math.sin(t / 7 + phases[8]) * 5);
+    }
+
+    // Mean current in amperes.
+    private double getCurrent(double t) {
+        return 18 + Math.sin(t / 20 + phases[9]) * 6;
+    }
+
+    // Consumed energy in mAh as integral of mean current.
+    private double getEnergy(double t) {
+        double armTime = modeSwitchTimes[1] / 1e6;
+        double to = Math.min(t, disarmTime / 1e6);
+        if (to <= armTime) {
+            return 0;
+        }
+        double integral = 18 * (to - armTime)
+                - 6 * 20 * (Math.cos(to / 20 + phases[9]) - Math.cos(armTime / 20 + phases[9]));
+        return integral * 1000 / 3600;
+    }
+
+    private String getFlightMode(long time) {
+        int idx = Arrays.binarySearch(modeSwitchTimes, time);
+        return modeSwitchValues[idx >= 0 ? idx : -idx - 2];
+    }
+
+    private String getFailsafePhase(long time) {
+
+        int idx = Arrays.binarySearch(failsafeTimes, time);
+        idx = idx >= 0 ? idx : -idx - 2;
+        if (idx < 0) {
+            return "IDLE";
+        }
+
+        // Loss detected for a second, then rescue up to 8 seconds, then recovery for a second.
+        long sinceFailsafe = time - failsafeTimes[idx];
+        long rescue = 2000000L + Math.round((noise(idx, 50) + 1) * 3000000L);
+        if (sinceFailsafe < 1000000L) {
+            return FAILSAFE_PHASES[0];
+        } else if (sinceFailsafe < 1000000L + rescue) {
+            return FAILSAFE_PHASES[1];
+        } else if (sinceFailsafe < 2000000L + rescue) {
+            return FAILSAFE_PHASES[2];
+        }
+
+        return "IDLE";
+    }
+
+    // Deterministic noise in range [-1, 1) for row and channel.
+    private double noise(long row, int channel) {
+        long z = seed + row * 0x9E3779B97F4A7C15L + channel * 0xC2B2AE3D27D4EB4FL;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-52 - 1;
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Growable buffer of ASCII bytes with formatting of numbers not creating strings.
+     */
+    private static class Chunk {
+
+        private byte[] bytes;
+        private int size;
+
+        Chunk(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        private void ensureCapacity(int additional) {
+            if (size + additional > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+            }
+        }
+
+        Chunk comma() {
+            ensureCapacity(1);
+            bytes[size++] = ',';
+            return this;
+        }
+
+        int countFields() {
+            int fields = 1;
+            for (int i = 0; i < size; ++i) {
+                if (bytes[i] == ',') {
+                    ++fields;
+                }
+            }
+            return fields;
+        }
+
+        void newLine() {
+            ensureCapacity(1);
+            bytes[size++] = '\n';
+        }
+
+        Chunk appendAscii(String value) {
+            ensureCapacity(value.length());
+            for (int i = 0; i < value.length(); ++i) {
+                bytes[size++] = (byte) value.charAt(i);
+            }
+            return this;
+        }
+
+        Chunk appendLong(long value) {
+
+            ensureCapacity(20);
+
+            if (value < 0) {
+                bytes[size++] = '-';
+                value = -value;
+            }
+
+            int begin = size;
+            do {
+                bytes[size++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+
+            // Digits are written from the lowest one, so they should be reversed.
+            for (int i = begin, j = size - 1; i < j; ++i, --j) {
+                byte tmp = bytes[i];
+                bytes[i] = bytes[j];
+                bytes[j] = tmp;
+            }
+
+            return this;
+        }
+
+        Chunk appendFixed(double value, int decimals) {
+
+            long scale = 1;
+            for (int i = 0; i < decimals; ++i) {
+                scale *= 10;
+            }
+
+            long scaled = Math.round(Math.abs(value) * scale);
+            if (value < 0 && scaled != 0) {
+                ensureCapacity(1);
+                bytes[size++] = '-';
+            }
+
+            appendLong(scaled / scale);
+            ensureCapacity(decimals + 1);
+            bytes[size++] = '.';
+            long fraction = scaled % scale;
+            for (long divider = scale / 10; divider > 0; divider /= 10) {
+                bytes[size++] = (byte) ('0' + fraction / divider % 10);
+            }
+
+            return this;
+        }
+    }
+
+    /**
+     * Parses size like "500m" or "2g" into number of bytes.
+     */
+    private static long parseSize(String size) {
+
+        String value = size.trim().toLowerCase(Locale.ROOT);
+        long multiplier = 1;
+        if (value.endsWith("k")) {
+            multiplier = 1L << 10;
+        } else if (value.endsWith("m")) {
+            multiplier = 1L << 20;
+        } else if (value.endsWith("g")) {
+            multiplier = 1L << 30;
+        }
+
+        if (multiplier > 1) {
+            value = value.substring(0, value.length() - 1);
+        }
+
+        return Long.parseLong(value) * multiplier;
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        String cliOut = Run.parseParameter(args, CLI_PARAM_OUT, CLI_PARAM_NAME_DELIMITER);
+        String cliRows = Run.parseParameter(args, CLI_PARAM_ROWS, CLI_PARAM_NAME_DELIMITER);
+        String cliSize = Run.parseParameter(args, CLI_PARAM_SIZE, CLI_PARAM_NAME_DELIMITER);
+        String cliSeed = Run.parseParameter(args, CLI_PARAM_SEED, CLI_PARAM_NAME_DELIMITER);
+        String cliRate = Run.parseParameter(args, CLI_PARAM_RATE, CLI_PARAM_NAME_DELIMITER);
+        String cliThreads = Run.parseParameter(args, CLI_PARAM_THREADS, CLI_PARAM_NAME_DELIMITER);
+
+        if (cliOut.isEmpty()) {
+            throw new CliParametersException("Not output file specified");
+        }
+
+        long rows = cliRows.isEmpty() ? DEFAULT_GENERATOR_ROWS : Long.parseLong(cliRows);
+        long size = cliSize.isEmpty() ? 0 : parseSize(cliSize);
+        long seed = cliSeed.isEmpty() ? DEFAULT_GENERATOR_SEED : Long.parseLong(cliSeed);
+        int rate = cliRate.isEmpty() ? DEFAULT_GENERATOR_RATE : Integer.parseInt(cliRate);
+        int threads = cliThreads.isEmpty() ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(cliThreads);
+
+        LogGenerator logGenerator = new LogGenerator(Run.getPathToFile(cliOut), rows, size, seed, rate, threads);
+        logGenerator.run();
+
+        if (logGenerator.getFailure() != null) {
+            throw logGenerator.getFailure();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.csvoptimizer;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.util.*;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Random access into converted file by time or by event using its sidecar index written by {@link LogIndexWriter}.
+ * <p>
+ * Offsets are found with binary search, then the file is read from the found row only.
+ */
+public class LogIndex {
+
+    private final String pathToFile;
+
+    // Indexed rows ordered by time.
+    private final long[] times;
+    private final long[] offsets;
+
+    // Changes of every indexed column ordered by time.
+    private final Map<String, List<Event>> events = new LinkedHashMap<>();
+
+    /**
+     * Change of value of indexed column.
+     */
+    public static class Event {
+
+        private final String column;
+        private final String value;
+        private final long timeUs;
+        private final long offset;
+
+        Event(String column, String value, long timeUs, long offset) {
+            this.column = column;
+            this.value = value;
+            this.timeUs = timeUs;
+            this.offset = offset;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public long getTimeUs() {
+            return timeUs;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        @Override
+        public String toString() {
+            return column + "=" + value + " at " + timeUs + "us";
+        }
+    }
+
+    private LogIndex(String pathToFile, long[] times, long[] offsets) {
+        this.pathToFile = pathToFile;
+        this.times = times;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Loads index of converted file.
+     *
+     * @param pathToFile converted file having index next to it.
+     */
+    public static LogIndex open(String pathToFile) throws IOException {
+
+        long[] times = new long[1024];
+        long[] offsets = new long[1024];
+        int size = 0;
+        Map<String, List<Event>> events = new LinkedHashMap<>();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(getPathToIndexFile(pathToFile)))) {
+            String row;
+            while ((row = reader.readLine()) != null) {
+
+                String[] values = row.split(CSV_DELIMITER, 5);
+                long time = Long.parseLong(values[1]);
+                long offset = Long.parseLong(values[2]);
+
+                if (INDEX_TIME_ENTRY.equals(values[0])) {
+                    if (size == times.length) {
+                        times = Arrays.copyOf(times, size * 2);
+                        offsets = Arrays.copyOf(offsets, size * 2);
+                    }
+                    times[size] = time;
+                    offsets[size] = offset;
+                    ++size;
+                } else if (INDEX_EVENT_ENTRY.equals(values[0])) {
+                    events.computeIfAbsent(values[3], column -> new ArrayList<>())
+                            .add(new Event(values[3], values[4], time, offset));
+                }
+            }
+        }
+
+        LogIndex index = new LogIndex(pathToFile, Arrays.copyOf(times, size), Arrays.copyOf(offsets, size));
+        index.events.putAll(events);
+        return index;
+    }
+
+    /**
+     * Returns path to index of converted file.
+     */
+    public static String getPathToIndexFile(String pathToFile) {
+        return pathToFile + INDEX_FILE_EXTENSION;
+    }
+
+    /**
+     * Returns offset of the last indexed row having time not greater than specified one.
+     */
+    public long findOffset(long timeUs) {
+
+        if (times.length == 0) {
+            return 0;
+        }
+
+        int idx = Arrays.binarySearch(times, timeUs);
+        idx = idx >= 0 ? idx : -idx - 2;
+
+        return offsets[Math.max(idx, 0)];
+    }
+
+    /**
+     * Returns all changes of the indexed column.
+     */
+    public List<Event> getEvents(String column) {
+        return Collections.unmodifiableList(events.getOrDefault(column, Collections.emptyList()));
+    }
+
+    /**
+     * Returns the first change of the column at specified time or later, or null if there is no such one.
+     */
+    public Event findEvent(String column, long fromTimeUs) {
+
+        List<Event> columnEvents = events.getOrDefault(column, Collections.emptyList());
+
+        int low = 0;
+        int high = columnEvents.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (columnEvents.get(mid).getTimeUs() < fromTimeUs) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low < columnEvents.size() ? columnEvents.get(low) : null;
+    }
+
+    /**
+     * Opens converted file positioned at the specified offset.
+     */
+    public BufferedReader openAt(long offset) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(pathToFile, "r");
+        file.seek(offset);
+        return new BufferedReader(new InputStreamReader(Channels.newInputStream(file.getChannel())));
+    }
+
+    /**
+     * Opens converted file positioned at the event.
+     */
+    public BufferedReader openAt(Event event) throws IOException {
+        return openAt(event.getOffset());
+    }
+
+    /**
+     * Opens converted file positioned at the first row having time not less than specified one.
+     */
+    public BufferedReader seek(long timeUs) throws IOException {
+
+        int timeColumnIdx;
+        try (BufferedReader headerReader = openAt(0)) {
+            timeColumnIdx = Arrays.asList(headerReader.readLine().split(CSV_DELIMITER, -1)).indexOf(TIME_COLUMN_NAME);
+        }
+
+        // Rows between indexed ones are scanned to the required one that stays unread.
+        BufferedReader reader = openAt(findOffset(timeUs));
+        while (true) {
+            reader.mark(1 << 16);
+            String row = reader.readLine();
+            if (row == null) {
+                return reader;
+            }
+
+            String[] values = row.split(CSV_DELIMITER, timeColumnIdx + 2);
+            if (values.length > timeColumnIdx && Long.parseLong(values[timeColumnIdx].trim()) >= timeUs) {
+                reader.reset();
+                return reader;
+            }
+        }
+    }
+}
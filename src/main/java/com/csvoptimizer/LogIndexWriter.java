@@ -0,0 +1,91 @@
+package com.csvoptimizer;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Writes sidecar index of converted file while it's written: offsets of rows every N milliseconds
+ * of "time (us)" and offsets of every change of indicator columns. The index is read with {@link LogIndex}.
+ */
+public class LogIndexWriter implements RowListener {
+
+    private final Writer writer;
+    private final long stepUs;
+
+    private int timeColumnIdx = -1;
+    private int[] eventColumnIdx;
+    private String[] prevEventValues;
+
+    private long nextIndexedTime = Long.MIN_VALUE;
+
+    /**
+     * @param pathToIndexFile file to write index to;
+     * @param stepMillis      interval of time between indexed rows.
+     */
+    public LogIndexWriter(String pathToIndexFile, int stepMillis) throws IOException {
+        this.writer = new BufferedWriter(new FileWriter(pathToIndexFile));
+        this.stepUs = Math.max(1, stepMillis) * 1000L;
+    }
+
+    @Override
+    public void onRow(String[] columns, List<String> rowValues, long outputOffset) throws IOException {
+
+        // Only rows written into output can be indexed.
+        if (outputOffset < 0) {
+            return;
+        }
+
+        if (timeColumnIdx < 0) {
+            timeColumnIdx = RowListener.getColumnIndex(columns, TIME_COLUMN_NAME);
+            eventColumnIdx = new int[INDEXED_EVENT_COLUMNS.length];
+            for (int i = 0; i < INDEXED_EVENT_COLUMNS.length; ++i) {
+                eventColumnIdx[i] = RowListener.getColumnIndex(columns, INDEXED_EVENT_COLUMNS[i]);
+            }
+            prevEventValues = new String[INDEXED_EVENT_COLUMNS.length];
+        }
+
+        long timeUs = NumberParser.parseLong(rowValues.get(timeColumnIdx), Long.MIN_VALUE);
+        if (timeUs == Long.MIN_VALUE) {
+            return;
+        }
+
+        if (timeUs >= nextIndexedTime) {
+            writeEntry(INDEX_TIME_ENTRY, String.valueOf(timeUs), outputOffset, null, null);
+            nextIndexedTime = timeUs - timeUs % stepUs + stepUs;
+        }
+
+        // Initial values are indexed as changes too.
+        for (int i = 0; i < eventColumnIdx.length; ++i) {
+            String value = rowValues.get(eventColumnIdx[i]).trim();
+            if (!value.equals(prevEventValues[i])) {
+                writeEntry(INDEX_EVENT_ENTRY, String.valueOf(timeUs), outputOffset, INDEXED_EVENT_COLUMNS[i], value);
+                prevEventValues[i] = value;
+            }
+        }
+    }
+
+    private void writeEntry(String type, String time, long offset, String column, String value) throws IOException {
+        writer.write(type);
+        writer.write(CSV_DELIMITER);
+        writer.write(time);
+        writer.write(CSV_DELIMITER);
+        writer.write(String.valueOf(offset));
+        if (column != null) {
+            writer.write(CSV_DELIMITER);
+            writer.write(column);
+            writer.write(CSV_DELIMITER);
+            writer.write(value);
+        }
+        writer.write('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,311 @@
+package com.csvoptimizer;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Merges several logs (segments of one flight or flights of several crafts) into one timeline.
+ * <p>
+ * Every input is read by its own thread into a short queue of row batches, and the rows are merged with a heap
+ * ordered by absolute time, i.e. start date of the input plus its "time (us)". Time of merged rows is rewritten
+ * relative to the earliest start date. Memory depends on number of inputs only, not on number of their rows.
+ * <p>
+ * Rows of each input are expected to be ordered by time. Columns calculated from the previous row
+ * (e.g. vertical speed) are calculated over merged rows.
+ */
+public class LogMerger implements RowSource, AutoCloseable {
+
+    private static final int BATCH_ROWS = 1024;
+    private static final int QUEUE_BATCHES = 4;
+
+    // Empty batch marks the end of input.
+    private static final Batch END_OF_INPUT = new Batch(0);
+
+    private final List<Input> inputs = new ArrayList<>();
+    private final PriorityQueue<Input> heap = new PriorityQueue<>((a, b) -> Long.compare(a.currentTime, b.currentTime));
+    private final Calendar startDate;
+
+    private String header;
+    // Failure of any reading thread, reported when its input ends.
+    private volatile IOException readError;
+
+    /**
+     * @param pathsToInputFiles logs to merge;
+     * @param startDates        start date of every log.
+     */
+    public LogMerger(List<String> pathsToInputFiles, List<Calendar> startDates) throws IOException {
+
+        if (pathsToInputFiles.isEmpty() || pathsToInputFiles.size() != startDates.size()) {
+            throw new IllegalArgumentException("Every merged file must have start date");
+        }
+
+        Calendar earliest = startDates.get(0);
+        for (Calendar date : startDates) {
+            if (date.before(earliest)) {
+                earliest = date;
+            }
+        }
+        this.startDate = (Calendar) earliest.clone();
+
+        int timeColumnIdx = getTimeColumnIndex();
+        try {
+            for (int i = 0; i < pathsToInputFiles.size(); ++i) {
+                long offsetUs = (startDates.get(i).getTimeInMillis() - earliest.getTimeInMillis()) * 1000;
+                Input input = new Input(pathsToInputFiles.get(i), offsetUs, timeColumnIdx);
+                inputs.add(input);
+                if (header == null) {
+                    header = input.header;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Files opened before the failed one are not read by threads yet, so they are closed here.
+            for (Input input : inputs) {
+                input.closeReader();
+            }
+            throw e;
+        }
+
+        for (Input input : inputs) {
+            input.thread.start();
+        }
+        for (Input input : inputs) {
+            if (input.advance()) {
+                heap.add(input);
+            }
+        }
+    }
+
+    /**
+     * Returns the earliest start date of merged logs that is start date of merged timeline.
+     */
+    public Calendar getStartDate() {
+        return (Calendar) startDate.clone();
+    }
+
+    /**
+     * Returns path to the first of merged files identifying the merge.
+     */
+    public String getPathToFirstFile() {
+        return inputs.get(0).path;
+    }
+
+    /**
+     * Returns number of lines of merged logs including the only header.
+     */
+    public long countLines() throws IOException {
+
+        long lines = 1;
+        for (Input input : inputs) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(input.path))) {
+                while (reader.readLine() != null) {
+                    ++lines;
+                }
+            }
+            // Header of each file is not a row.
+            --lines;
+        }
+
+        return lines;
+    }
+
+    @Override
+    public String readRow() throws IOException {
+
+        if (header != null) {
+            String result = header;
+            header = null;
+            return result;
+        }
+
+        Input input = heap.poll();
+        if (input == null) {
+            if (readError != null) {
+                throw readError;
+            }
+            return null;
+        }
+
+        String row = input.getMergedRow();
+        if (input.advance()) {
+            heap.add(input);
+        }
+
+        return row;
+    }
+
+    @Override
+    public void close() {
+        for (Input input : inputs) {
+            input.thread.interrupt();
+        }
+    }
+
+    private static int getTimeColumnIndex() {
+        String[] columns = AbstractRunnable.getInputColumns();
+        for (int i = 0; i < columns.length; ++i) {
+            if (columns[i].equals(TIME_COLUMN_NAME)) {
+                return i;
+            }
+        }
+        throw new IndexOutOfBoundsException(INDEX_OUT_OF_BOUND_MESSAGE);
+    }
+
+    // Rows read ahead together with their absolute time.
+    private static class Batch {
+
+        final String[] rows;
+        final long[] times;
+        int size;
+
+        Batch(int capacity) {
+            rows = new String[capacity];
+            times = new long[capacity];
+        }
+    }
+
+    private class Input {
+
+        final String path;
+        final long offsetUs;
+        final int timeColumnIdx;
+        final String header;
+        final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_BATCHES);
+        final BufferedReader reader;
+        final Thread thread;
+
+        Batch currentBatch;
+        int currentIdx;
+        long currentTime;
+
+        Input(String path, long offsetUs, int timeColumnIdx) throws IOException {
+
+            this.path = path;
+            this.offsetUs = offsetUs;
+            this.timeColumnIdx = timeColumnIdx;
+
+            this.reader = new BufferedReader(new FileReader(path), 1 << 20);
+            try {
+                this.header = reader.readLine();
+            } catch (IOException e) {
+                closeReader();
+                throw e;
+            }
+
+            thread = new Thread(this::readAhead, "merge-" + new java.io.File(path).getName());
+            thread.setDaemon(true);
+        }
+
+        void closeReader() {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                // Nothing is read from it anymore.
+            }
+        }
+
+        // Any failure (not only of reading, e.g. of memory) ends the input, so merging never waits for it forever.
+        private void readAhead() {
+            try (BufferedReader autoClosed = reader) {
+                Batch batch = new Batch(BATCH_ROWS);
+                String row;
+                while ((row = autoClosed.readLine()) != null) {
+                    batch.rows[batch.size] = row;
+                    batch.times[batch.size] = offsetUs + parseTime(row);
+                    if (++batch.size == BATCH_ROWS) {
+                        queue.put(batch);
+                        batch = new Batch(BATCH_ROWS);
+                    }
+                }
+                if (batch.size > 0) {
+                    queue.put(batch);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                readError = e;
+            } catch (Throwable e) {
+                readError = new IOException("Reading of " + path + " failed", e);
+            }
+
+            try {
+                queue.put(END_OF_INPUT);
+            } catch (InterruptedException e) {
+                // Merging is closed.
+            }
+        }
+
+        // Moves to the next row, returns false at the end of input.
+        boolean advance() throws IOException {
+
+            if (currentBatch != null && ++currentIdx < currentBatch.size) {
+                currentTime = currentBatch.times[currentIdx];
+                return true;
+            }
+
+            try {
+                currentBatch = queue.take();
+            } catch (InterruptedException e) {
+                throw new IOException("Merging interrupted", e);
+            }
+
+            if (currentBatch == END_OF_INPUT) {
+                // Merged rows would miss rows of the failed input, so merging stops.
+                if (readError != null) {
+                    throw readError;
+                }
+                return false;
+            }
+
+            currentIdx = 0;
+            currentTime = currentBatch.times[0];
+            return true;
+        }
+
+        // Returns current row with time relative to the start of merged timeline.
+        String getMergedRow() {
+
+            String row = currentBatch.rows[currentIdx];
+            currentBatch.rows[currentIdx] = null;
+            if (offsetUs == 0) {
+                return row;
+            }
+
+            int begin = getFieldBegin(row);
+            int end = row.indexOf(CSV_DELIMITER, begin);
+            if (end < 0) {
+                end = row.length();
+            }
+
+            return row.substring(0, begin) + currentTime + row.substring(end);
+        }
+
+        private long parseTime(String row) {
+
+            int begin = getFieldBegin(row);
+            int end = row.indexOf(CSV_DELIMITER, begin);
+            if (end < 0) {
+                end = row.length();
+            }
+
+            return NumberParser.parseLong(row, begin, end, 0);
+        }
+
+        private int getFieldBegin(String row) {
+            int begin = 0;
+            for (int i = 0; i < timeColumnIdx && begin >= 0; ++i) {
+                begin = row.indexOf(CSV_DELIMITER, begin);
+                begin = begin < 0 ? row.length() : begin + 1;
+            }
+            return begin;
+        }
+    }
+}
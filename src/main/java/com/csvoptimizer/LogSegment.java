@@ -0,0 +1,83 @@
+package com.csvoptimizer;
+
+import java.util.Locale;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Session of log found by pre-scan: range of rows in input file between resets of time.
+ */
+public class LogSegment {
+
+    private final int index;
+    private final long startOffset;
+    private final long endOffset;
+    private final long rows;
+    private final long firstTimeUs;
+    private final long lastTimeUs;
+
+    /**
+     * @param index       number of segment starting from 1;
+     * @param startOffset offset of the first row in input file;
+     * @param endOffset   offset following the last row;
+     * @param rows        number of rows;
+     * @param firstTimeUs time of the first row;
+     * @param lastTimeUs  time of the last row.
+     */
+    public LogSegment(int index, long startOffset, long endOffset, long rows, long firstTimeUs, long lastTimeUs) {
+        this.index = index;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.rows = rows;
+        this.firstTimeUs = firstTimeUs;
+        this.lastTimeUs = lastTimeUs;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public long getStartOffset() {
+        return startOffset;
+    }
+
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getFirstTimeUs() {
+        return firstTimeUs;
+    }
+
+    public long getLastTimeUs() {
+        return lastTimeUs;
+    }
+
+    /**
+     * Returns entry of manifest describing the segment converted into the file.
+     */
+    public String toJson(String pathToOutputFile, String startDate) {
+        return String.format(Locale.ROOT, "{\"index\":%d,\"file\":\"%s\",\"startDate\":\"%s\",\"startOffset\":%d,"
+                        + "\"endOffset\":%d,\"rows\":%d,\"firstTimeUs\":%d,\"lastTimeUs\":%d}",
+                index, pathToOutputFile.replace("\\", "\\\\").replace("\"", "\\\""), startDate, startOffset,
+                endOffset, rows, firstTimeUs, lastTimeUs);
+    }
+
+    /**
+     * Returns path to converted segment of output file.
+     */
+    public static String getPathToSegmentFile(String pathToOutputFile, int index) {
+        return pathToOutputFile + SEGMENT_FILE_EXTENSION_PREFIX + index + SEGMENT_FILE_EXTENSION;
+    }
+
+    /**
+     * Returns path to manifest of segments of output file.
+     */
+    public static String getPathToManifestFile(String pathToOutputFile) {
+        return pathToOutputFile + SEGMENTS_MANIFEST_EXTENSION;
+    }
+}
@@ -0,0 +1,310 @@
+package com.csvoptimizer;
+
+import java.math.BigInteger;
+
+/**
+ * Parses numbers directly from ranges of strings or ASCII bytes without trimming and creating strings.
+ * <p>
+ * Spaces around numbers are skipped, both '.' and ',' are accepted as decimal separator. Decimals which significant
+ * digits fit into long (up to 19 digits) are converted exactly (correctly rounded): by one multiplication or division
+ * by exact power of ten if possible (Clinger's fast path) or by Eisel-Lemire algorithm; rare other inputs fall back
+ * to {@link Double#parseDouble}. See TestNumberParser for the differential test.
+ */
+public final class NumberParser {
+
+    private static final int MAX_DIGITS = 19;
+
+    // Powers of ten represented exactly as doubles.
+    private static final double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    // This class not supposed to be instantiated.
+    private NumberParser() {
+    }
+
+    /**
+     * Returns integer value of the whole string or {@code invalid} if it is not an integer.
+     */
+    public static long parseLong(String value, long invalid) {
+        return value == null ? invalid : parseLong(value, 0, value.length(), invalid);
+    }
+
+    public static long parseLong(CharSequence source, int from, int to, long invalid) {
+        return parseLongAt(source, from, to, invalid);
+    }
+
+    public static long parseLong(byte[] source, int from, int to, long invalid) {
+        return parseLongAt(source, from, to, invalid);
+    }
+
+    /**
+     * Returns decimal value of the whole string or NaN if it is not a number.
+     */
+    public static double parseDouble(String value) {
+        return value == null ? Double.NaN : parseDouble(value, 0, value.length());
+    }
+
+    public static double parseDouble(CharSequence source, int from, int to) {
+        return parseDoubleAt(source, from, to);
+    }
+
+    public static double parseDouble(byte[] source, int from, int to) {
+        return parseDoubleAt(source, from, to);
+    }
+
+    // Source is either CharSequence or byte[], the only type met at a call site is easily predicted by JIT.
+    private static int charAt(Object source, int i) {
+        return source instanceof byte[] ? ((byte[]) source)[i] & 0xFF : ((CharSequence) source).charAt(i);
+    }
+
+    private static long parseLongAt(Object source, int from, int to, long invalid) {
+
+        while (from < to && charAt(source, from) == ' ') {
+            ++from;
+        }
+        while (to > from && charAt(source, to - 1) == ' ') {
+            --to;
+        }
+
+        boolean negative = false;
+        if (from < to && (charAt(source, from) == '-' || charAt(source, from) == '+')) {
+            negative = charAt(source, from) == '-';
+            ++from;
+        }
+
+        if (from == to) {
+            return invalid;
+        }
+
+        long result = 0;
+        for (int i = from; i < to; ++i) {
+            int digit = charAt(source, i) - '0';
+            if (digit < 0 || digit > 9) {
+                return invalid;
+            }
+
+            // Overflow is detected on negative accumulator that holds Long.MIN_VALUE as well.
+            if (result < (Long.MIN_VALUE + digit) / 10) {
+                return invalid;
+            }
+            result = result * 10 - digit;
+        }
+
+        if (!negative && result == Long.MIN_VALUE) {
+            return invalid;
+        }
+
+        return negative ? result : -result;
+    }
+
+    private static double parseDoubleAt(Object source, int from, int to) {
+
+        while (from < to && charAt(source, from) == ' ') {
+            ++from;
+        }
+        while (to > from && charAt(source, to - 1) == ' ') {
+            --to;
+        }
+
+        int i = from;
+        boolean negative = false;
+        if (i < to && (charAt(source, i) == '-' || charAt(source, i) == '+')) {
+            negative = charAt(source, i) == '-';
+            ++i;
+        }
+
+        // Significant digits are accumulated into mantissa, the decimal exponent counts digits after separator.
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        boolean separator = false;
+        for (; i < to; ++i) {
+            int c = charAt(source, i);
+            if (c >= '0' && c <= '9') {
+                anyDigit = true;
+                if (mantissa == 0 && c == '0') {
+                    // Leading zeros are not significant.
+                } else if (digits < MAX_DIGITS && mantissa <= (Long.MAX_VALUE - (c - '0')) / 10) {
+                    // 19 digits don't always fit into long, such mantissas are left for the fallback.
+                    mantissa = mantissa * 10 + (c - '0');
+                    ++digits;
+                } else {
+                    return fallback(source, from, to);
+                }
+                if (separator) {
+                    --exponent;
+                }
+            } else if ((c == '.' || c == ',') && !separator) {
+                separator = true;
+            } else {
+                break;
+            }
+        }
+
+        if (!anyDigit) {
+            return Double.NaN;
+        }
+
+        if (i < to) {
+            int c = charAt(source, i);
+            if (c != 'e' && c != 'E') {
+                return Double.NaN;
+            }
+            long explicit = parseLongAt(source, i + 1, to, Long.MIN_VALUE);
+            if (explicit == Long.MIN_VALUE || Math.abs(explicit) > 10000) {
+                return fallback(source, from, to);
+            }
+            exponent += (int) explicit;
+        }
+
+        double result = toDouble(mantissa, exponent);
+        if (Double.isNaN(result)) {
+            return fallback(source, from, to);
+        }
+
+        return negative ? -result : result;
+    }
+
+    // Returns mantissa * 10^exponent correctly rounded or NaN if it is not calculated here.
+    private static double toDouble(long mantissa, int exponent) {
+
+        if (mantissa == 0) {
+            return 0;
+        }
+
+        // Clinger's fast path: both the mantissa and the power of ten are exact doubles.
+        if (mantissa >= 0 && mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+            return exponent < 0 ? mantissa / EXACT_POWERS_OF_TEN[-exponent] : mantissa * EXACT_POWERS_OF_TEN[exponent];
+        }
+
+        return EiselLemire.toDouble(mantissa, exponent);
+    }
+
+    private static double fallback(Object source, int from, int to) {
+
+        StringBuilder builder = new StringBuilder(to - from);
+        for (int i = from; i < to; ++i) {
+            int c = charAt(source, i);
+            builder.append(c == ',' ? '.' : (char) c);
+        }
+
+        try {
+            return Double.parseDouble(builder.toString());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Eisel-Lemire conversion of decimal into double using 128-bit approximations of powers of five.
+     * The table is built on first use, so it costs nothing for numbers taking the fast path.
+     */
+    private static final class EiselLemire {
+
+        private static final int SMALLEST_POWER = -342;
+        private static final int LARGEST_POWER = 308;
+        private static final int MANTISSA_BITS = 52;
+        private static final int MIN_EXPONENT = -1023;
+        private static final int INFINITE_POWER = 0x7FF;
+
+        // The most significant 128 bits of 5^q as high and low words for every q from the smallest power.
+        private static final long[] POWERS_OF_FIVE = buildPowersOfFive();
+
+        static double toDouble(long mantissa, int exponent) {
+
+            if (exponent < SMALLEST_POWER) {
+                return 0;
+            } else if (exponent > LARGEST_POWER) {
+                return Double.POSITIVE_INFINITY;
+            }
+
+            int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+            long w = mantissa << leadingZeros;
+
+            // Product of mantissa and the power of five with precision of 55 bits.
+            int index = 2 * (exponent - SMALLEST_POWER);
+            long productHigh = unsignedMultiplyHigh(w, POWERS_OF_FIVE[index]);
+            long productLow = w * POWERS_OF_FIVE[index];
+            if ((productHigh & 0x1FF) == 0x1FF) {
+                long secondHigh = unsignedMultiplyHigh(w, POWERS_OF_FIVE[index + 1]);
+                productLow += secondHigh;
+                if (Long.compareUnsigned(secondHigh, productLow) > 0) {
+                    ++productHigh;
+                }
+            }
+
+            int upperBit = (int) (productHigh >>> 63);
+            int shift = upperBit + 64 - MANTISSA_BITS - 3;
+            long result = productHigh >>> shift;
+            int power2 = (((152170 + 65536) * exponent) >> 16) + 63 + upperBit - leadingZeros - MIN_EXPONENT;
+
+            // Subnormal numbers are left for the fallback.
+            if (power2 <= 0) {
+                return Double.NaN;
+            }
+
+            // Halfway between two doubles is rounded to even.
+            if (Long.compareUnsigned(productLow, 1) <= 0 && exponent >= -4 && exponent <= 23 && (result & 3) == 1
+                    && (result << shift) == productHigh) {
+                result &= ~1L;
+            }
+
+            result += result & 1;
+            result >>>= 1;
+            if (result >= (2L << MANTISSA_BITS)) {
+                result = 1L << MANTISSA_BITS;
+                ++power2;
+            }
+            result &= ~(1L << MANTISSA_BITS);
+
+            if (power2 >= INFINITE_POWER) {
+                return Double.POSITIVE_INFINITY;
+            }
+
+            return Double.longBitsToDouble(result | (long) power2 << MANTISSA_BITS);
+        }
+
+        private static long unsignedMultiplyHigh(long a, long b) {
+            return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+        }
+
+        private static long[] buildPowersOfFive() {
+
+            long[] result = new long[2 * (LARGEST_POWER - SMALLEST_POWER + 1)];
+            BigInteger five = BigInteger.valueOf(5);
+            BigInteger twoTo128 = BigInteger.ONE.shiftLeft(128);
+
+            for (int q = SMALLEST_POWER; q <= LARGEST_POWER; ++q) {
+
+                BigInteger value;
+                if (q < 0) {
+                    // Reciprocal of 5^-q rounded up, scaled to 128 bits.
+                    BigInteger power = five.pow(-q);
+                    int z = power.bitLength();
+                    int b = q >= -27 ? z + 127 : 2 * z + 128;
+                    value = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+                } else {
+                    value = five.pow(q);
+                }
+
+                // The most significant bit moves to bit 127, lower bits are truncated.
+                int bitLength = value.bitLength();
+                value = bitLength > 128 ? value.shiftRight(bitLength - 128) : value.shiftLeft(128 - bitLength);
+                if (value.compareTo(twoTo128) >= 0) {
+                    value = value.shiftRight(1);
+                }
+
+                int index = 2 * (q - SMALLEST_POWER);
+                result[index] = value.shiftRight(64).longValue();
+                result[index + 1] = value.longValue();
+            }
+
+            return result;
+        }
+    }
+}
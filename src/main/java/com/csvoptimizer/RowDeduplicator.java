@@ -0,0 +1,199 @@
+package com.csvoptimizer;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.IntStream;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Collapses runs of rows repeating values of chosen columns: a row is accepted only if any of the columns changes
+ * or the heartbeat interval passes since the last accepted row.
+ * <p>
+ * Raw rows are compared before they are split: fields are located by scanning characters, their ranges are hashed
+ * and equal hashes are confirmed with {@link String#regionMatches}, so no strings are created for skipped rows.
+ */
+public class RowDeduplicator {
+
+    private static final char DELIMITER = CSV_DELIMITER.charAt(0);
+
+    private final int[] columnIdxs;
+    private final int timeColumnIdx;
+    private final long heartbeatUs;
+
+    // Index of the last field to locate and position of every located field in ranges.
+    private final int lastFieldIdx;
+    private final int[] rangeIdxs;
+
+    private int[] begins;
+    private int[] ends;
+    private int[] prevBegins;
+    private int[] prevEnds;
+    private String prevRow;
+    private int prevHash;
+    private long lastAcceptedUs;
+
+    private long rowsAccepted;
+    private long rowsSkipped;
+
+    /**
+     * @param columnNames input columns to watch for changes or empty to watch all columns but time;
+     * @param heartbeatMs maximal interval between accepted rows or 0 not to accept rows by time.
+     */
+    public RowDeduplicator(Collection<String> columnNames, long heartbeatMs) {
+
+        String[] columns = AbstractRunnable.getInputColumns();
+        this.timeColumnIdx = indexOf(columns, TIME_COLUMN_NAME);
+
+        if (columnNames.isEmpty()) {
+            // All columns but time and iteration counter are watched.
+            int loopIterationIdx = indexOf(columns, LOOP_ITERATION_COLUMN_NAME);
+            columnIdxs = IntStream.range(0, columns.length)
+                    .filter(i -> i != timeColumnIdx && i != loopIterationIdx).toArray();
+        } else {
+            columnIdxs = new int[columnNames.size()];
+            int i = 0;
+            for (String columnName : columnNames) {
+                columnIdxs[i++] = indexOf(columns, columnName);
+            }
+        }
+
+        this.heartbeatUs = heartbeatMs * 1000;
+
+        int last = timeColumnIdx;
+        for (int columnIdx : columnIdxs) {
+            last = Math.max(last, columnIdx);
+        }
+        lastFieldIdx = last;
+
+        rangeIdxs = new int[lastFieldIdx + 1];
+        Arrays.fill(rangeIdxs, -1);
+        int ranges = 0;
+        rangeIdxs[timeColumnIdx] = ranges++;
+        for (int columnIdx : columnIdxs) {
+            if (rangeIdxs[columnIdx] < 0) {
+                rangeIdxs[columnIdx] = ranges++;
+            }
+        }
+
+        begins = new int[ranges];
+        ends = new int[ranges];
+        prevBegins = new int[ranges];
+        prevEnds = new int[ranges];
+    }
+
+    /**
+     * Returns true if the row should be written.
+     */
+    public boolean accept(String row) {
+
+        locateFields(row);
+
+        int hash = 1;
+        for (int columnIdx : columnIdxs) {
+            hash = 31 * hash + hashRange(row, rangeIdxs[columnIdx]);
+        }
+
+        long timeUs = parseTime(row);
+
+        boolean changed = prevRow == null || hash != prevHash || !matchesPrevRow(row);
+        if (!changed && (heartbeatUs <= 0 || timeUs - lastAcceptedUs < heartbeatUs)) {
+            ++rowsSkipped;
+            return false;
+        }
+
+        // Located fields of accepted row are kept to compare next rows with.
+        int[] swap = prevBegins;
+        prevBegins = begins;
+        begins = swap;
+        swap = prevEnds;
+        prevEnds = ends;
+        ends = swap;
+
+        prevRow = row;
+        prevHash = hash;
+        lastAcceptedUs = timeUs;
+        ++rowsAccepted;
+        return true;
+    }
+
+    public long getRowsAccepted() {
+        return rowsAccepted;
+    }
+
+    public long getRowsSkipped() {
+        return rowsSkipped;
+    }
+
+    // Finds ranges of fields up to the last required one in one pass.
+    private void locateFields(String row) {
+
+        int begin = 0;
+        int length = row.length();
+        for (int fieldIdx = 0; fieldIdx <= lastFieldIdx; ++fieldIdx) {
+
+            int end = begin < length ? row.indexOf(DELIMITER, begin) : length;
+            if (end < 0) {
+                end = length;
+            }
+
+            int rangeIdx = rangeIdxs[fieldIdx];
+            if (rangeIdx >= 0) {
+                begins[rangeIdx] = Math.min(begin, length);
+                ends[rangeIdx] = end;
+            }
+
+            begin = end + 1;
+        }
+    }
+
+    private int hashRange(String row, int rangeIdx) {
+        int hash = 0;
+        for (int i = begins[rangeIdx]; i < ends[rangeIdx]; ++i) {
+            hash = 31 * hash + row.charAt(i);
+        }
+        return hash;
+    }
+
+    // Confirms equal hashes by comparing characters.
+    private boolean matchesPrevRow(String row) {
+
+        for (int columnIdx : columnIdxs) {
+
+            int rangeIdx = rangeIdxs[columnIdx];
+            int length = ends[rangeIdx] - begins[rangeIdx];
+            if (length != prevEnds[rangeIdx] - prevBegins[rangeIdx]
+                    || !row.regionMatches(begins[rangeIdx], prevRow, prevBegins[rangeIdx], length)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private long parseTime(String row) {
+
+        int rangeIdx = rangeIdxs[timeColumnIdx];
+        long result = 0;
+        boolean negative = false;
+        for (int i = begins[rangeIdx]; i < ends[rangeIdx]; ++i) {
+            char c = row.charAt(i);
+            if (c >= '0' && c <= '9') {
+                result = result * 10 + (c - '0');
+            } else if (c == '-') {
+                negative = true;
+            }
+        }
+
+        return negative ? -result : result;
+    }
+
+    private static int indexOf(String[] columns, String columnName) {
+        for (int i = 0; i < columns.length; ++i) {
+            if (columns[i].equals(columnName)) {
+                return i;
+            }
+        }
+        throw new IndexOutOfBoundsException(INDEX_OUT_OF_BOUND_MESSAGE + " " + columnName);
+    }
+}
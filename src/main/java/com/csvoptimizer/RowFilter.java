@@ -0,0 +1,248 @@
+package com.csvoptimizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Selects rows of input by time range and conditions on columns before rows are converted.
+ * <p>
+ * Conditions are written as {@code <column><operator><value>} with operators {@code >= <= != = > <} comparing numbers
+ * ({@code =} and {@code !=} compare text if the value is not a number) and {@code ~} checking the column has the flag,
+ * e.g. {@code GPS_numSat>=6}, {@code flightModeFlags (flags)!=0} or {@code stateFlags (flags)~GPS_FIX}.
+ * <p>
+ * Like {@link RowDeduplicator} it works with raw rows: fields are located by scanning characters and parsed
+ * in place, so no strings are created for rejected rows. Time of input is monotonic, so the first row after
+ * the range finishes reading.
+ */
+public class RowFilter {
+
+    private static final char DELIMITER = CSV_DELIMITER.charAt(0);
+
+    // Operators in order they are looked for, so ">=" isn't taken for ">".
+    private static final String[] OPERATORS = {">=", "<=", "!=", "=", ">", "<", "~"};
+
+    private final long fromUs;
+    private final long toUs;
+    private final int timeColumnIdx;
+    private final Condition[] conditions;
+
+    // Index of the last field to locate and position of every located field in ranges.
+    private final int lastFieldIdx;
+    private final int[] rangeIdxs;
+    private final int[] begins;
+    private final int[] ends;
+
+    private boolean finished;
+    private long rowsSkipped;
+
+    /**
+     * @param fromUs     the earliest time of row to accept or {@link Long#MIN_VALUE};
+     * @param toUs       the latest time of row to accept or {@link Long#MAX_VALUE};
+     * @param conditions conditions all of them accepted row meets.
+     * @throws IllegalArgumentException if a condition is wrong.
+     */
+    public RowFilter(long fromUs, long toUs, Collection<String> conditions) {
+
+        String[] columns = AbstractRunnable.getInputColumns();
+        this.fromUs = fromUs;
+        this.toUs = toUs;
+        this.timeColumnIdx = indexOf(columns, TIME_COLUMN_NAME);
+
+        List<Condition> parsed = new ArrayList<>();
+        for (String condition : conditions) {
+            if (!condition.trim().isEmpty()) {
+                parsed.add(parseCondition(columns, condition.trim()));
+            }
+        }
+        this.conditions = parsed.toArray(new Condition[0]);
+
+        int last = timeColumnIdx;
+        for (Condition condition : this.conditions) {
+            last = Math.max(last, condition.columnIdx);
+        }
+        lastFieldIdx = last;
+
+        rangeIdxs = new int[lastFieldIdx + 1];
+        Arrays.fill(rangeIdxs, -1);
+        int ranges = 0;
+        rangeIdxs[timeColumnIdx] = ranges++;
+        for (Condition condition : this.conditions) {
+            if (rangeIdxs[condition.columnIdx] < 0) {
+                rangeIdxs[condition.columnIdx] = ranges++;
+            }
+        }
+
+        begins = new int[ranges];
+        ends = new int[ranges];
+    }
+
+    /**
+     * Returns true if the row should be converted.
+     */
+    public boolean accept(String row) {
+
+        locateFields(row);
+
+        int timeRange = rangeIdxs[timeColumnIdx];
+        long timeUs = NumberParser.parseLong(row, begins[timeRange], ends[timeRange], Long.MIN_VALUE);
+        if (timeUs != Long.MIN_VALUE) {
+            if (timeUs > toUs) {
+                finished = true;
+                ++rowsSkipped;
+                return false;
+            } else if (timeUs < fromUs) {
+                ++rowsSkipped;
+                return false;
+            }
+        }
+
+        for (Condition condition : conditions) {
+            int rangeIdx = rangeIdxs[condition.columnIdx];
+            if (!condition.matches(row, begins[rangeIdx], ends[rangeIdx])) {
+                ++rowsSkipped;
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns true if a row after the time range is met, so no further rows are accepted.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public long getRowsSkipped() {
+        return rowsSkipped;
+    }
+
+    // Finds ranges of fields up to the last required one in one pass.
+    private void locateFields(String row) {
+
+        int begin = 0;
+        int length = row.length();
+        for (int fieldIdx = 0; fieldIdx <= lastFieldIdx; ++fieldIdx) {
+
+            int end = begin < length ? row.indexOf(DELIMITER, begin) : length;
+            if (end < 0) {
+                end = length;
+            }
+
+            int rangeIdx = rangeIdxs[fieldIdx];
+            if (rangeIdx >= 0) {
+                begins[rangeIdx] = Math.min(begin, length);
+                ends[rangeIdx] = end;
+            }
+
+            begin = end + 1;
+        }
+    }
+
+    private static Condition parseCondition(String[] columns, String condition) {
+
+        for (String operator : OPERATORS) {
+            int position = condition.indexOf(operator);
+            if (position > 0) {
+                String columnName = condition.substring(0, position).trim();
+                String value = condition.substring(position + operator.length()).trim();
+                return new Condition(indexOf(columns, columnName), operator, value);
+            }
+        }
+
+        throw new IllegalArgumentException("Wrong condition: " + condition);
+    }
+
+    private static int indexOf(String[] columns, String columnName) {
+        for (int i = 0; i < columns.length; ++i) {
+            if (columns[i].equals(columnName)) {
+                return i;
+            }
+        }
+        throw new IndexOutOfBoundsException(INDEX_OUT_OF_BOUND_MESSAGE + " " + columnName);
+    }
+
+    // Condition on one column, its value is parsed once.
+    private static class Condition {
+
+        final int columnIdx;
+        final String operator;
+        final String value;
+        final double number;
+
+        Condition(int columnIdx, String operator, String value) {
+
+            this.columnIdx = columnIdx;
+            this.operator = operator;
+            this.value = value;
+            this.number = NumberParser.parseDouble(value);
+
+            if (Double.isNaN(number) && !"=".equals(operator) && !"!=".equals(operator) && !"~".equals(operator)) {
+                throw new IllegalArgumentException("Number expected: " + value);
+            }
+        }
+
+        boolean matches(String row, int begin, int end) {
+
+            if ("~".equals(operator)) {
+                return hasFlag(row, begin, end);
+            }
+
+            // Values which are not numbers are compared as text.
+            if (Double.isNaN(number)) {
+                while (begin < end && row.charAt(begin) == ' ') {
+                    ++begin;
+                }
+                while (end > begin && row.charAt(end - 1) == ' ') {
+                    --end;
+                }
+                boolean equal = end - begin == value.length() && row.regionMatches(begin, value, 0, value.length());
+                return "=".equals(operator) == equal;
+            }
+
+            // Empty and invalid fields meet no condition on numbers.
+            double field = NumberParser.parseDouble(row, begin, end);
+            if (Double.isNaN(field)) {
+                return false;
+            }
+
+            switch (operator) {
+                case ">=":
+                    return field >= number;
+                case "<=":
+                    return field <= number;
+                case "!=":
+                    return field != number;
+                case "=":
+                    return field == number;
+                case ">":
+                    return field > number;
+                default:
+                    return field < number;
+            }
+        }
+
+        // Flags are delimited by '|' or spaces, e.g. "GPS_FIX_HOME|GPS_FIX" has GPS_FIX but not GPS_FIX_H.
+        private boolean hasFlag(String row, int begin, int end) {
+            int from = begin;
+            while ((from = row.indexOf(value, from)) >= 0 && from + value.length() <= end) {
+                int flagEnd = from + value.length();
+                if ((from == begin || isFlagDelimiter(row.charAt(from - 1)))
+                        && (flagEnd == end || isFlagDelimiter(row.charAt(flagEnd)))) {
+                    return true;
+                }
+                from = flagEnd;
+            }
+            return false;
+        }
+
+        private static boolean isFlagDelimiter(char c) {
+            return c == '|' || c == ' ';
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.csvoptimizer;
+
+import java.util.List;
+
+import static com.csvoptimizer.Constants.INDEX_OUT_OF_BOUND_MESSAGE;
+
+/**
+ * Receives every converted row in the same pass the converter writes it, so additional outputs
+ * don't need another read of the (usually huge) result file.
+ */
+public interface RowListener {
+
+    /**
+     * @param columns      columns of output;
+     * @param rowValues    converted values of the row;
+     * @param outputOffset offset of the row in output file in bytes (rows are ASCII) or -1 if output isn't written.
+     */
+    void onRow(String[] columns, List<String> rowValues, long outputOffset) throws Exception;
+
+    void close() throws Exception;
+
+    /**
+     * Returns index of the column in columns of output.
+     */
+    static int getColumnIndex(String[] columns, String columnName) {
+
+        for (int i = 0; i < columns.length; ++i) {
+            if (columns[i].equals(columnName)) {
+                return i;
+            }
+        }
+
+        throw new IndexOutOfBoundsException(INDEX_OUT_OF_BOUND_MESSAGE);
+    }
+}
@@ -0,0 +1,149 @@
+package com.csvoptimizer;
+
+import java.io.PrintWriter;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Reusable row: keeps the raw input row with ranges of its fields instead of splitting it into strings.
+ * <p>
+ * Field is turned into a string only when somebody reads it, and values set by generators replace fields.
+ * Unchanged fields are written directly from ranges of the raw row. Arrays of slot grow only if a row has more
+ * fields than any row before, so taking another row doesn't allocate arrays (values of generated columns are
+ * still strings).
+ * <p>
+ * The slot is reused for the next rows, so it must not be kept after the row is processed.
+ */
+public class RowSlot extends AbstractList<String> implements RandomAccess {
+
+    private static final char DELIMITER = CSV_DELIMITER.charAt(0);
+
+    private final int columnCount;
+
+    private String row;
+    private int fieldCount;
+    private int size;
+    private int[] begins;
+    private int[] ends;
+    private String[] values;
+
+    /**
+     * @param columnCount number of columns of converted row, the row has at least such number of values.
+     */
+    public RowSlot(int columnCount) {
+        this.columnCount = columnCount;
+        this.begins = new int[columnCount];
+        this.ends = new int[columnCount];
+        this.values = new String[columnCount];
+    }
+
+    /**
+     * Takes another raw row locating its fields.
+     */
+    public void reset(String row) {
+
+        Arrays.fill(values, 0, size, null);
+
+        this.row = row;
+        fieldCount = 0;
+
+        int begin = 0;
+        int length = row.length();
+        while (true) {
+            // String.indexOf is an intrinsic comparing many characters at a time.
+            int end = row.indexOf(DELIMITER, begin);
+            if (end < 0) {
+                end = length;
+            }
+
+            if (fieldCount == begins.length) {
+                grow(Math.max(16, fieldCount * 2));
+            }
+            begins[fieldCount] = begin;
+            ends[fieldCount] = end;
+            ++fieldCount;
+
+            if (end == length) {
+                break;
+            }
+            begin = end + 1;
+        }
+
+        size = Math.max(columnCount, fieldCount);
+    }
+
+    @Override
+    public String get(int index) {
+
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(INDEX_OUT_OF_BOUND_MESSAGE);
+        }
+
+        String value = values[index];
+        if (value == null) {
+            value = index < fieldCount ? row.substring(begins[index], ends[index]) : "";
+            values[index] = value;
+        }
+
+        return value;
+    }
+
+    /**
+     * Replaces value of the field, returns previous value if it was read or set before or null otherwise
+     * (the field is not turned into a string just to be replaced).
+     */
+    @Override
+    public String set(int index, String value) {
+
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(INDEX_OUT_OF_BOUND_MESSAGE);
+        }
+
+        String previous = values[index];
+        values[index] = value;
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Writes the row with line separator.
+     *
+     * @return number of characters written.
+     */
+    public int writeTo(PrintWriter printWriter) {
+
+        int written = 0;
+        for (int i = 0; i < size; ++i) {
+
+            if (i > 0) {
+                printWriter.write(DELIMITER);
+                ++written;
+            }
+
+            String value = values[i];
+            if (value != null) {
+                printWriter.write(value);
+                written += value.length();
+            } else if (i < fieldCount) {
+                printWriter.write(row, begins[i], ends[i] - begins[i]);
+                written += ends[i] - begins[i];
+            }
+        }
+
+        printWriter.println();
+        return written + LINE_SEPARATOR_LENGTH;
+    }
+
+    private void grow(int capacity) {
+        begins = Arrays.copyOf(begins, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+}
@@ -0,0 +1,14 @@
+package com.csvoptimizer;
+
+import java.io.IOException;
+
+/**
+ * Supplies rows of input (the first one is a header) when they are not read directly from a single file.
+ */
+public interface RowSource {
+
+    /**
+     * Returns next row without line separator or null if there are no more rows.
+     */
+    String readRow() throws IOException;
+}
@@ -5,7 +5,12 @@ import com.csvoptimizer.exceptions.CliParametersException;
 import java.io.*;
 import java.nio.file.Paths;
 import java.text.ParseException;
+import java.text.ParsePosition;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.csvoptimizer.Constants.*;
 
@@ -75,7 +80,7 @@ public class Run {
      * @param delimiter separator between key and value;
      * @return
      */
-    private static String parseParameter(String[] args, String cliParam, String delimiter) {
+    static String parseParameter(String[] args, String cliParam, String delimiter) {
 
         String result = "";
 
@@ -104,14 +109,14 @@ public class Run {
 
             String parameterUp = args[i].toUpperCase(Locale.ROOT);
             String cliParamUp = cliParam.toUpperCase(Locale.ROOT);
-            String delimiterUp = CLI_ARRAY_DELIMITER.toUpperCase(Locale.ROOT);
+            String delimiterUp = CLI_PARAM_NAME_DELIMITER.toUpperCase(Locale.ROOT);
 
             if (parameterUp.indexOf(cliParamUp + delimiterUp) != 0) {
                 continue;
             }
 
             int delimiterPosition = parameterUp.indexOf(delimiterUp);
-            String result = args[i].substring(delimiterPosition + CLI_ARRAY_DELIMITER.length());
+            String result = args[i].substring(delimiterPosition + CLI_PARAM_NAME_DELIMITER.length());
 
             return parseArrayValues(result);
         }
@@ -129,7 +134,8 @@ public class Run {
      */
     private static Map<String, Object> parseParametersFromFile(String fileName, String delimiter) throws IOException {
 
-        Map<String, Object> parameters = new HashMap<>();
+        // Order of parameters is kept for declared generators to follow it.
+        Map<String, Object> parameters = new LinkedHashMap<>();
 
         InputStream inputStream = new FileInputStream(fileName);
         InputStreamReader inputStreamReader = new InputStreamReader(inputStream);
@@ -152,11 +158,51 @@ public class Run {
         String cliStep = parseParameter(args, CLI_PARAM_STEP, CLI_PARAM_NAME_DELIMITER);
         String cliDate = parseParameter(args, CLI_PARAM_DATE, CLI_PARAM_NAME_DELIMITER);
         String cliAverDepth = parseParameter(args, CLI_PARAM_AVER_DEPTH, CLI_PARAM_NAME_DELIMITER);
+        String cliGpx = parseParameter(args, CLI_PARAM_GPX, CLI_PARAM_NAME_DELIMITER);
+        String cliGpxMinSat = parseParameter(args, CLI_PARAM_GPX_MIN_SAT, CLI_PARAM_NAME_DELIMITER);
+        String cliJmx = parseParameter(args, CLI_PARAM_JMX, CLI_PARAM_NAME_DELIMITER);
+        String cliMetrics = parseParameter(args, CLI_PARAM_METRICS, CLI_PARAM_NAME_DELIMITER);
+        String cliMetricsInterval = parseParameter(args, CLI_PARAM_METRICS_INTERVAL, CLI_PARAM_NAME_DELIMITER);
+        String cliProfile = parseParameter(args, CLI_PARAM_PROFILE, CLI_PARAM_NAME_DELIMITER);
+        String cliProfileOut = parseParameter(args, CLI_PARAM_PROFILE_OUT, CLI_PARAM_NAME_DELIMITER);
+        String cliIndex = parseParameter(args, CLI_PARAM_INDEX, CLI_PARAM_NAME_DELIMITER);
+        String cliIndexStep = parseParameter(args, CLI_PARAM_INDEX_STEP, CLI_PARAM_NAME_DELIMITER);
+        String cliSummary = parseParameter(args, CLI_PARAM_SUMMARY, CLI_PARAM_NAME_DELIMITER);
+        String cliOutDir = parseParameter(args, CLI_PARAM_OUT_DIR, CLI_PARAM_NAME_DELIMITER);
+        String cliEvents = parseParameter(args, CLI_PARAM_EVENTS, CLI_PARAM_NAME_DELIMITER);
+        String cliVSpeedWindow = parseParameter(args, CLI_PARAM_VSPEED_WINDOW, CLI_PARAM_NAME_DELIMITER);
+        String cliDedup = parseParameter(args, CLI_PARAM_DEDUP, CLI_PARAM_NAME_DELIMITER);
+        String cliHeartbeat = parseParameter(args, CLI_PARAM_HEARTBEAT, CLI_PARAM_NAME_DELIMITER);
+        String cliDaemon = parseParameter(args, CLI_PARAM_DAEMON, CLI_PARAM_NAME_DELIMITER);
+        String cliSpool = parseParameter(args, CLI_PARAM_SPOOL, CLI_PARAM_NAME_DELIMITER);
+        String cliSocket = parseParameter(args, CLI_PARAM_SOCKET, CLI_PARAM_NAME_DELIMITER);
+        String cliThreads = parseParameter(args, CLI_PARAM_THREADS, CLI_PARAM_NAME_DELIMITER);
+        String cliFrom = parseParameter(args, CLI_PARAM_FROM, CLI_PARAM_NAME_DELIMITER);
+        String cliTo = parseParameter(args, CLI_PARAM_TO, CLI_PARAM_NAME_DELIMITER);
+        String cliLod = parseParameter(args, CLI_PARAM_LOD, CLI_PARAM_NAME_DELIMITER);
+        String cliLodFactor = parseParameter(args, CLI_PARAM_LOD_FACTOR, CLI_PARAM_NAME_DELIMITER);
+        String cliSegments = parseParameter(args, CLI_PARAM_SEGMENTS, CLI_PARAM_NAME_DELIMITER);
 
         // Parameter "Columns to average values" has array of values.
         LinkedHashSet<String> cliAverColumns = parseParameterArray(args, CLI_PARAM_AVER_COLUMNS);
 
-        Map<String, Object> parameters = new HashMap<>();
+        // Parameter "Files to merge" has array of files optionally followed by their start dates.
+        LinkedHashSet<String> cliMerge = parseParameterArray(args, CLI_PARAM_MERGE);
+
+        // Parameter "Columns to collapse repeating rows by" has array of values.
+        LinkedHashSet<String> cliDedupColumns = parseParameterArray(args, CLI_PARAM_DEDUP_COLUMNS);
+
+        // Parameter "Conditions on columns" has array of conditions (a single condition is allowed as well).
+        LinkedHashSet<String> cliWhere = parseParameterArray(args, CLI_PARAM_WHERE);
+        String cliWhereSingle = parseParameter(args, CLI_PARAM_WHERE, CLI_PARAM_NAME_DELIMITER);
+        if (cliWhere.isEmpty() && !cliWhereSingle.isEmpty()) {
+            cliWhere.add(cliWhereSingle);
+        }
+
+        // Parameter "Files to convert in batch" has array of files.
+        LinkedHashSet<String> cliBatch = parseParameterArray(args, CLI_PARAM_BATCH);
+
+        Map<String, Object> parameters = new LinkedHashMap<>();
 
         // If some parameter provided via file with parameters then the parameters will be set from this file
         // and later can be replaced with the same parameters provided directly with CLI.
@@ -198,11 +244,144 @@ public class Run {
             parameters.put(AVER_COLUMNS, cliAverColumns);
         }
 
+        // Time window of vertical speed.
+        if (!cliVSpeedWindow.isEmpty()) {
+            parameters.put(CLI_PARAM_VSPEED_WINDOW, Integer.parseInt(cliVSpeedWindow));
+        }
+
+        // Rows repeating watched columns are collapsed, optionally keeping a row per heartbeat interval.
+        if (!cliDedup.isEmpty()) {
+            parameters.put(CLI_PARAM_DEDUP, cliDedup);
+        }
+
+        if (!cliDedupColumns.isEmpty()) {
+            parameters.put(CLI_PARAM_DEDUP_COLUMNS, cliDedupColumns);
+        }
+
+        if (!cliHeartbeat.isEmpty()) {
+            parameters.put(CLI_PARAM_HEARTBEAT, Integer.parseInt(cliHeartbeat));
+        }
+
+        // Slice of log: time range as "time (us)" or gpxDate and conditions rows must meet.
+        if (!cliFrom.isEmpty()) {
+            parameters.put(CLI_PARAM_FROM, cliFrom);
+        }
+
+        if (!cliTo.isEmpty()) {
+            parameters.put(CLI_PARAM_TO, cliTo);
+        }
+
+        if (!cliWhere.isEmpty()) {
+            parameters.put(CLI_PARAM_WHERE, cliWhere);
+        }
+
+        // Sessions of log are found by resets of time and converted in parallel into separate files.
+        if (!cliSegments.isEmpty()) {
+            parameters.put(CLI_PARAM_SEGMENTS, cliSegments);
+        }
+
+        // Daemon taking jobs from spool directory and/or Unix domain socket and number of jobs run simultaneously.
+        if (!cliDaemon.isEmpty()) {
+            parameters.put(CLI_PARAM_DAEMON, cliDaemon);
+        }
+
+        if (!cliSpool.isEmpty()) {
+            parameters.put(CLI_PARAM_SPOOL, getPathToFile(cliSpool));
+        }
+
+        if (!cliSocket.isEmpty()) {
+            parameters.put(CLI_PARAM_SOCKET, getPathToFile(cliSocket));
+        }
+
+        if (!cliThreads.isEmpty()) {
+            parameters.put(CLI_PARAM_THREADS, Integer.parseInt(cliThreads));
+        }
+
+        // Sidecar index of output file and interval between indexed rows.
+        if (!cliIndex.isEmpty()) {
+            parameters.put(CLI_PARAM_INDEX, cliIndex);
+        }
+
+        if (!cliIndexStep.isEmpty()) {
+            parameters.put(CLI_PARAM_INDEX_STEP, Integer.parseInt(cliIndexStep));
+        }
+
+        // Number of levels of detail written next to output file and number of rows aggregated per level.
+        if (!cliLod.isEmpty()) {
+            parameters.put(CLI_PARAM_LOD, Integer.parseInt(cliLod));
+        }
+
+        if (!cliLodFactor.isEmpty()) {
+            parameters.put(CLI_PARAM_LOD_FACTOR, Integer.parseInt(cliLodFactor));
+        }
+
+        if (!cliSummary.isEmpty()) {
+            parameters.put(CLI_PARAM_SUMMARY, cliSummary);
+        }
+
+        // Events detected during conversion and thresholds of their rules.
+        if (!cliEvents.isEmpty()) {
+            parameters.put(CLI_PARAM_EVENTS, cliEvents);
+        }
+
+        for (String eventParameter : new String[]{CLI_PARAM_EVENT_MIN_SAT, CLI_PARAM_EVENT_BARO_JUMP,
+                CLI_PARAM_EVENT_BARO_WINDOW, CLI_PARAM_EVENT_CURRENT_FACTOR, CLI_PARAM_EVENT_CURRENT_MIN,
+                CLI_PARAM_EVENT_CURRENT_WINDOW, CLI_PARAM_EVENT_MOTOR_MAX, CLI_PARAM_EVENT_MOTOR_WINDOW}) {
+            String cliEventParameter = parseParameter(args, eventParameter, CLI_PARAM_NAME_DELIMITER);
+            if (!cliEventParameter.isEmpty()) {
+                parameters.put(eventParameter, cliEventParameter);
+            }
+        }
+
+        // Batch of files to convert into specified directory.
+        if (!cliBatch.isEmpty()) {
+            parameters.put(CLI_PARAM_BATCH, cliBatch);
+        }
+
+        if (!cliOutDir.isEmpty()) {
+            parameters.put(CLI_PARAM_OUT_DIR, getPathToFile(cliOutDir));
+        }
+
+        if (!cliMerge.isEmpty()) {
+            parameters.put(CLI_PARAM_MERGE, cliMerge);
+        }
+
         if (!cliAverDepth.isEmpty()) {
             int averageDepth = Integer.parseInt(cliAverDepth);
             parameters.put(AVER_DEPTH, averageDepth);
         }
 
+        // GPX track to write GPS points to.
+        if (!cliGpx.isEmpty()) {
+            parameters.put(CLI_PARAM_GPX, getPathToFile(cliGpx));
+        }
+
+        if (!cliGpxMinSat.isEmpty()) {
+            parameters.put(CLI_PARAM_GPX_MIN_SAT, Integer.parseInt(cliGpxMinSat));
+        }
+
+        // Metrics exposed via JMX and/or dumped into file.
+        if (!cliJmx.isEmpty()) {
+            parameters.put(CLI_PARAM_JMX, cliJmx);
+        }
+
+        if (!cliMetrics.isEmpty()) {
+            parameters.put(CLI_PARAM_METRICS, getPathToFile(cliMetrics));
+        }
+
+        if (!cliMetricsInterval.isEmpty()) {
+            parameters.put(CLI_PARAM_METRICS_INTERVAL, Integer.parseInt(cliMetricsInterval));
+        }
+
+        // Sampling rate of generators profiling and file to write profile to.
+        if (!cliProfile.isEmpty()) {
+            parameters.put(CLI_PARAM_PROFILE, Integer.parseInt(cliProfile));
+        }
+
+        if (!cliProfileOut.isEmpty()) {
+            parameters.put(CLI_PARAM_PROFILE_OUT, getPathToFile(cliProfileOut));
+        }
+
         return parameters;
     }
 
@@ -210,29 +389,445 @@ public class Run {
 
         Map<String, Object> parameters = parseParameters(args);
 
+        if (Boolean.parseBoolean((String) parameters.get(CLI_PARAM_DAEMON))) {
+            ConversionDaemon daemon = new ConversionDaemon((String) parameters.get(CLI_PARAM_SPOOL),
+                    (String) parameters.get(CLI_PARAM_SOCKET),
+                    getIntParameter(parameters, CLI_PARAM_THREADS, DEFAULT_DAEMON_THREADS));
+            Runtime.getRuntime().addShutdownHook(new Thread(daemon::close));
+            daemon.run();
+            return;
+        }
+
+        runJob(parameters);
+    }
+
+    /**
+     * Returns true if running as ahead-of-time compiled native image rather than in JVM.
+     */
+    static boolean isNativeImage() {
+        return System.getProperty(NATIVE_IMAGE_CODE_PROPERTY) != null;
+    }
+
+    /**
+     * Runs conversion specified by parameters of command line, used for jobs of daemon as well.
+     */
+    static void runJob(String[] args) throws Exception {
+        runJob(parseParameters(args));
+    }
+
+    private static void runJob(Map<String, Object> parameters) throws Exception {
+
+        LinkedHashSet<String> batchInputs = (LinkedHashSet<String>) parameters.get(CLI_PARAM_BATCH);
+        if (batchInputs != null && !batchInputs.isEmpty()) {
+            convertBatch(parameters, batchInputs);
+        } else if (Boolean.parseBoolean((String) parameters.get(CLI_PARAM_SEGMENTS))) {
+            convertSegments(parameters);
+        } else {
+            convert(parameters);
+        }
+    }
+
+    /**
+     * Converts every file of batch into output directory and writes summary of all of them.
+     *
+     * @param parameters  parameters of conversion applied to every file;
+     * @param batchInputs files to convert.
+     */
+    private static void convertBatch(Map<String, Object> parameters, Set<String> batchInputs) throws Exception {
+
+        String outDir = (String) parameters.get(CLI_PARAM_OUT_DIR);
+        if (outDir == null) {
+            throw new CliParametersException("Not output directory specified");
+        }
+        new File(outDir).mkdirs();
+
+        // Outputs having explicit names would be overwritten by every file, so only sidecar ones are kept.
+        Map<String, Object> fileParameters = new LinkedHashMap<>(parameters);
+        fileParameters.remove(CLI_PARAM_GPX);
+        fileParameters.remove(CLI_PARAM_METRICS);
+        fileParameters.remove(CLI_PARAM_PROFILE_OUT);
+        fileParameters.put(CLI_PARAM_SUMMARY, Boolean.TRUE.toString());
+
+        List<FlightSummary> summaries = new ArrayList<>();
+        FlightSummary total = new FlightSummary(BATCH_SUMMARY_TOTAL_NAME, null);
+
+        for (String batchInput : batchInputs) {
+            String pathToInputFile = getPathToFile(batchInput.trim());
+            fileParameters.put(CLI_PARAM_IN, pathToInputFile);
+            fileParameters.put(CLI_PARAM_OUT, outDir + File.separator + new File(pathToInputFile).getName());
+
+            System.out.println("Converting " + pathToInputFile);
+            FlightSummary summary = convert(fileParameters);
+            summaries.add(summary);
+            total.add(summary);
+        }
+
+        summaries.add(total);
+        FlightSummary.writeCsv(outDir + File.separator + BATCH_SUMMARY_FILE_NAME, summaries);
+    }
+
+    /**
+     * Splits input file into sessions by resets of time and converts every session on its own thread into its own
+     * file (or into output file if there is only one session), then writes manifest of the segments.
+     * <p>
+     * Time of session start is not logged, so every session is supposed to start right after the previous one.
+     *
+     * @param parameters parameters of conversion applied to every segment.
+     */
+    private static void convertSegments(Map<String, Object> parameters) throws Exception {
+
+        String pathToInputFile = (String) parameters.get(CLI_PARAM_IN);
+        String pathToOutputFile = (String) parameters.get(CLI_PARAM_OUT);
+        if (pathToInputFile == null || pathToOutputFile == null) {
+            throw new CliParametersException("Not i/o files specified");
+        }
+
+        // Logs of binary file are not found by time of CSV rows.
+        if (BlackboxDecoder.isBlackboxFile(pathToInputFile)) {
+            throw new CliParametersException("Segments are found in CSV logs only");
+        }
+
+        List<LogSegment> segments = SliceReader.scanSegments(pathToInputFile);
+        System.out.println("Segments found: " + segments.size());
+
+        // Outputs having explicit names would be overwritten by every segment, so only sidecar ones are kept.
+        Map<String, Object> baseParameters = new LinkedHashMap<>(parameters);
+        baseParameters.remove(CLI_PARAM_GPX);
+        baseParameters.remove(CLI_PARAM_METRICS);
+        baseParameters.remove(CLI_PARAM_PROFILE_OUT);
+        baseParameters.remove(CLI_PARAM_MERGE);
+        baseParameters.remove(CLI_PARAM_FROM);
+        baseParameters.remove(CLI_PARAM_TO);
+
+        Calendar segmentDate = retrieveDateTime((String) parameters.getOrDefault(CLI_PARAM_DATE, DEFAULT_START_DATE));
+
+        int threads = getIntParameter(parameters, CLI_PARAM_THREADS, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, segments.size())));
+
+        List<Future<FlightSummary>> conversions = new ArrayList<>();
+        List<String> manifestEntries = new ArrayList<>();
+        try {
+            for (LogSegment segment : segments) {
+
+                String pathToSegmentFile = segments.size() == 1
+                        ? pathToOutputFile : LogSegment.getPathToSegmentFile(pathToOutputFile, segment.getIndex());
+                String startDate = DATE_FORMATTER_INPUT.get().format(segmentDate.getTime());
+
+                Map<String, Object> segmentParameters = new LinkedHashMap<>(baseParameters);
+                segmentParameters.put(CLI_PARAM_OUT, pathToSegmentFile);
+                segmentParameters.put(CLI_PARAM_DATE, startDate);
+                manifestEntries.add(segment.toJson(FlightSummary.getName(pathToSegmentFile), startDate));
+
+                conversions.add(executor.submit(() -> {
+                    try (SliceReader reader = SliceReader.ofOffsets(pathToInputFile,
+                            segment.getStartOffset(), segment.getEndOffset())) {
+                        return convert(segmentParameters, reader, segment.getRows() + 1);
+                    }
+                }));
+
+                // Dates are written with seconds, so the next start is rounded up not to go backwards.
+                if (segment.getLastTimeUs() > 0) {
+                    segmentDate.add(Calendar.SECOND, (int) ((segment.getLastTimeUs() + 999_999) / 1_000_000));
+                }
+            }
+
+            for (Future<FlightSummary> conversion : conversions) {
+                try {
+                    conversion.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try (PrintWriter printWriter = new PrintWriter(new FileWriter(LogSegment.getPathToManifestFile(pathToOutputFile)))) {
+            printWriter.println("{\"file\":\"" + FlightSummary.getName(pathToInputFile) + "\",\"segments\":["
+                    + String.join(",", manifestEntries) + "]}");
+        }
+    }
+
+    /**
+     * Converts a single file (or merged files) according to parameters.
+     *
+     * @param parameters parsed parameters;
+     * @return summary of converted flight or null if it wasn't requested.
+     */
+    private static FlightSummary convert(Map<String, Object> parameters) throws Exception {
+        return convert(parameters, null, 0);
+    }
+
+    /**
+     * Converts rows of the source (e.g. of a segment) instead of input file if the source is set.
+     *
+     * @param parameters     parsed parameters;
+     * @param rowSource      source of rows starting with header or null to read input file;
+     * @param rowSourceLines number of rows the source provides;
+     * @return summary of converted flight or null if it wasn't requested.
+     */
+    private static FlightSummary convert(Map<String, Object> parameters, RowSource rowSource, long rowSourceLines)
+            throws Exception {
+
         String pathToInputFile = (String) parameters.get(CLI_PARAM_IN);
         String pathToOutputFile = (String) parameters.get(CLI_PARAM_OUT);
+        String pathToGpxFile = (String) parameters.get(CLI_PARAM_GPX);
 
-        // In and out files are mandatory parameters!
-        if (parameters.get(CLI_PARAM_IN) == null || parameters.get(CLI_PARAM_OUT) == null) {
+        String startDate = (String) parameters.getOrDefault(CLI_PARAM_DATE, DEFAULT_START_DATE);
+        Calendar startingDate = retrieveDateTime(startDate);
+
+        // Several files can be merged into one timeline starting from the earliest of their dates.
+        LogMerger logMerger = null;
+        LinkedHashSet<String> mergeInputs = (LinkedHashSet<String>) parameters.get(CLI_PARAM_MERGE);
+        if (mergeInputs != null && !mergeInputs.isEmpty()) {
+            logMerger = createLogMerger(mergeInputs, startingDate);
+            startingDate = logMerger.getStartDate();
+            pathToInputFile = logMerger.getPathToFirstFile();
+        }
+
+        // Input file and at least one of output files are mandatory parameters!
+        if (pathToInputFile == null || (pathToOutputFile == null && pathToGpxFile == null)) {
             throw new CliParametersException("Not i/o files specified");
         }
 
         LinkedHashSet<String> averColumns = (LinkedHashSet<String>) parameters.get(AVER_COLUMNS);
-        Integer depth = Integer.parseInt((String) parameters.getOrDefault(AVER_DEPTH, 0));
+        int depth = getIntParameter(parameters, AVER_DEPTH, 0);
 
         // If parameters for averaging set then the Averager instance should be provided.
         Averager averager = null;
-        if (!averColumns.isEmpty() && depth > 0) {
+        if (averColumns != null && !averColumns.isEmpty() && depth > 0) {
             averager = new Averager(pathToInputFile, pathToOutputFile, averColumns, depth);
         }
 
-        Integer step = Integer.parseInt((String) parameters.getOrDefault(CLI_PARAM_STEP, DEFAULT_STEP));
-        String startDate = (String) parameters.getOrDefault(CLI_PARAM_DATE, DEFAULT_START_DATE);
-        Calendar startingDate = retrieveDateTime(startDate);
+        int step = getIntParameter(parameters, CLI_PARAM_STEP, DEFAULT_STEP);
+
+        CSVConverter csvConverter = new CSVConverter(pathToInputFile, pathToOutputFile, step, startingDate, averager);
+        csvConverter.setVSpeedWindow(getIntParameter(parameters, CLI_PARAM_VSPEED_WINDOW, DEFAULT_VSPEED_WINDOW_MS));
+
+        // Generated columns declared in parameters file (e.g. "gen.power (W)=expr:...") in order of declaration.
+        Map<String, String> declaredGenerators = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            if (parameter.getKey().startsWith(GENERATOR_PARAM_PREFIX)) {
+                declaredGenerators.put(parameter.getKey().substring(GENERATOR_PARAM_PREFIX.length()),
+                        String.valueOf(parameter.getValue()));
+            }
+        }
+        csvConverter.setDeclaredGenerators(declaredGenerators);
+
+        LinkedHashSet<String> dedupColumns = (LinkedHashSet<String>) parameters.get(CLI_PARAM_DEDUP_COLUMNS);
+        if (Boolean.parseBoolean((String) parameters.get(CLI_PARAM_DEDUP)) || dedupColumns != null) {
+            int heartbeat = getIntParameter(parameters, CLI_PARAM_HEARTBEAT, 0);
+            csvConverter.setDeduplicator(new RowDeduplicator(
+                    dedupColumns == null ? Collections.emptySet() : dedupColumns, heartbeat));
+        }
+
+        // Rows of single file are read only within the time range, merged rows are filtered while read.
+        long fromUs = parseTimeBound(parameters.get(CLI_PARAM_FROM), startingDate, Long.MIN_VALUE);
+        long toUs = parseTimeBound(parameters.get(CLI_PARAM_TO), startingDate, Long.MAX_VALUE);
+        Collection<String> whereConditions = getArrayParameter(parameters, CLI_PARAM_WHERE);
+        boolean blackbox = BlackboxDecoder.isBlackboxFile(pathToInputFile);
+        SliceReader sliceReader = null;
+        if (fromUs != Long.MIN_VALUE || toUs != Long.MAX_VALUE || !whereConditions.isEmpty()) {
+            csvConverter.setRowFilter(new RowFilter(fromUs, toUs, whereConditions));
+            if (logMerger == null && !blackbox && (fromUs != Long.MIN_VALUE || toUs != Long.MAX_VALUE)) {
+                sliceReader = new SliceReader(pathToInputFile, fromUs, toUs);
+                csvConverter.setRowSource(sliceReader, sliceReader.estimateRows());
+            }
+        }
+
+        if (logMerger != null) {
+            csvConverter.setRowSource(logMerger, logMerger.countLines());
+        } else if (rowSource != null) {
+            csvConverter.setRowSource(rowSource, rowSourceLines);
+        }
+
+        // Binary log is decoded straight into rows, without CSV of blackbox_decode.
+        BlackboxDecoder blackboxDecoder = null;
+        if (logMerger == null && rowSource == null && blackbox) {
+            blackboxDecoder = new BlackboxDecoder(pathToInputFile);
+            csvConverter.setRowSource(blackboxDecoder, blackboxDecoder.estimateRows());
+        }
+
+        if (pathToGpxFile != null) {
+            int gpxMinSat = getIntParameter(parameters, CLI_PARAM_GPX_MIN_SAT, DEFAULT_GPX_MIN_SAT);
+            csvConverter.addRowListener(new GpxWriter(pathToGpxFile, gpxMinSat));
+        }
+
+        FlightSummary summary = null;
+        if (Boolean.parseBoolean((String) parameters.get(CLI_PARAM_SUMMARY))) {
+            String pathToSummaryFile = pathToOutputFile == null ? null : FlightSummary.getPathToSummaryFile(pathToOutputFile);
+            summary = new FlightSummary(FlightSummary.getName(pathToInputFile), pathToSummaryFile);
+            csvConverter.addRowListener(summary);
+        }
+
+        if (Boolean.parseBoolean((String) parameters.get(CLI_PARAM_INDEX)) && pathToOutputFile != null) {
+            int indexStep = getIntParameter(parameters, CLI_PARAM_INDEX_STEP, DEFAULT_INDEX_STEP_MS);
+            csvConverter.addRowListener(new LogIndexWriter(LogIndex.getPathToIndexFile(pathToOutputFile), indexStep));
+        }
+
+        int lodLevels = getIntParameter(parameters, CLI_PARAM_LOD, 0);
+        if (lodLevels > 0 && pathToOutputFile != null) {
+            int lodFactor = getIntParameter(parameters, CLI_PARAM_LOD_FACTOR, DEFAULT_LOD_FACTOR);
+            csvConverter.addRowListener(new LodPyramidWriter(pathToOutputFile, lodLevels, lodFactor));
+        }
+
+        if (Boolean.parseBoolean((String) parameters.get(CLI_PARAM_EVENTS)) && pathToOutputFile != null) {
+            csvConverter.addRowListener(new EventDetector(EventDetector.getPathToEventsFile(pathToOutputFile), parameters));
+        }
+
+        boolean jmx = Boolean.parseBoolean((String) parameters.get(CLI_PARAM_JMX));
+        String pathToMetricsFile = (String) parameters.get(CLI_PARAM_METRICS);
+        if (jmx || pathToMetricsFile != null) {
+            ConversionMetrics metrics = new ConversionMetrics(pathToInputFile);
+            // MXBeans are introspected by reflection, which native image doesn't keep without configuration.
+            if (jmx && isNativeImage()) {
+                System.out.println("JMX is not available in native image, use metrics file");
+            } else if (jmx) {
+                metrics.registerMBean();
+            }
+            if (pathToMetricsFile != null) {
+                metrics.startDumping(pathToMetricsFile, getIntParameter(parameters, CLI_PARAM_METRICS_INTERVAL, 0));
+            }
+            csvConverter.setMetrics(metrics);
+        }
+
+        int profileSamplingRate = getIntParameter(parameters, CLI_PARAM_PROFILE, 0);
+        if (profileSamplingRate > 0) {
+            String pathToProfileFile = (String) parameters.get(CLI_PARAM_PROFILE_OUT);
+            csvConverter.setProfiler(new GeneratorProfiler(profileSamplingRate, pathToProfileFile));
+        }
 
-        Runnable csvConverter = new CSVConverter(pathToInputFile, pathToOutputFile, step, startingDate, averager);
         csvConverter.run();
+
+        if (logMerger != null) {
+            logMerger.close();
+        }
+
+        if (sliceReader != null) {
+            sliceReader.close();
+        }
+
+        if (blackboxDecoder != null) {
+            blackboxDecoder.close();
+            if (blackboxDecoder.getDroppedFrames() > 0) {
+                System.out.println("Corrupted frames dropped: " + blackboxDecoder.getDroppedFrames());
+            }
+        }
+
+        if (csvConverter.getFailure() != null) {
+            throw csvConverter.getFailure();
+        }
+
+        return summary;
+    }
+
+    /**
+     * Creates merger of files specified as "file" or "file|startDate".
+     *
+     * @param mergeInputs  files to merge with their start dates;
+     * @param startingDate date of files having no start date specified;
+     * @return merger providing rows of all files in order of their time.
+     */
+    private static LogMerger createLogMerger(Set<String> mergeInputs, Calendar startingDate) throws IOException {
+
+        List<String> paths = new ArrayList<>();
+        List<Calendar> startDates = new ArrayList<>();
+
+        for (String mergeInput : mergeInputs) {
+            int delimiterPosition = mergeInput.indexOf(MERGE_DATE_DELIMITER);
+            if (delimiterPosition < 0) {
+                paths.add(getPathToFile(mergeInput.trim()));
+                startDates.add(startingDate);
+            } else {
+                paths.add(getPathToFile(mergeInput.substring(0, delimiterPosition).trim()));
+                startDates.add(retrieveDateTime(mergeInput.substring(delimiterPosition + 1).trim()));
+            }
+        }
+
+        return new LogMerger(paths, startDates);
+    }
+
+    /**
+     * Returns integer value of parameter that can be set either from CLI (as number) or from file (as string).
+     *
+     * @param parameters   map of parsed parameters;
+     * @param name         name of parameter;
+     * @param defaultValue value to return if parameter not presented;
+     * @return value of parameter.
+     */
+    private static int getIntParameter(Map<String, Object> parameters, String name, int defaultValue) {
+
+        Object value = parameters.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+
+        return Integer.parseInt(((String) value).trim());
+    }
+
+    /**
+     * Returns values of parameter that can be set either as array or as a single value (from file).
+     *
+     * @param parameters map of parsed parameters;
+     * @param name       name of parameter;
+     * @return values of parameter or empty collection if parameter not presented.
+     */
+    private static Collection<String> getArrayParameter(Map<String, Object> parameters, String name) {
+
+        Object value = parameters.get(name);
+        if (value == null) {
+            return Collections.emptySet();
+        }
+
+        if (value instanceof Collection) {
+            return (Collection<String>) value;
+        }
+
+        return Collections.singleton((String) value);
+    }
+
+    /**
+     * Converts bound of time range into "time (us)" of log.
+     *
+     * @param value        bound as "time (us)" (e.g. "41092541") or as gpxDate (e.g. "2021-01-01T12:00:41.092541Z");
+     * @param startingDate start date of log the gpxDate is calculated from;
+     * @param defaultValue value to return if bound not presented;
+     * @return time of log in microseconds.
+     */
+    static long parseTimeBound(Object value, Calendar startingDate, long defaultValue) {
+
+        if (value == null || ((String) value).trim().isEmpty()) {
+            return defaultValue;
+        }
+
+        String bound = ((String) value).trim();
+        long timeUs = NumberParser.parseLong(bound, Long.MIN_VALUE);
+        if (timeUs != Long.MIN_VALUE) {
+            return timeUs;
+        }
+
+        // Date of gpxDate is formatted without fraction of second that is appended as microseconds.
+        ParsePosition position = new ParsePosition(0);
+        Date date = DATE_FORMATTER_GPX.get().parse(bound, position);
+        if (date == null) {
+            throw new CliParametersException("Wrong bound of time range: " + bound);
+        }
+
+        long fractionUs = 0;
+        int index = position.getIndex();
+        if (index < bound.length() && bound.charAt(index) == '.') {
+            int scale = 100000;
+            for (++index; index < bound.length() && Character.isDigit(bound.charAt(index)); ++index) {
+                fractionUs += (bound.charAt(index) - '0') * scale;
+                scale /= 10;
+            }
+        }
+
+        return (date.getTime() - startingDate.getTimeInMillis()) * 1000 + fractionUs;
     }
 
     /**
@@ -260,7 +855,7 @@ public class Run {
 
         Date date = null;
         try {
-            date = DATE_FORMATTER_INPUT.parse(dateTime);
+            date = DATE_FORMATTER_INPUT.get().parse(dateTime);
         } catch (ParseException e) {
             e.printStackTrace();
         }
@@ -271,7 +866,7 @@ public class Run {
         return calendar;
     }
 
-    private static String getPathToFile(String path) {
+    static String getPathToFile(String path) {
 
         String pathToFile = path;
         if (!Paths.get(path).isAbsolute()) {
@@ -0,0 +1,285 @@
+package com.csvoptimizer;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Reads only rows of time range from memory-mapped input, so a slice of log costs time proportional to its size.
+ * <p>
+ * Time of rows is monotonic, so offsets of the first row of the range and of the first row after it are found
+ * by binary search over bytes: a probe skips to the next line start and parses time of that row. Only a few pages
+ * of the file are touched by the search. Rows are read from the mapped file between the offsets; the header
+ * is returned first as from any other source.
+ * <p>
+ * The same mapping is used to pre-scan log for sessions (see {@link #scanSegments}).
+ */
+public class SliceReader implements RowSource, AutoCloseable {
+
+    private static final char DELIMITER = CSV_DELIMITER.charAt(0);
+
+    // Files are mapped by regions, the size of a single mapping is limited.
+    private static final int REGION_BITS = 30;
+    private static final long REGION_SIZE = 1L << REGION_BITS;
+
+    // Binary search stops at this distance and the rest is scanned row by row.
+    private static final long SCAN_DISTANCE = 64 * 1024;
+
+    // Number of rows sampled to estimate average length of row.
+    private static final int SAMPLE_ROWS = 100;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] regions;
+    private final long size;
+    private final int timeColumnIdx;
+
+    private final long dataStart;
+    private long startOffset;
+    private long endOffset;
+
+    private long position;
+    private boolean headerRead;
+    private byte[] lineBuffer = new byte[1024];
+
+    /**
+     * @param pathToInputFile log to read;
+     * @param fromUs          the earliest time of row to read or {@link Long#MIN_VALUE};
+     * @param toUs            the latest time of row to read or {@link Long#MAX_VALUE}.
+     */
+    public SliceReader(String pathToInputFile, long fromUs, long toUs) throws IOException {
+
+        this(pathToInputFile);
+
+        startOffset = fromUs == Long.MIN_VALUE ? dataStart : findFirstRow(fromUs);
+        // The first row after the range is the first one of time greater or equal to the next microsecond.
+        endOffset = toUs == Long.MAX_VALUE ? size : findFirstRow(toUs + 1);
+        position = startOffset;
+    }
+
+    // Maps the whole file to read all rows.
+    private SliceReader(String pathToInputFile) throws IOException {
+
+        channel = FileChannel.open(Paths.get(pathToInputFile), StandardOpenOption.READ);
+        size = channel.size();
+
+        regions = new MappedByteBuffer[(int) ((size + REGION_SIZE - 1) >>> REGION_BITS)];
+        for (int i = 0; i < regions.length; ++i) {
+            long regionStart = (long) i << REGION_BITS;
+            regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, Math.min(REGION_SIZE, size - regionStart));
+        }
+
+        timeColumnIdx = Arrays.asList(AbstractRunnable.getInputColumns()).indexOf(TIME_COLUMN_NAME);
+
+        dataStart = nextLineStart(0);
+        startOffset = dataStart;
+        endOffset = size;
+        position = startOffset;
+    }
+
+    /**
+     * Returns reader of rows between offsets found before (e.g. of a segment), the header is read as well.
+     */
+    public static SliceReader ofOffsets(String pathToInputFile, long startOffset, long endOffset) throws IOException {
+
+        SliceReader reader = new SliceReader(pathToInputFile);
+        reader.startOffset = Math.max(reader.dataStart, startOffset);
+        reader.endOffset = Math.min(reader.size, endOffset);
+        reader.position = reader.startOffset;
+        return reader;
+    }
+
+    /**
+     * Splits log into sessions by resets of time (e.g. several arm/disarm sessions written into one file).
+     * Only the time field of every row is parsed, the rest of row is skipped byte by byte.
+     */
+    public static List<LogSegment> scanSegments(String pathToInputFile) throws IOException {
+
+        List<LogSegment> segments = new ArrayList<>();
+        try (SliceReader reader = new SliceReader(pathToInputFile)) {
+
+            long segmentStart = reader.dataStart;
+            long firstTimeUs = Long.MIN_VALUE;
+            long prevTimeUs = Long.MIN_VALUE;
+            long rows = 0;
+
+            long offset = reader.dataStart;
+            while (offset < reader.size) {
+
+                long next = reader.nextLineStart(offset);
+                long timeUs = reader.parseTime(offset);
+
+                // Rows of unknown time (e.g. empty lines) stay in the current segment.
+                if (timeUs != Long.MIN_VALUE) {
+                    if (prevTimeUs != Long.MIN_VALUE && timeUs < prevTimeUs) {
+                        segments.add(new LogSegment(segments.size() + 1, segmentStart, offset, rows, firstTimeUs, prevTimeUs));
+                        segmentStart = offset;
+                        firstTimeUs = Long.MIN_VALUE;
+                        rows = 0;
+                    }
+                    if (firstTimeUs == Long.MIN_VALUE) {
+                        firstTimeUs = timeUs;
+                    }
+                    prevTimeUs = timeUs;
+                }
+
+                ++rows;
+                offset = next;
+            }
+
+            if (rows > 0) {
+                segments.add(new LogSegment(segments.size() + 1, segmentStart, reader.size, rows, firstTimeUs, prevTimeUs));
+            }
+        }
+
+        return segments;
+    }
+
+    @Override
+    public String readRow() {
+
+        if (!headerRead) {
+            headerRead = true;
+            return dataStart == 0 ? null : readLine(0);
+        }
+
+        if (position >= endOffset) {
+            return null;
+        }
+
+        String row = readLine(position);
+        position = nextLineStart(position);
+        return row;
+    }
+
+    /**
+     * Returns number of rows of the range estimated by average length of its first rows (used to show progress).
+     */
+    public long estimateRows() {
+
+        long offset = startOffset;
+        int rows = 0;
+        while (rows < SAMPLE_ROWS && offset < endOffset) {
+            offset = nextLineStart(offset);
+            ++rows;
+        }
+
+        if (rows == 0) {
+            return 1;
+        }
+
+        // Header is counted as well.
+        return (endOffset - startOffset) * rows / (offset - startOffset) + 1;
+    }
+
+    public long getStartOffset() {
+        return startOffset;
+    }
+
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Returns offset of the first row having time greater or equal to the specified one or size of file.
+    private long findFirstRow(long timeUs) {
+
+        // Row at low bound is before the time, row at high bound (if any) is not.
+        long low = dataStart;
+        long high = size;
+        if (low >= high || parseTime(low) >= timeUs) {
+            return low;
+        }
+
+        while (high - low > SCAN_DISTANCE) {
+            long probe = nextLineStart(low + (high - low) / 2);
+            if (probe >= high) {
+                break;
+            }
+            if (parseTime(probe) < timeUs) {
+                low = probe;
+            } else {
+                high = probe;
+            }
+        }
+
+        long offset = nextLineStart(low);
+        while (offset < high && parseTime(offset) < timeUs) {
+            offset = nextLineStart(offset);
+        }
+
+        return offset;
+    }
+
+    // Returns offset following the line separator of the line containing the offset or size of file.
+    private long nextLineStart(long offset) {
+        while (offset < size) {
+            if (byteAt(offset++) == '\n') {
+                return offset;
+            }
+        }
+        return size;
+    }
+
+    // Rows which time can't be parsed are taken for the earliest ones.
+    private long parseTime(long lineStart) {
+
+        long offset = lineStart;
+        for (int fieldIdx = 0; fieldIdx < timeColumnIdx; ++fieldIdx) {
+            while (offset < size && byteAt(offset) != DELIMITER && byteAt(offset) != '\n') {
+                ++offset;
+            }
+            if (offset >= size || byteAt(offset) == '\n') {
+                return Long.MIN_VALUE;
+            }
+            ++offset;
+        }
+
+        int length = 0;
+        while (offset + length < size && length < lineBuffer.length) {
+            byte b = byteAt(offset + length);
+            if (b == DELIMITER || b == '\n' || b == '\r') {
+                break;
+            }
+            lineBuffer[length++] = b;
+        }
+
+        return NumberParser.parseLong(lineBuffer, 0, length, Long.MIN_VALUE);
+    }
+
+    private String readLine(long lineStart) {
+
+        int length = 0;
+        for (long offset = lineStart; offset < size; ++offset) {
+            byte b = byteAt(offset);
+            if (b == '\n') {
+                break;
+            }
+            if (length == lineBuffer.length) {
+                lineBuffer = Arrays.copyOf(lineBuffer, length * 2);
+            }
+            lineBuffer[length++] = b;
+        }
+
+        if (length > 0 && lineBuffer[length - 1] == '\r') {
+            --length;
+        }
+
+        return new String(lineBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private byte byteAt(long offset) {
+        return regions[(int) (offset >>> REGION_BITS)].get((int) (offset & (REGION_SIZE - 1)));
+    }
+}
@@ -0,0 +1,144 @@
+package com.csvoptimizer;
+
+/**
+ * Values of the last milliseconds kept in primitive ring buffer with their sums.
+ * Adding a value and evicting outdated ones cost O(1) amortized, as well as mean and least-squares slope.
+ * Times are expected to increase, the window is cleared when time goes back.
+ */
+public class TimeWindow {
+
+    // Sums are kept relative to base time not to lose precision of squared times; the base moves forward
+    // (and the sums are recalculated) once it is this number of windows behind.
+    private static final int REBASE_WINDOWS = 64;
+
+    private final long windowUs;
+
+    private long[] times = new long[256];
+    private double[] values = new double[256];
+    private int head;
+    private int size;
+
+    private long baseUs;
+    private double sum;
+    private double sumT;
+    private double sumTT;
+    private double sumTV;
+
+    public TimeWindow(long windowMillis) {
+        this.windowUs = windowMillis * 1000;
+    }
+
+    public void add(long timeUs, double value) {
+
+        // Time going back means a new session of log (e.g. after re-arming), values of the previous one are dropped.
+        if (size > 0 && timeUs < times[(head + size - 1) % times.length]) {
+            clear();
+        }
+
+        // Values older than the window are evicted.
+        while (size > 0 && timeUs - times[head] > windowUs) {
+            subtract(times[head], values[head]);
+            head = (head + 1) % times.length;
+            --size;
+        }
+
+        if (size == times.length) {
+            grow();
+        }
+
+        if (size == 0 || timeUs - baseUs > REBASE_WINDOWS * Math.max(windowUs, 1)) {
+            rebase(size == 0 ? timeUs : times[head]);
+        }
+
+        int tail = (head + size) % times.length;
+        times[tail] = timeUs;
+        values[tail] = value;
+        ++size;
+
+        double t = (timeUs - baseUs) / 1e6;
+        sum += value;
+        sumT += t;
+        sumTT += t * t;
+        sumTV += t * value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getMean() {
+        return size == 0 ? 0 : sum / size;
+    }
+
+    /**
+     * Returns slope of least-squares line through values of the window per second
+     * or NaN if it is undefined (less than two different times).
+     */
+    public double getSlope() {
+
+        double denominator = size * sumTT - sumT * sumT;
+        if (size < 2 || denominator <= 1e-12 * size * sumTT) {
+            return Double.NaN;
+        }
+
+        return (size * sumTV - sumT * sum) / denominator;
+    }
+
+    // Returns the oldest value of the window.
+    public double getFirst() {
+        return values[head];
+    }
+
+    // Returns the newest value of the window.
+    public double getLast() {
+        return values[(head + size - 1) % values.length];
+    }
+
+    public long getFirstTime() {
+        return times[head];
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        sum = sumT = sumTT = sumTV = 0;
+    }
+
+    private void subtract(long timeUs, double value) {
+        double t = (timeUs - baseUs) / 1e6;
+        sum -= value;
+        sumT -= t;
+        sumTT -= t * t;
+        sumTV -= t * value;
+    }
+
+    // Recalculates sums relative to new base that also drops accumulated rounding errors.
+    private void rebase(long newBaseUs) {
+
+        baseUs = newBaseUs;
+        sum = sumT = sumTT = sumTV = 0;
+
+        for (int i = 0; i < size; ++i) {
+            int idx = (head + i) % times.length;
+            double t = (times[idx] - baseUs) / 1e6;
+            sum += values[idx];
+            sumT += t;
+            sumTT += t * t;
+            sumTV += t * values[idx];
+        }
+    }
+
+    private void grow() {
+
+        long[] newTimes = new long[times.length * 2];
+        double[] newValues = new double[values.length * 2];
+        for (int i = 0; i < size; ++i) {
+            newTimes[i] = times[(head + i) % times.length];
+            newValues[i] = values[(head + i) % values.length];
+        }
+
+        times = newTimes;
+        values = newValues;
+        head = 0;
+    }
+}
@@ -0,0 +1,53 @@
+package com.csvoptimizer;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Compares rows decoded from test_blackbox.bbl with test_blackbox_rows.csv. The sample holds two logs:
+ * <ul>
+ * <li>firmware 4.2 (centivolts and centiamperes) with "P interval:1/2", a flight mode event, an unknown event,
+ * a truncated inter frame and an end of log event with wrong message, each dropping rows until the next intra frame;</li>
+ * <li>firmware 3.5 (raw ADC values, vbatscale and current sensor offset and scale) with "P ratio:4".</li>
+ * </ul>
+ * Both files are written by test_blackbox_encoder.py from rows of a synthetic log, so the expected rows don't come
+ * from the decoder under test.
+ */
+public class TestBlackboxDecoder {
+
+    private static final long DROPPED_FRAMES = 4;
+
+    public static void main(String[] args) throws Exception {
+
+        URL res = TestBlackboxDecoder.class.getClassLoader().getResource("test_blackbox.bbl");
+        File file = Paths.get(res.toURI()).toFile();
+        URL expectedRes = TestBlackboxDecoder.class.getClassLoader().getResource("test_blackbox_rows.csv");
+        List<String> expected = Files.readAllLines(Paths.get(expectedRes.toURI()));
+
+        try (BlackboxDecoder decoder = new BlackboxDecoder(file.getAbsolutePath())) {
+
+            int rowIdx = 0;
+            String row;
+            while ((row = decoder.readRow()) != null) {
+                if (rowIdx >= expected.size() || !row.equals(expected.get(rowIdx))) {
+                    throw new AssertionError("Wrong row " + rowIdx + ": " + row + " instead of "
+                            + (rowIdx < expected.size() ? expected.get(rowIdx) : "end of log"));
+                }
+                ++rowIdx;
+            }
+
+            if (rowIdx != expected.size()) {
+                throw new AssertionError(rowIdx + " rows decoded instead of " + expected.size());
+            }
+            if (decoder.getLogs() != 2 || decoder.getDroppedFrames() != DROPPED_FRAMES) {
+                throw new AssertionError(decoder.getLogs() + " logs and " + decoder.getDroppedFrames()
+                        + " dropped frames instead of 2 and " + DROPPED_FRAMES);
+            }
+
+            System.out.println("BlackboxDecoder decodes " + (rowIdx - 1) + " rows of " + decoder.getLogs() + " logs");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.csvoptimizer;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Feeds a few rows to {@link EventDetector} with default parameters and checks exact events written by every rule:
+ * failsafe entry, phase change and exit, GPS fix by flag and satellites, barometer jump with hold-off,
+ * current spike over the window mean and motor saturation reported once per motor.
+ */
+public class TestEventDetector {
+
+    private static final String[] COLUMNS = {
+            TIME_COLUMN_NAME, GPX_DATE_COLUMN_HEADER, FAILSAFE_PHASE_HEADER, STATE_HEADER, GPS_NUM_SAT_COLUMN_NAME,
+            BARO_ALT_COLUMN_NAME, AMPERAGE_COLUMN_NAME, MOTOR_COLUMN_NAMES[0], MOTOR_COLUMN_NAMES[1],
+            MOTOR_COLUMN_NAMES[2], MOTOR_COLUMN_NAMES[3]
+    };
+
+    private static final String[][] ROWS = {
+            {"0", "d0", "IDLE", "GPS_FIX_HOME|GPS_FIX", "8", "100", "2", "1000", "1000", "1000", "1000"},
+            {"50000", "d1", "IDLE", "GPS_FIX_HOME", "8", "300", "2.2", "1000", "2000", "1000", "1000"},
+            {"100000", "d2", "RX_LOSS_DETECTED", "GPS_FIX", "5", "700", "9", "1000", "2000", "1000", "1000"},
+            {"150000", "d3", "LANDING", "GPS_FIX", "6", "720", "20", "1000", "2000", "1000", "1995"},
+            {"250000", "d4", "0", "GPS_FIX", "7", "720", "3", "1000", "2000", "1000", "1995"},
+            {"400000", "d5", "IDLE", "GPS_FIX", "7", "100", "3", "1000", "1500", "1000", "1995"},
+    };
+
+    private static final List<String> EXPECTED_EVENTS = Arrays.asList(
+            "time (us),gpxDate,event,detail",
+            "0,d0,gpsFix,acquired; satellites 8",
+            "50000,d1,gpsFix,lost; satellites 8",
+            "100000,d2,failsafe,enter RX_LOSS_DETECTED",
+            "100000,d2,baroJump,+600 cm in 100 ms",
+            "100000,d2,currentSpike,9.00 A; mean 2.10 A",
+            "150000,d3,failsafe,phase LANDING",
+            "150000,d3,gpsFix,acquired; satellites 6",
+            "150000,d3,motorSaturation,motor[1] at 2000",
+            "250000,d4,failsafe,exit LANDING",
+            "250000,d4,motorSaturation,motor[3] at 1995",
+            "400000,d5,baroJump,-620 cm in 150 ms");
+
+    public static void main(String[] args) throws Exception {
+
+        File eventsFile = File.createTempFile("events", ".csv");
+        try {
+            EventDetector detector = new EventDetector(eventsFile.getPath(), new HashMap<>());
+            for (String[] row : ROWS) {
+                detector.onRow(COLUMNS, Arrays.asList(row), 0);
+            }
+            detector.close();
+
+            List<String> events = Files.readAllLines(eventsFile.toPath());
+            if (!events.equals(EXPECTED_EVENTS)) {
+                throw new AssertionError("Wrong events:\n" + String.join("\n", events)
+                        + "\ninstead of\n" + String.join("\n", EXPECTED_EVENTS));
+            }
+        } finally {
+            eventsFile.delete();
+        }
+
+        System.out.println("EventDetector reports events of all rules");
+    }
+}
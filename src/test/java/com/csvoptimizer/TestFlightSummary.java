@@ -0,0 +1,62 @@
+package com.csvoptimizer;
+
+import java.util.Arrays;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Checks exact JSON of {@link FlightSummary} accumulated from a few rows: duration, extremes in meters,
+ * consumed energy, failsafe entries, undefined values and combining summaries with {@link FlightSummary#add}.
+ */
+public class TestFlightSummary {
+
+    private static final String[] COLUMNS = {
+            "loopIteration", TIME_COLUMN_NAME, BARO_ALT_COLUMN_NAME, GPS_ALTITUDE_COLUMN_NAME, V_SPEED_BARO_HEADER,
+            GPS_SPEED_COLUMN_NAME, ENERGY_COLUMN_NAME, VBAT_COLUMN_NAME, FAILSAFE_PHASE_HEADER
+    };
+
+    public static void main(String[] args) throws Exception {
+
+        FlightSummary first = new FlightSummary("first.csv", null);
+        onRow(first, "0", "1000000", "120", "1005", "10", "2.5", "100", "16.4", "IDLE");
+        onRow(first, "1", "1500000", "350", "1010", "-30", "", "104", "16.1", "RX_LOSS_DETECTED");
+        onRow(first, "2", "2000000", "abc", "998", "55.5", "4.25", "110", "15.8", "LANDING");
+        onRow(first, "3", "3250000", "300", "1001", "0", "3", "121", "", "IDLE");
+        onRow(first, "4", "3500000", "200", "1000", "", "1", "122", "16.0", "LANDED");
+
+        check(first.toJson(), "{\"file\":\"first.csv\",\"rows\":5,\"durationSec\":2.500,\"maxBaroAltM\":3.50,"
+                + "\"maxGpsAltitudeM\":101.00,\"maxVSpeedMs\":0.56,\"maxGpsSpeedMs\":4.25,\"energyMah\":22,"
+                + "\"minVbatV\":15.80,\"failsafeCount\":2}", "summary of rows");
+
+        FlightSummary empty = new FlightSummary("\"quoted\".csv", null);
+        onRow(empty, "0", "7", "", "", "", "", "", "", "");
+        check(empty.toJson(), "{\"file\":\"\\\"quoted\\\".csv\",\"rows\":1,\"durationSec\":0.000,\"maxBaroAltM\":null,"
+                + "\"maxGpsAltitudeM\":null,\"maxVSpeedMs\":null,\"maxGpsSpeedMs\":null,\"energyMah\":0,"
+                + "\"minVbatV\":null,\"failsafeCount\":0}", "summary of undefined values");
+
+        FlightSummary second = new FlightSummary("second.csv", null);
+        onRow(second, "0", "0", "900", "950", "-120", "7.5", "5", "15.2", "RX_LOSS_DETECTED");
+        onRow(second, "1", "4000000", "800", "960", "-10", "6", "45", "15.5", "IDLE");
+
+        FlightSummary total = new FlightSummary("total", null);
+        total.add(first);
+        total.add(empty);
+        total.add(second);
+        check(total.toJson(), "{\"file\":\"total\",\"rows\":8,\"durationSec\":6.500,\"maxBaroAltM\":9.00,"
+                + "\"maxGpsAltitudeM\":101.00,\"maxVSpeedMs\":0.56,\"maxGpsSpeedMs\":7.50,\"energyMah\":62,"
+                + "\"minVbatV\":15.20,\"failsafeCount\":3}", "combined summary");
+        check(total.toCsv(), "total,8,6.500,9.00,101.00,0.56,7.50,62,15.20,3", "combined summary in CSV");
+
+        System.out.println("FlightSummary accumulates and combines statistics");
+    }
+
+    private static void onRow(FlightSummary summary, String... values) {
+        summary.onRow(COLUMNS, Arrays.asList(values), 0);
+    }
+
+    private static void check(String actual, String expected, String what) {
+        if (!actual.equals(expected)) {
+            throw new AssertionError("Wrong " + what + ":\n" + actual + "\ninstead of\n" + expected);
+        }
+    }
+}
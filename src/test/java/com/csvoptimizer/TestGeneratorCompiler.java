@@ -0,0 +1,106 @@
+package com.csvoptimizer;
+
+import java.util.Arrays;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Checks values of generators compiled by {@link GeneratorCompiler}: precedence and associativity of expressions,
+ * functions, undefined values, mapping of flags, windowed mean, slope and delta, and errors of wrong definitions.
+ */
+public class TestGeneratorCompiler {
+
+    private static final String[] COLUMNS = {TIME_COLUMN_NAME, "a", "b", "mode (flags)"};
+
+    private static final GeneratorCompiler COMPILER = new GeneratorCompiler(COLUMNS);
+
+    public static void main(String[] args) throws Exception {
+
+        testExpressions();
+        testMapping();
+        testWindows();
+        testErrors();
+
+        System.out.println("GeneratorCompiler compiles definitions");
+    }
+
+    private static void testExpressions() throws Exception {
+
+        String[] row = {"0", "3", "2.5", ""};
+        check("expr:\"a\" * \"b\"", row, "7.5");
+        check("expr: -\"a\" + 2 * (\"b\" - 1)", row, "0");
+        check("expr:1 - 2 - 3", row, "-4");
+        check("expr:8 / 2 / 2", row, "2");
+        check("expr:.5*3", row, "1.5");
+        check("expr:max(abs(-\"a\"), sqrt(16)) + min(1, 2)", row, "5");
+        check("expr:\"a\" / 0", row, "");
+        check("expr:\"a\" * \"b\"", new String[]{"0", "x", "2.5", ""}, "");
+    }
+
+    private static void testMapping() throws Exception {
+
+        String mapping = "map:\"mode (flags)\":ANGLE=1; HORIZON = 2;*=0";
+        check(mapping, new String[]{"0", "0", "0", "ARMED|HORIZON"}, "2");
+        check(mapping, new String[]{"0", "0", "0", " ANGLE|HORIZON "}, "1");
+        check(mapping, new String[]{"0", "0", "0", "ANGLE_HOLD"}, "0");
+        check("map:\"mode (flags)\":ANGLE=1", new String[]{"0", "0", "0", "ARMED"}, "");
+    }
+
+    private static void testWindows() throws Exception {
+
+        FieldGenerator mean = COMPILER.compile("mean:1000:\"a\"");
+        FieldGenerator slope = COMPILER.compile("slope: 1000 :\"a\"");
+        FieldGenerator delta = COMPILER.compile("delta:1000:\"a\"");
+
+        String[][] rows = {{"0", "", "", ""}, {"0", "1", "", ""}, {"500000", "3", "", ""}, {"600000", "x", "", ""},
+                {"1250000", "6", "", ""}};
+        String[][] expected = {{"", "", ""}, {"1", "", "0"}, {"2", "4", "2"}, {"2", "4", "2"}, {"4.5", "4", "3"}};
+
+        for (int i = 0; i < rows.length; ++i) {
+            String[] actual = {generate(mean, rows[i]), generate(slope, rows[i]), generate(delta, rows[i])};
+            if (!Arrays.equals(actual, expected[i])) {
+                throw new AssertionError("Mean, slope and delta of row " + i + " are " + Arrays.toString(actual)
+                        + " instead of " + Arrays.toString(expected[i]));
+            }
+        }
+    }
+
+    private static void testErrors() {
+        checkError("\"a\" + \"b\"", "Type of generator is not specified");
+        checkError("sum:\"a\"", "Unknown type of generator: sum");
+        checkError("expr:\"c\" + 1", "Unknown column: c");
+        checkError("expr:\"a\" +", "Unexpected symbol at 5");
+        checkError("expr:(\"a\" + 1", "Expected ')' at 8");
+        checkError("expr:\"a\" 2", "Unexpected symbol at 4");
+        checkError("expr:\"a", "Column name is not closed");
+        checkError("expr:pow(2, 3)", "Unknown function: pow");
+        checkError("expr:abs(1, 2)", "Unknown function: abs");
+        checkError("map:\"a\":ANGLE", "Wrong mapping: ANGLE");
+        checkError("map:\"a\"", "Expected ':' at 3");
+        checkError("mean:\"a\"", "Window is not specified");
+        checkError("slope:1000:\"a\" \"b\"", "Unexpected symbol at 4");
+    }
+
+    private static void check(String definition, String[] row, String expected) throws Exception {
+        String actual = generate(COMPILER.compile(definition), row);
+        if (!actual.equals(expected)) {
+            throw new AssertionError("Value of " + definition + " is " + actual + " instead of " + expected);
+        }
+    }
+
+    private static String generate(FieldGenerator generator, String[] row) throws Exception {
+        return generator.generateValue(COLUMNS, Arrays.asList(row), COLUMNS.length);
+    }
+
+    private static void checkError(String definition, String message) {
+        try {
+            COMPILER.compile(definition);
+        } catch (IllegalArgumentException e) {
+            if (!e.getMessage().startsWith(message)) {
+                throw new AssertionError("Wrong error of " + definition + ": " + e.getMessage());
+            }
+            return;
+        }
+        throw new AssertionError("Wrong definition is compiled: " + definition);
+    }
+}
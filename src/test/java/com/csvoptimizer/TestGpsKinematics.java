@@ -0,0 +1,57 @@
+package com.csvoptimizer;
+
+/**
+ * Checks distances and bearings of {@link GpsKinematics} on known points: a degree along the equator
+ * and a meridian, Paris to London, home set by the first point having it, and points without fix being ignored.
+ */
+public class TestGpsKinematics {
+
+    public static void main(String[] args) {
+
+        GpsKinematics kinematics = new GpsKinematics();
+
+        kinematics.update("0", "1", false);
+        check(kinematics, "0.0", "", "", "point without home");
+
+        // Home is set on the same coordinates once it is reported.
+        kinematics.update("0", "1", true);
+        check(kinematics, "0.0", "0.0", "0.0", "point at home");
+
+        // A degree of the equator is 111195.08 m with the mean radius of the Earth, home is to the west.
+        kinematics.update("0", "2", true);
+        check(kinematics, "111195.1", "111195.1", "270.0", "point to the east");
+
+        // A degree of the meridian is the same, home is to the south-west.
+        kinematics.update("1", "2", true);
+        check(kinematics, "222390.2", "157249.6", "225.0", "point to the north-east");
+        kinematics.update("1", "2", true);
+        check(kinematics, "222390.2", "157249.6", "225.0", "the same point");
+
+        // Points without fix are ignored.
+        kinematics.update("0", "0", true);
+        check(kinematics, "222390.2", "157249.6", "225.0", "zero point");
+        kinematics.update("", "abc", true);
+        check(kinematics, "222390.2", "157249.6", "225.0", "invalid point");
+
+        kinematics.update("-1", "1", true);
+        check(kinematics, "471027.4", "111195.1", "0.0", "point to the south");
+
+        // London is 343.6 km from Paris, the initial bearing is 330 degrees.
+        GpsKinematics flight = new GpsKinematics();
+        flight.update("51.5074", "-0.1278", true);
+        flight.update("48.8566", "2.3522", true);
+        check(flight, "343556.5", "343556.5", "330.0", "Paris with home in London");
+
+        System.out.println("GpsKinematics calculates distances and bearings");
+    }
+
+    private static void check(GpsKinematics kinematics, String distance, String homeDistance, String homeBearing,
+                              String what) {
+        if (!kinematics.getDistance().equals(distance) || !kinematics.getHomeDistance().equals(homeDistance)
+                || !kinematics.getHomeBearing().equals(homeBearing)) {
+            throw new AssertionError("Wrong kinematics of " + what + ": " + kinematics.getDistance() + ", "
+                    + kinematics.getHomeDistance() + ", " + kinematics.getHomeBearing() + " instead of "
+                    + distance + ", " + homeDistance + ", " + homeBearing);
+        }
+    }
+}
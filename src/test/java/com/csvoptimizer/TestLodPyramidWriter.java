@@ -0,0 +1,89 @@
+package com.csvoptimizer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Checks exact rows of levels written by {@link LodPyramidWriter} with factor 2: means with minimums and maximums,
+ * buckets without values, full buckets cascading into the next level, a change of state closing buckets of all
+ * levels and incomplete buckets written on close.
+ */
+public class TestLodPyramidWriter {
+
+    private static final String[] COLUMNS = {TIME_COLUMN_NAME, "value", "mode"};
+
+    private static final String HEADER = String.join(CSV_DELIMITER, TIME_COLUMN_NAME, "value",
+            "value" + LOD_MIN_SUFFIX, "value" + LOD_MAX_SUFFIX, "mode", LOD_ROWS_HEADER);
+
+    public static void main(String[] args) throws Exception {
+
+        Path dir = Files.createTempDirectory("lod");
+        try {
+            testCascade(dir);
+            testStateChanges(dir);
+        } finally {
+            for (Path file : Files.newDirectoryStream(dir)) {
+                Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+
+        System.out.println("LodPyramidWriter writes levels of detail");
+    }
+
+    private static void testCascade(Path dir) throws Exception {
+
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < 8; ++i) {
+            rows.add(new String[]{String.valueOf(i), String.valueOf(i + 1), "A"});
+        }
+
+        String output = write(dir.resolve("cascade.csv").toString(), rows);
+        check(output, 1, "0,1.5,1,2,A,2", "2,3.5,3,4,A,2", "4,5.5,5,6,A,2", "6,7.5,7,8,A,2");
+        check(output, 2, "0,2.5,1,4,A,4", "4,6.5,5,8,A,4");
+        check(output, 3, "0,4.5,1,8,A,8");
+    }
+
+    // A change of mode closes the lowest bucket not empty, so the level above it is closed early as well.
+    private static void testStateChanges(Path dir) throws Exception {
+
+        List<String[]> rows = Arrays.asList(
+                new String[]{"0", "1", "A"}, new String[]{"1", "2.5", "A"}, new String[]{"2", "5", "A"},
+                new String[]{"3", "7", "A"}, new String[]{"4", "", "B"}, new String[]{"5", "x", "B"},
+                new String[]{"6", " 10 ", "A"});
+
+        String output = write(dir.resolve("states.csv").toString(), rows);
+        check(output, 1, "0,1.75,1,2.5,A,2", "2,6,5,7,A,2", "4,,,,B,2", "6,10,10,10,A,1");
+        check(output, 2, "0,3.875,1,7,A,4", "4,,,,B,2", "6,10,10,10,A,1");
+        check(output, 3, "0,3.875,1,7,A,4", "4,,,,B,2", "6,10,10,10,A,1");
+    }
+
+    private static String write(String output, List<String[]> rows) throws Exception {
+        LodPyramidWriter writer = new LodPyramidWriter(output, 3, 2);
+        for (String[] row : rows) {
+            writer.onRow(COLUMNS, Arrays.asList(row), 0);
+        }
+        writer.close();
+        return output;
+    }
+
+    private static void check(String output, int level, String... rows) throws IOException {
+
+        List<String> expected = new ArrayList<>();
+        expected.add(HEADER);
+        expected.addAll(Arrays.asList(rows));
+
+        List<String> actual = Files.readAllLines(Paths.get(LodPyramidWriter.getPathToLevelFile(output, level)));
+        if (!actual.equals(expected)) {
+            throw new AssertionError("Wrong rows of level " + level + ":\n" + String.join("\n", actual)
+                    + "\ninstead of\n" + String.join("\n", expected));
+        }
+    }
+}
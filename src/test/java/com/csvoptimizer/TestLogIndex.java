@@ -0,0 +1,120 @@
+package com.csvoptimizer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Writes index of a small converted file with {@link LogIndexWriter} and checks lookups of {@link LogIndex}:
+ * offsets by time, seeking to rows between indexed ones and changes of indexed columns.
+ */
+public class TestLogIndex {
+
+    private static final String[] COLUMNS = {
+            TIME_COLUMN_NAME, FLIGHT_MODE_INDICATOR_HEADER, STATE_INDICATOR_HEADER,
+            FAILSAFE_PHASE_INDICATOR_HEADER, STATUS_ICON_INDICATOR_HEADER, "value"
+    };
+
+    // Time, flight mode and value of rows; other indicators don't change.
+    private static final String[][] ROWS = {
+            {"0", "0", "a"}, {"400000", "0", "b"}, {"900000", "1", "c"}, {"1000000", "1", "d"},
+            {"1500000", "1", "e"}, {"2100000", "1", "f"}, {"2200000", "2", "g"}, {"3500000", "2", "h"}
+    };
+
+    public static void main(String[] args) throws Exception {
+
+        File file = File.createTempFile("indexed", ".csv");
+        File indexFile = new File(LogIndex.getPathToIndexFile(file.getPath()));
+        try {
+            long[] offsets = writeIndexedFile(file);
+            LogIndex index = LogIndex.open(file.getPath());
+
+            // Rows are indexed once a second: at 0, 1000000, 2100000 and 3500000 us.
+            check(index.findOffset(-1), offsets[0], "offset before the first row");
+            check(index.findOffset(0), offsets[0], "offset of the first row");
+            check(index.findOffset(999999), offsets[0], "offset before the second indexed row");
+            check(index.findOffset(1200000), offsets[3], "offset between indexed rows");
+            check(index.findOffset(2100000), offsets[5], "offset of indexed row");
+            check(index.findOffset(Long.MAX_VALUE), offsets[7], "offset after the last row");
+
+            checkSeek(index, 1200000, "1500000,1,0,0,0,e");
+            checkSeek(index, 1000000, "1000000,1,0,0,0,d");
+            checkSeek(index, 2150000, "2200000,2,0,0,0,g");
+            checkSeek(index, 3500001, null);
+
+            List<LogIndex.Event> modes = index.getEvents(FLIGHT_MODE_INDICATOR_HEADER);
+            check(modes.size(), 3, "changes of flight mode");
+            check(modes.get(1).getTimeUs(), 900000, "time of the second flight mode");
+            check(modes.get(1).getOffset(), offsets[2], "offset of the second flight mode");
+            check(index.getEvents(STATE_INDICATOR_HEADER).size(), 1, "changes of state");
+
+            LogIndex.Event event = index.findEvent(FLIGHT_MODE_INDICATOR_HEADER, 900001);
+            if (event == null || !event.getValue().equals("2") || event.getTimeUs() != 2200000) {
+                throw new AssertionError("Wrong flight mode found after 900001 us: " + event);
+            }
+            if (index.findEvent(FLIGHT_MODE_INDICATOR_HEADER, 2200001) != null) {
+                throw new AssertionError("Flight mode found after the last change");
+            }
+            try (BufferedReader reader = index.openAt(event)) {
+                check(reader.readLine(), "2200000,2,0,0,0,g", "row of event");
+            }
+        } finally {
+            file.delete();
+            indexFile.delete();
+        }
+
+        System.out.println("LogIndex finds rows by time and by event");
+    }
+
+    // Writes rows the way the converter does, returns offsets of rows.
+    private static long[] writeIndexedFile(File file) throws IOException {
+
+        long[] offsets = new long[ROWS.length];
+        LogIndexWriter indexWriter = new LogIndexWriter(LogIndex.getPathToIndexFile(file.getPath()), 1000);
+        try (Writer writer = new FileWriter(file)) {
+
+            String header = String.join(CSV_DELIMITER, COLUMNS) + "\n";
+            writer.write(header);
+            long offset = header.length();
+
+            for (int i = 0; i < ROWS.length; ++i) {
+                List<String> values = new ArrayList<>(Arrays.asList(ROWS[i][0], ROWS[i][1], "0", "0", "0", ROWS[i][2]));
+                indexWriter.onRow(COLUMNS, values, offset);
+                offsets[i] = offset;
+
+                String row = String.join(CSV_DELIMITER, values) + "\n";
+                writer.write(row);
+                offset += row.length();
+            }
+        } finally {
+            indexWriter.close();
+        }
+
+        return offsets;
+    }
+
+    private static void checkSeek(LogIndex index, long timeUs, String expected) throws IOException {
+        try (BufferedReader reader = index.seek(timeUs)) {
+            check(reader.readLine(), expected, "row found for " + timeUs + " us");
+        }
+    }
+
+    private static void check(Object actual, Object expected, String what) {
+        if (actual == null ? expected != null : !actual.equals(expected)) {
+            throw new AssertionError("Wrong " + what + ": " + actual + " instead of " + expected);
+        }
+    }
+
+    private static void check(long actual, long expected, String what) {
+        if (actual != expected) {
+            throw new AssertionError("Wrong " + what + ": " + actual + " instead of " + expected);
+        }
+    }
+}
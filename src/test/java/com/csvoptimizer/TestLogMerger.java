@@ -0,0 +1,125 @@
+package com.csvoptimizer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Checks that {@link LogMerger} orders rows of several logs by absolute time (start date of the log plus its time),
+ * rewrites time relative to the earliest start date, keeps order across batches and fails on missing file.
+ */
+public class TestLogMerger {
+
+    private static final long START_MILLIS = 1609502400000L;
+
+    public static void main(String[] args) throws Exception {
+
+        Path dir = Files.createTempDirectory("merge");
+        try {
+            testOrder(dir);
+            testBatches(dir);
+            testMissingFile(dir);
+        } finally {
+            for (Path file : Files.newDirectoryStream(dir)) {
+                Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+
+        System.out.println("LogMerger merges logs in order of absolute time");
+    }
+
+    private static void testOrder(Path dir) throws Exception {
+
+        // The second log starts a second later, the last one has no rows.
+        String a = writeLog(dir, "a.csv", "a0,0,x", "a1,1000000,x", "a2,3000000,x");
+        String b = writeLog(dir, "b.csv", "b0,200000,y", "b1,700000,y", "b2,1700000,y");
+        String c = writeLog(dir, "c.csv", "c0,2000000,z", "c1,4000000,z");
+        String d = writeLog(dir, "d.csv");
+
+        List<String> rows = merge(Arrays.asList(a, b, c, d), Arrays.asList(0L, 1000L, 0L, 500L));
+
+        check(rows, String.join(CSV_DELIMITER, AbstractRunnable.getInputColumns()),
+                "a0,0,x", "a1,1000000,x", "b0,1200000,y", "b1,1700000,y", "c0,2000000,z", "b2,2700000,y",
+                "a2,3000000,x", "c1,4000000,z");
+    }
+
+    // Interleaved logs of several batches each keep the merged time increasing.
+    private static void testBatches(Path dir) throws Exception {
+
+        int count = 3000;
+        String[] even = new String[count];
+        String[] odd = new String[count];
+        for (int i = 0; i < count; ++i) {
+            even[i] = "e" + i + "," + (2 * i) + ",";
+            odd[i] = "o" + i + "," + (2 * i + 1) + ",";
+        }
+        String evenLog = writeLog(dir, "even.csv", even);
+        String oddLog = writeLog(dir, "odd.csv", odd);
+
+        List<String> rows = merge(Arrays.asList(oddLog, evenLog), Arrays.asList(0L, 0L));
+        if (rows.size() != 2 * count + 1) {
+            throw new AssertionError(rows.size() + " rows merged instead of " + (2 * count + 1));
+        }
+        for (int i = 1; i < rows.size(); ++i) {
+            String expected = (i % 2 == 1 ? "e" : "o") + (i - 1) / 2 + "," + (i - 1) + ",";
+            if (!rows.get(i).equals(expected)) {
+                throw new AssertionError("Row " + i + " is " + rows.get(i) + " instead of " + expected);
+            }
+        }
+    }
+
+    private static void testMissingFile(Path dir) throws Exception {
+
+        String a = writeLog(dir, "present.csv", "a0,0,x");
+        try {
+            merge(Arrays.asList(a, dir.resolve("missing.csv").toString()), Arrays.asList(0L, 0L));
+        } catch (IOException e) {
+            return;
+        }
+        throw new AssertionError("Missing file is merged");
+    }
+
+    private static List<String> merge(List<String> paths, List<Long> startOffsetsMillis) throws IOException {
+
+        List<Calendar> startDates = new ArrayList<>();
+        for (long offset : startOffsetsMillis) {
+            Calendar date = Calendar.getInstance();
+            date.setTimeInMillis(START_MILLIS + offset);
+            startDates.add(date);
+        }
+
+        List<String> rows = new ArrayList<>();
+        try (LogMerger merger = new LogMerger(paths, startDates)) {
+            if (merger.getStartDate().getTimeInMillis() != START_MILLIS) {
+                throw new AssertionError("Start date of merged timeline isn't the earliest one");
+            }
+            String row;
+            while ((row = merger.readRow()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static String writeLog(Path dir, String name, String... rows) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.join(CSV_DELIMITER, AbstractRunnable.getInputColumns()));
+        lines.addAll(Arrays.asList(rows));
+        Path file = dir.resolve(name);
+        Files.write(file, lines);
+        return file.toString();
+    }
+
+    private static void check(List<String> actual, String... expected) {
+        if (!actual.equals(Arrays.asList(expected))) {
+            throw new AssertionError("Merged rows " + actual + " instead of " + Arrays.asList(expected));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.csvoptimizer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Checks sessions found by {@link SliceReader#scanSegments} at resets of time (equal times, empty lines and rows
+ * of invalid time don't split them, offsets and counts of rows are exact) and conversion of segments by {@link Run}:
+ * a file and a manifest entry per session, start dates following each other.
+ */
+public class TestLogSegment {
+
+    private static final String[] COLUMNS = AbstractRunnable.getInputColumns();
+
+    public static void main(String[] args) throws Exception {
+
+        Path dir = Files.createTempDirectory("segments");
+        try {
+            testScan(dir);
+            testConversion(dir);
+        } finally {
+            for (Path file : Files.newDirectoryStream(dir)) {
+                Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+
+        System.out.println("Segments are found at resets of time and converted");
+    }
+
+    private static void testScan(Path dir) throws Exception {
+
+        // The last row has no line separator.
+        List<String> lines = Arrays.asList(header(), row(0, "0"), row(1, "100"), "", row(2, "200"),
+                row(3, "50"), row(4, "50"), row(5, "x"), row(6, "300"), row(7, "0"));
+        Path file = dir.resolve("log.csv");
+        Files.write(file, String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+
+        long[] offsets = new long[lines.size() + 1];
+        for (int i = 0; i < lines.size(); ++i) {
+            offsets[i + 1] = offsets[i] + lines.get(i).length() + 1;
+        }
+        offsets[lines.size()] = Files.size(file);
+
+        List<LogSegment> segments = SliceReader.scanSegments(file.toString());
+        check(segments.size(), 3, "number of segments");
+        check(segments.get(0), 1, offsets[1], offsets[5], 4, 0, 200);
+        check(segments.get(1), 2, offsets[5], offsets[9], 4, 50, 300);
+        check(segments.get(2), 3, offsets[9], offsets[10], 1, 0, 0);
+
+        Path empty = dir.resolve("empty.csv");
+        Files.write(empty, Arrays.asList(header()));
+        check(SliceReader.scanSegments(empty.toString()).size(), 0, "number of segments without rows");
+    }
+
+    private static void testConversion(Path dir) throws Exception {
+
+        List<String> lines = new ArrayList<>();
+        lines.add(header());
+        long[] times = {0, 1000000, 1500000, 200, 300, 2500000, 0, 5};
+        for (int i = 0; i < times.length; ++i) {
+            lines.add(row(i, String.valueOf(times[i])));
+        }
+
+        Path in = dir.resolve("flight.csv");
+        Path out = dir.resolve("flight_out.csv");
+        Files.write(in, lines);
+
+        Run.main(new String[]{CLI_PARAM_IN + "=" + in, CLI_PARAM_OUT + "=" + out, CLI_PARAM_SEGMENTS + "=true",
+                CLI_PARAM_DATE + "=" + DEFAULT_START_DATE});
+
+        int[] rows = {3, 3, 2};
+        for (int i = 0; i < rows.length; ++i) {
+            Path segmentFile = dir.resolve(LogSegment.getPathToSegmentFile(out.toString(), i + 1));
+            check(Files.readAllLines(segmentFile).size(), rows[i] + 1, "number of lines of segment " + (i + 1));
+        }
+
+        // The next session starts at the next whole second after the last row of the previous one.
+        long[] offsets = new long[lines.size() + 1];
+        for (int i = 0; i < lines.size(); ++i) {
+            offsets[i + 1] = offsets[i] + lines.get(i).length() + 1;
+        }
+        String manifest = new String(Files.readAllBytes(dir.resolve(LogSegment.getPathToManifestFile(out.toString()))),
+                StandardCharsets.UTF_8).trim();
+        String expected = "{\"file\":\"flight.csv\",\"segments\":["
+                + new LogSegment(1, offsets[1], offsets[4], 3, 0, 1500000)
+                .toJson("flight_out.csv.seg1.csv", "2021-01-01" + DATE_TIME_DELIMITER + "12:00:00") + ","
+                + new LogSegment(2, offsets[4], offsets[7], 3, 200, 2500000)
+                .toJson("flight_out.csv.seg2.csv", "2021-01-01" + DATE_TIME_DELIMITER + "12:00:02") + ","
+                + new LogSegment(3, offsets[7], offsets[9], 2, 0, 5)
+                .toJson("flight_out.csv.seg3.csv", "2021-01-01" + DATE_TIME_DELIMITER + "12:00:05") + "]}";
+        check(manifest, expected, "manifest");
+    }
+
+    // Returns input row of zeros with given iteration and time.
+    private static String row(long iteration, String timeUs) {
+        String[] values = new String[COLUMNS.length];
+        Arrays.fill(values, "0");
+        values[0] = String.valueOf(iteration);
+        values[1] = timeUs;
+        return String.join(CSV_DELIMITER, values);
+    }
+
+    private static String header() {
+        return String.join(CSV_DELIMITER, COLUMNS);
+    }
+
+    private static void check(LogSegment segment, int index, long startOffset, long endOffset, long rows,
+                              long firstTimeUs, long lastTimeUs) {
+        String actual = segment.toJson("", "");
+        String expected = new LogSegment(index, startOffset, endOffset, rows, firstTimeUs, lastTimeUs).toJson("", "");
+        check(actual, expected, "segment");
+    }
+
+    private static void check(Object actual, Object expected, String what) {
+        if (!actual.equals(expected)) {
+            throw new AssertionError("Wrong " + what + ": " + actual + " instead of " + expected);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.csvoptimizer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Differential test of {@link NumberParser} against {@link Double#parseDouble} and {@link Long#parseLong}:
+ * random decimals of up to 25 digits (including 19-digit mantissas above Long.MAX_VALUE), with and without
+ * exponents, and shortest representations of random doubles are compared bit for bit.
+ */
+public class TestNumberParser {
+
+    private static final int INPUTS = 3000000;
+    private static final long SEED = 42;
+
+    public static void main(String[] args) {
+
+        String[] known = {
+                "94.56865619619005734", "9582974787431554840.", "9223372036854775807", "9223372036854775808",
+                "99999999999999999999", "0.1", "-0", "1e22", "1e23", "2.2250738585072014E-308", "4.9e-324",
+                "1.7976931348623157e308", "123456789012345678", "0000000000000000000000012.5"
+        };
+        for (String value : known) {
+            check(value);
+        }
+
+        Random random = new Random(SEED);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < INPUTS; ++i) {
+            builder.setLength(0);
+
+            if (i % 4 == 0) {
+                builder.append(Double.longBitsToDouble(random.nextLong() & 0x7FEFFFFFFFFFFFFFL));
+            } else {
+                if (random.nextBoolean()) {
+                    builder.append('-');
+                }
+                int digits = 1 + random.nextInt(25);
+                int separator = random.nextInt(digits + 1);
+                for (int d = 0; d < digits; ++d) {
+                    if (d == separator) {
+                        builder.append('.');
+                    }
+                    builder.append((char) ('0' + random.nextInt(10)));
+                }
+                if (i % 4 == 3) {
+                    builder.append('e').append(random.nextInt(700) - 350);
+                }
+            }
+
+            check(builder.toString());
+            if (i % 4 == 1 && builder.indexOf(".") < 0) {
+                checkLong(builder.toString());
+            }
+        }
+
+        System.out.println("NumberParser matches Double.parseDouble on " + (INPUTS + known.length) + " inputs");
+    }
+
+    private static void check(String value) {
+
+        double expected = Double.parseDouble(value);
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        double fromString = NumberParser.parseDouble(value);
+        double fromBytes = NumberParser.parseDouble(bytes, 0, bytes.length);
+
+        if (Double.doubleToLongBits(expected) != Double.doubleToLongBits(fromString)
+                || Double.doubleToLongBits(expected) != Double.doubleToLongBits(fromBytes)) {
+            throw new AssertionError("Wrong value of " + value + ": " + fromString + ", " + fromBytes
+                    + " instead of " + expected);
+        }
+    }
+
+    private static void checkLong(String value) {
+
+        long expected;
+        try {
+            expected = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            expected = Long.MIN_VALUE;
+        }
+
+        long actual = NumberParser.parseLong(value, Long.MIN_VALUE);
+        if (actual != expected) {
+            throw new AssertionError("Wrong value of " + value + ": " + actual + " instead of " + expected);
+        }
+    }
+}
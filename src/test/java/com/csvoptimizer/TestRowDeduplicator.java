@@ -0,0 +1,95 @@
+package com.csvoptimizer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Checks rows accepted by {@link RowDeduplicator}: changes of watched columns, heartbeat interval, fields of different
+ * length, rows with colliding hashes of fields ("Aa" and "BB") and watching all columns but time and iteration.
+ */
+public class TestRowDeduplicator {
+
+    private static final String[] COLUMNS = AbstractRunnable.getInputColumns();
+
+    public static void main(String[] args) {
+
+        testWatchedColumns();
+        testAllColumns();
+
+        System.out.println("RowDeduplicator collapses repeated rows");
+    }
+
+    private static void testWatchedColumns() {
+
+        RowDeduplicator deduplicator = new RowDeduplicator(
+                Arrays.asList(BARO_ALT_COLUMN_NAME, GPS_NUM_SAT_COLUMN_NAME), 100);
+
+        check(deduplicator, true, row(0, 0, BARO_ALT_COLUMN_NAME, "Aa", GPS_NUM_SAT_COLUMN_NAME, "7"), "the first row");
+        check(deduplicator, false, row(1, 10000, BARO_ALT_COLUMN_NAME, "Aa", GPS_NUM_SAT_COLUMN_NAME, "7",
+                MOTOR_COLUMN_NAMES[0], "1500"), "row changing not watched column");
+        check(deduplicator, true, row(2, 20000, BARO_ALT_COLUMN_NAME, "BB", GPS_NUM_SAT_COLUMN_NAME, "7"),
+                "row with colliding hash");
+        check(deduplicator, false, row(3, 30000, BARO_ALT_COLUMN_NAME, "BB", GPS_NUM_SAT_COLUMN_NAME, "7"),
+                "repeated row");
+        check(deduplicator, false, row(4, 119999, BARO_ALT_COLUMN_NAME, "BB", GPS_NUM_SAT_COLUMN_NAME, "7"),
+                "row before heartbeat");
+        check(deduplicator, true, row(5, 120000, BARO_ALT_COLUMN_NAME, "BB", GPS_NUM_SAT_COLUMN_NAME, "7"),
+                "row of heartbeat");
+        check(deduplicator, true, row(6, 130000, BARO_ALT_COLUMN_NAME, "BB", GPS_NUM_SAT_COLUMN_NAME, "17"),
+                "row with longer field");
+
+        // Row truncated before watched column has it empty.
+        String truncated = String.join(CSV_DELIMITER, Arrays.asList(COLUMNS).subList(0, 5)).replaceAll("[^,]+", "0");
+        check(deduplicator, true, truncated, "truncated row");
+        check(deduplicator, false, truncated, "repeated truncated row");
+
+        checkCounts(deduplicator, 5, 4);
+    }
+
+    private static void testAllColumns() {
+
+        RowDeduplicator deduplicator = new RowDeduplicator(Collections.emptyList(), 0);
+
+        check(deduplicator, true, row(0, 0), "the first row");
+        check(deduplicator, false, row(1, 1000000000), "row changing time and iteration");
+        check(deduplicator, true, row(2, 1000001000, COLUMNS[COLUMNS.length - 1], "90"), "row changing the last column");
+        check(deduplicator, true, row(3, 1000002000, COLUMNS[2], "-1", COLUMNS[COLUMNS.length - 1], "90"),
+                "row changing the first column after time");
+        check(deduplicator, false, row(4, 1000003000, COLUMNS[2], "-1", COLUMNS[COLUMNS.length - 1], "90"),
+                "repeated row");
+
+        checkCounts(deduplicator, 3, 2);
+    }
+
+    // Returns input row of zeros with given iteration, time and values of columns given by name and value.
+    private static String row(long iteration, long timeUs, String... namesAndValues) {
+
+        String[] values = new String[COLUMNS.length];
+        Arrays.fill(values, "0");
+        values[0] = String.valueOf(iteration);
+        values[1] = String.valueOf(timeUs);
+
+        List<String> columns = Arrays.asList(COLUMNS);
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            values[columns.indexOf(namesAndValues[i])] = namesAndValues[i + 1];
+        }
+
+        return String.join(CSV_DELIMITER, values);
+    }
+
+    private static void check(RowDeduplicator deduplicator, boolean expected, String row, String what) {
+        if (deduplicator.accept(row) != expected) {
+            throw new AssertionError((expected ? "Skipped " : "Accepted ") + what + ": " + row);
+        }
+    }
+
+    private static void checkCounts(RowDeduplicator deduplicator, long accepted, long skipped) {
+        if (deduplicator.getRowsAccepted() != accepted || deduplicator.getRowsSkipped() != skipped) {
+            throw new AssertionError("Rows accepted and skipped: " + deduplicator.getRowsAccepted() + ", "
+                    + deduplicator.getRowsSkipped() + " instead of " + accepted + ", " + skipped);
+        }
+    }
+}
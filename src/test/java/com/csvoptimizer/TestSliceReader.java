@@ -0,0 +1,210 @@
+package com.csvoptimizer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Checks offsets of time ranges found by binary search of {@link SliceReader} against a linear scan (times repeat,
+ * bounds fall on rows, between them and outside of the log), rows read between them, line endings and a log
+ * without rows, and rows accepted by {@link RowFilter}: time range, conditions on numbers, text and flags.
+ */
+public class TestSliceReader {
+
+    private static final String[] COLUMNS = AbstractRunnable.getInputColumns();
+
+    // Enough rows for binary search to be used before the scan.
+    private static final int ROWS = 30000;
+
+    public static void main(String[] args) throws Exception {
+
+        Path dir = Files.createTempDirectory("slice");
+        try {
+            testRanges(dir);
+            testLineEndings(dir);
+            testRowFilter();
+        } finally {
+            for (Path file : Files.newDirectoryStream(dir)) {
+                Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+
+        System.out.println("SliceReader and RowFilter select rows of range");
+    }
+
+    private static void testRanges(Path dir) throws Exception {
+
+        // Every three rows have the same time, times are 1 ms apart.
+        List<String> rows = new ArrayList<>();
+        long[] times = new long[ROWS];
+        for (int i = 0; i < ROWS; ++i) {
+            times[i] = 1000000 + i / 3 * 1000;
+            rows.add(row(i, times[i]));
+        }
+        Path file = write(dir, "log.csv", "\n", rows);
+
+        long[] offsets = new long[ROWS + 1];
+        offsets[0] = header().length() + 1;
+        for (int i = 0; i < ROWS; ++i) {
+            offsets[i + 1] = offsets[i] + rows.get(i).length() + 1;
+        }
+
+        List<long[]> ranges = new ArrayList<>(Arrays.asList(
+                new long[]{Long.MIN_VALUE, Long.MAX_VALUE}, new long[]{0, 999999}, new long[]{0, 1000000},
+                new long[]{1000000, 1000000}, new long[]{1000001, 1001999}, new long[]{1000500, 1003000},
+                new long[]{times[ROWS - 1], Long.MAX_VALUE}, new long[]{times[ROWS - 1] + 1, Long.MAX_VALUE},
+                new long[]{Long.MIN_VALUE, 5000000}, new long[]{5000000, 2000000}));
+        Random random = new Random(1);
+        for (int i = 0; i < 200; ++i) {
+            long from = 999000 + random.nextInt(ROWS / 3 * 1000 + 2000);
+            ranges.add(new long[]{from, from + random.nextInt(3000)});
+        }
+
+        for (long[] range : ranges) {
+
+            // Expected bounds are the first row not before the range and the first row after it.
+            int first = 0;
+            while (first < ROWS && times[first] < range[0]) {
+                ++first;
+            }
+            int end = 0;
+            while (end < ROWS && times[end] <= range[1]) {
+                ++end;
+            }
+
+            try (SliceReader reader = new SliceReader(file.toString(), range[0], range[1])) {
+                String what = "range " + range[0] + ".." + range[1];
+                check(reader.getStartOffset(), offsets[first], "start offset of " + what);
+                check(reader.getEndOffset(), offsets[end], "end offset of " + what);
+
+                List<String> read = readAll(reader);
+                List<String> expected = new ArrayList<>();
+                expected.add(header());
+                // Reversed range has no rows.
+                expected.addAll(rows.subList(first, Math.max(first, end)));
+                if (!read.equals(expected)) {
+                    throw new AssertionError("Wrong rows of " + what + ": " + read.size() + " rows instead of "
+                            + expected.size());
+                }
+            }
+        }
+    }
+
+    private static void testLineEndings(Path dir) throws Exception {
+
+        // Rows end with CR LF, the last one has no line separator.
+        Path file = write(dir, "crlf.csv", "\r\n", Arrays.asList(row(0, 100), row(1, 200), row(2, 300)));
+        Files.write(file, Arrays.copyOf(Files.readAllBytes(file), (int) Files.size(file) - 2));
+        try (SliceReader reader = new SliceReader(file.toString(), 150, 300)) {
+            check(readAll(reader), Arrays.asList(header(), row(1, 200), row(2, 300)), "rows of CR LF log");
+        }
+
+        Path empty = write(dir, "empty.csv", "\n", Collections.emptyList());
+        try (SliceReader reader = new SliceReader(empty.toString(), 150, 300)) {
+            check(reader.getStartOffset(), Files.size(empty), "start offset of log without rows");
+            check(readAll(reader), Collections.singletonList(header()), "rows of log without rows");
+        }
+    }
+
+    private static void testRowFilter() {
+
+        RowFilter filter = new RowFilter(2000, 5000, Arrays.asList(GPS_NUM_SAT_COLUMN_NAME + ">=6",
+                STATE_HEADER + " ~ GPS_FIX", " ", FAILSAFE_PHASE_HEADER + "!=LANDING"));
+
+        String state = STATE_HEADER;
+        String sat = GPS_NUM_SAT_COLUMN_NAME;
+        check(filter.accept(row(0, 1000, sat, "8", state, "GPS_FIX")), false, "row before range");
+        check(filter.accept(row(1, 2000, sat, "8", state, "GPS_FIX_HOME|GPS_FIX")), true, "row with flag");
+        check(filter.accept(row(2, 2500, sat, "5", state, "GPS_FIX")), false, "row with few satellites");
+        check(filter.accept(row(3, 3000, sat, "", state, "GPS_FIX")), false, "row without satellites");
+        check(filter.accept(row(4, 3500, sat, " 6 ", state, "ARMED GPS_FIX")), true, "row with spaces");
+        check(filter.accept(row(5, 4000, sat, "6", state, "GPS_FIX_HOME")), false, "row without flag");
+        check(filter.accept(row(6, 4500, sat, "6", state, "GPS_FIX", FAILSAFE_PHASE_HEADER, " LANDING")), false,
+                "row of excluded text");
+        check(filter.accept(row(7, 5000, sat, "6", state, "GPS_FIX", FAILSAFE_PHASE_HEADER, "LANDED")), true,
+                "row at the end of range");
+        check(filter.isFinished(), false, "finished before the end of range");
+        check(filter.accept(row(8, 5001, sat, "6", state, "GPS_FIX")), false, "row after range");
+        check(filter.isFinished(), true, "finished after the end of range");
+        check(filter.getRowsSkipped(), 6L, "rows skipped");
+
+        RowFilter numbers = new RowFilter(Long.MIN_VALUE, Long.MAX_VALUE, Arrays.asList(
+                FLIGHT_MODE_HEADER + "!=0", BARO_ALT_COLUMN_NAME + "<-1.5", VBAT_COLUMN_NAME + "=16"));
+        check(numbers.accept(row(0, -7, FLIGHT_MODE_HEADER, "1", BARO_ALT_COLUMN_NAME, "-2", VBAT_COLUMN_NAME,
+                "16.0")), true, "row meeting conditions on numbers");
+        check(numbers.accept(row(1, 0, FLIGHT_MODE_HEADER, "0.0", BARO_ALT_COLUMN_NAME, "-2", VBAT_COLUMN_NAME,
+                "16")), false, "row equal to excluded number");
+        check(numbers.accept(row(2, 0, FLIGHT_MODE_HEADER, "1", BARO_ALT_COLUMN_NAME, "-1.5", VBAT_COLUMN_NAME,
+                "16")), false, "row on bound of condition");
+
+        checkError(BARO_ALT_COLUMN_NAME + ">high", IllegalArgumentException.class);
+        checkError(BARO_ALT_COLUMN_NAME, IllegalArgumentException.class);
+        checkError("unknown>=6", IndexOutOfBoundsException.class);
+    }
+
+    // Returns input row of zeros with given iteration, time and values of columns given by name and value.
+    private static String row(long iteration, long timeUs, String... namesAndValues) {
+
+        String[] values = new String[COLUMNS.length];
+        Arrays.fill(values, "0");
+        values[0] = String.valueOf(iteration);
+        values[1] = String.valueOf(timeUs);
+
+        List<String> columns = Arrays.asList(COLUMNS);
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            values[columns.indexOf(namesAndValues[i])] = namesAndValues[i + 1];
+        }
+
+        return String.join(CSV_DELIMITER, values);
+    }
+
+    private static String header() {
+        return String.join(CSV_DELIMITER, COLUMNS);
+    }
+
+    private static Path write(Path dir, String name, String separator, List<String> rows) throws IOException {
+        StringBuilder text = new StringBuilder(header()).append(separator);
+        for (String row : rows) {
+            text.append(row).append(separator);
+        }
+        Path file = dir.resolve(name);
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<String> readAll(SliceReader reader) {
+        List<String> rows = new ArrayList<>();
+        String row;
+        while ((row = reader.readRow()) != null) {
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static void checkError(String condition, Class<? extends Exception> errorClass) {
+        try {
+            new RowFilter(Long.MIN_VALUE, Long.MAX_VALUE, Collections.singletonList(condition));
+        } catch (Exception e) {
+            if (!errorClass.isInstance(e)) {
+                throw new AssertionError("Wrong error of condition " + condition + ": " + e);
+            }
+            return;
+        }
+        throw new AssertionError("Wrong condition is accepted: " + condition);
+    }
+
+    private static void check(Object actual, Object expected, String what) {
+        if (!actual.equals(expected)) {
+            throw new AssertionError("Wrong " + what + ": " + actual + " instead of " + expected);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.csvoptimizer;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+import static com.csvoptimizer.Constants.*;
+
+/**
+ * Checks mean and least-squares slope of {@link TimeWindow} with eviction, clearing on time going back and rebasing
+ * of long series, and vertical speed generated from it: 0 during warm-up of a session, no spikes on steps
+ * of barometer altitude and difference of rows for sparse logs.
+ */
+public class TestTimeWindow {
+
+    public static void main(String[] args) throws Exception {
+
+        testSlope();
+        testRebase();
+
+        Path dir = Files.createTempDirectory("vspeed");
+        try {
+            testVSpeedWarmUp(dir);
+            testVSpeedSparse(dir);
+        } finally {
+            for (Path file : Files.newDirectoryStream(dir)) {
+                Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+
+        System.out.println("TimeWindow and vertical speed are correct");
+    }
+
+    private static void testSlope() {
+
+        TimeWindow window = new TimeWindow(1000);
+        check(window.getSlope(), Double.NaN, "slope of empty window");
+        check(window.getMean(), 0, "mean of empty window");
+
+        // 3 + 2 * t at 0, 0.1, ..., 0.5 s.
+        for (int i = 0; i <= 5; ++i) {
+            window.add(i * 100000L, 3 + 0.2 * i);
+        }
+        check(window.size(), 6, "size");
+        check(window.getSlope(), 2, "slope of line");
+        check(window.getMean(), 3.5, "mean");
+        check(window.getFirst(), 3, "first value");
+        check(window.getLast(), 4, "last value");
+
+        // Values older than a second are evicted: 0.1 s is kept at 1.1 s, 0 is not.
+        window.add(1100000, 5.2);
+        check(window.size(), 6, "size after eviction");
+        check(window.getFirstTime(), 100000, "first time after eviction");
+        check(window.getSlope(), 2, "slope after eviction");
+
+        window.add(3000000, 7);
+        check(window.size(), 1, "size after gap");
+        check(window.getSlope(), Double.NaN, "slope of single value");
+
+        // Values of the same time have no slope.
+        window.add(3000000, 8);
+        check(window.getSlope(), Double.NaN, "slope of values of the same time");
+        check(window.getMean(), 7.5, "mean of values of the same time");
+
+        // Time going back clears the window.
+        window.add(200000, 1);
+        window.add(300000, 0);
+        check(window.size(), 2, "size after time going back");
+        check(window.getSlope(), -10, "slope after time going back");
+    }
+
+    // Sums of a long series are kept relative to moving base, so slope stays exact far from the start.
+    private static void testRebase() {
+
+        TimeWindow window = new TimeWindow(10);
+        for (long timeUs = 0; timeUs <= 1000000000L; timeUs += 1000) {
+            window.add(timeUs, timeUs * 5e-6);
+        }
+        check(window.size(), 11, "size of long series");
+        check(window.getSlope(), 5, 1e-6, "slope of long series");
+        check(window.getMean(), 4999.975, 1e-6, "mean of long series");
+    }
+
+    // Altitude steps 1 cm every 10 ms in rows of 500 Hz, that is 100 cm/s, the log is restarted once.
+    private static void testVSpeedWarmUp(Path dir) throws Exception {
+
+        List<String> rows = new ArrayList<>();
+        for (int session = 0; session < 2; ++session) {
+            for (long timeMs = 0; timeMs < 1000; timeMs += 2) {
+                rows.add(timeMs * 1000 + ":" + timeMs / 10);
+            }
+        }
+
+        List<Double> speeds = convert(dir, rows);
+        if (speeds.size() != rows.size()) {
+            throw new AssertionError(speeds.size() + " rows converted instead of " + rows.size());
+        }
+        for (int i = 0; i < speeds.size(); ++i) {
+            long timeMs = i % 500 * 2;
+            double speed = speeds.get(i);
+
+            // Slope is undefined until rows cover a tenth of the window (20 ms of 200 ms).
+            if (timeMs < DEFAULT_VSPEED_WINDOW_MS / 10 && speed != 0) {
+                throw new AssertionError("Speed at " + timeMs + " ms of session is " + speed + " instead of 0");
+            }
+            if (speed < 0 || speed > 150) {
+                throw new AssertionError("Speed at " + timeMs + " ms of session spikes to " + speed);
+            }
+            if (timeMs >= DEFAULT_VSPEED_WINDOW_MS && Math.abs(speed - 100) > 10) {
+                throw new AssertionError("Speed at " + timeMs + " ms of session is " + speed + " instead of 100");
+            }
+        }
+    }
+
+    // Rows of 1 Hz are farther from each other than half of the window, speed is their difference.
+    private static void testVSpeedSparse(Path dir) throws Exception {
+
+        List<Double> speeds = convert(dir, Arrays.asList("0:0", "1000000:100", "2000000:300", "4000000:200"));
+        if (!speeds.equals(Arrays.asList(0.0, 100.0, 200.0, -50.0))) {
+            throw new AssertionError("Speeds of sparse rows are " + speeds);
+        }
+    }
+
+    // Converts rows given as "time:baroAlt" and returns generated vertical speeds.
+    private static List<Double> convert(Path dir, List<String> rows) throws Exception {
+
+        String[] columns = AbstractRunnable.getInputColumns();
+        int timeIdx = Arrays.asList(columns).indexOf(TIME_COLUMN_NAME);
+        int baroAltIdx = Arrays.asList(columns).indexOf(BARO_ALT_COLUMN_NAME);
+
+        List<String> lines = new ArrayList<>();
+        lines.add(String.join(CSV_DELIMITER, columns));
+        for (String row : rows) {
+            String[] values = new String[columns.length];
+            Arrays.fill(values, "0");
+            values[timeIdx] = row.substring(0, row.indexOf(':'));
+            values[baroAltIdx] = row.substring(row.indexOf(':') + 1);
+            lines.add(String.join(CSV_DELIMITER, values));
+        }
+
+        Path in = dir.resolve("in.csv");
+        Path out = dir.resolve("out.csv");
+        Files.write(in, lines);
+
+        Calendar date = Calendar.getInstance();
+        date.setTimeInMillis(1609502400000L);
+        CSVConverter converter = new CSVConverter(in.toString(), out.toString(), 1, date, null);
+        converter.run();
+        if (converter.getFailure() != null) {
+            throw converter.getFailure();
+        }
+
+        List<String> output = Files.readAllLines(out);
+        int vSpeedIdx = Arrays.asList(output.get(0).split(CSV_DELIMITER)).indexOf(V_SPEED_BARO_HEADER);
+        List<Double> speeds = new ArrayList<>();
+        for (String line : output.subList(1, output.size())) {
+            speeds.add(Double.parseDouble(line.split(CSV_DELIMITER, -1)[vSpeedIdx].trim()));
+        }
+        return speeds;
+    }
+
+    private static void check(double actual, double expected, String what) {
+        check(actual, expected, 1e-9, what);
+    }
+
+    private static void check(double actual, double expected, double tolerance, String what) {
+        if (Double.isNaN(expected) ? !Double.isNaN(actual) : Math.abs(actual - expected) > tolerance) {
+            throw new AssertionError("Wrong " + what + ": " + actual + " instead of " + expected);
+        }
+    }
+}
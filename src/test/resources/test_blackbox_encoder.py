@@ -0,0 +1,194 @@
+"""Writes test_blackbox.bbl and test_blackbox_rows.csv from rows of a synthetic log.
+
+Usage (the source log is written by LogGenerator with the default seed):
+    java -cp <classes> com.csvoptimizer.LogGenerator out=gen.csv rows=300000
+    python3 test_blackbox_encoder.py gen.csv test_blackbox.bbl test_blackbox_rows.csv
+
+Expected rows are formatted here from the source values, independently of BlackboxDecoder: frames are encoded
+with the predictors and encodings of Betaflight, units follow formulas of blackbox_decode (centivolts and
+centiamperes of firmware 4, raw ADC values with vbatscale and current sensor offset and scale before it), rows of
+frames dropped after corruption are omitted until the next intra frame.
+"""
+import csv, sys
+src, out_bbl, out_exp = sys.argv[1], sys.argv[2], sys.argv[3]
+buf = bytearray()
+def o(b): buf.append(b & 0xFF)
+def uvb(v):
+    v &= 0xFFFFFFFF
+    while v >= 0x80: o((v & 0x7F) | 0x80); v >>= 7
+    o(v)
+def svb(v):
+    v &= 0xFFFFFFFF
+    if v & 0x80000000: v -= 1 << 32
+    uvb(((v << 1) ^ (v >> 31)) & 0xFFFFFFFF)
+def fits(v, bits): return -(1 << (bits-1)) <= v < (1 << (bits-1))
+def sized(lead_type, vs):
+    sel = 0; parts = []
+    for i, v in enumerate(vs):
+        n = 1 if fits(v,8) else 2 if fits(v,16) else 3 if fits(v,24) else 4
+        sel |= (n-1) << (2*i); parts.append((v, n))
+    o(0xC0 | sel)
+    for v, n in parts:
+        for b in range(n): o((v >> (8*b)) & 0xFF)
+def t23s32(v0,v1,v2):
+    if all(fits(v,2) for v in (v0,v1,v2)): o(((v0&3)<<4)|((v1&3)<<2)|(v2&3))
+    elif all(fits(v,4) for v in (v0,v1,v2)): o(0x40|(v0&0xF)); o(((v1&0xF)<<4)|(v2&0xF))
+    elif all(fits(v,6) for v in (v0,v1,v2)): o(0x80|(v0&0x3F)); o(v1&0x3F); o(v2&0x3F)
+    else: sized(0, (v0,v1,v2))
+def t23var(v0,v1,v2):
+    if all(fits(v,2) for v in (v0,v1,v2)): o(((v0&3)<<4)|((v1&3)<<2)|(v2&3))
+    elif fits(v0,5) and fits(v1,5) and fits(v2,4):
+        o(0x40|((v0&0x1F)<<1)|((v1&0x1F)>>4)); o(((v1&0xF)<<4)|(v2&0xF))
+    elif fits(v0,8) and fits(v1,7) and fits(v2,7):
+        o(0x80|((v0&0xFF)>>2)); o(((v0&3)<<6)|((v1&0x7F)>>1)); o(((v1&1)<<7)|(v2&0x7F))
+    else: sized(0, (v0,v1,v2))
+def t84s16(vs):
+    codes = [0 if v==0 else 1 if fits(v,4) else 2 if fits(v,8) else 3 for v in vs]
+    assert all(fits(v,16) for v in vs)
+    o(sum(c << (2*i) for i,c in enumerate(codes)))
+    half=False; b=0
+    for v,c in zip(vs,codes):
+        if c==0: continue
+        if c==1:
+            if not half: b=(v&0xF)<<4; half=True
+            else: o(b|(v&0xF)); half=False
+        elif c==2:
+            if not half: o(v&0xFF)
+            else: o(b|((v>>4)&0xF)); b=(v&0xF)<<4
+        else:
+            if not half: o((v>>8)&0xFF); o(v&0xFF)
+            else: o(b|((v>>12)&0xF)); o((v>>4)&0xFF); b=(v&0xF)<<4
+    if half: o(b)
+def t88svb(vs):
+    if len(vs)==1: svb(vs[0]); return
+    o(sum(1<<i for i,v in enumerate(vs) if v!=0))
+    for v in vs:
+        if v!=0: svb(v)
+def predict(p, i, names, cur, prev, prev2, ctx):
+    if p==0: return 0
+    if p==1: return prev[i]
+    if p==2: return 2*prev[i]-prev2[i]
+    if p==3:
+        s = prev[i]+prev2[i]; return -((-s)//2) if s<0 else s//2
+    if p==4: return ctx['minthrottle']
+    if p==5: return cur[names.index('motor[0]')]
+    if p==7: return ctx['home'][1 if names[i]=='GPS_coord[1]' else 0]
+    if p==8: return 1500
+    if p==9: return ctx['vbatref']
+    if p==10: return ctx['lastMainTime']
+    if p==11: return ctx['minmotor']
+    raise Exception(p)
+def enc_frame(names, preds, encs, cur, prev, prev2, ctx):
+    res = [cur[i]-predict(preds[i], i, names, cur, prev, prev2, ctx) if preds[i]!=6 else None for i in range(len(names))]
+    i=0
+    while i < len(names):
+        if preds[i]==6: i+=1; continue
+        e=encs[i]
+        if e==0: svb(res[i]); i+=1
+        elif e==1: uvb(res[i]); i+=1
+        elif e==3: uvb((-res[i]) & 0x3FFF); i+=1
+        elif e==9: assert res[i]==0; i+=1
+        elif e==8: t84s16(res[i:i+4]); i+=4
+        elif e==7: t23s32(*res[i:i+3]); i+=3
+        elif e==10: t23var(*res[i:i+3]); i+=3
+        elif e==6:
+            n=1
+            while n<8 and i+n<len(names) and encs[i+n]==6: n+=1
+            t88svb(res[i:i+n]); i+=n
+
+MAIN = ['loopIteration','time','axisP[0]','axisP[1]','axisP[2]','axisI[0]','axisI[1]','axisI[2]','axisD[0]','axisD[1]','axisF[0]','axisF[1]','axisF[2]',
+ 'rcCommand[0]','rcCommand[1]','rcCommand[2]','rcCommand[3]','setpoint[0]','setpoint[1]','setpoint[2]','setpoint[3]','vbatLatest','amperageLatest','baroAlt','rssi',
+ 'gyroADC[0]','gyroADC[1]','gyroADC[2]','accSmooth[0]','accSmooth[1]','accSmooth[2]','debug[0]','debug[1]','debug[2]','debug[3]','motor[0]','motor[1]','motor[2]','motor[3]']
+ISIGNED = [0,0]+[1]*14+[0]+[1]*4+[0,1,1,0]+[1]*10+[0]*4
+IPRED = [0,0]+[0]*14+[4]+[0]*4+[9,0,0,0]+[0]*10+[11,5,5,5]
+IENC = [1,1]+[0]*14+[1]+[0]*4+[3,0,0,1]+[0]*10+[1,0,0,0]
+PPRED = [6,2]+[1]*8+[1]*3+[1]*4+[1]*4+[1,1,3,1]+[3]*3+[3]*3+[3]*4+[3]*4
+PENC = [9,0]+[6]*8+[7]*3+[8]*4+[8]*4+[6]*4+[10]*3+[7]*3+[0]*4+[6]*4
+assert len(ISIGNED)==len(IPRED)==len(IENC)==len(PPRED)==len(PENC)==len(MAIN)
+SLOW = ['flightModeFlags','stateFlags','failsafePhase','rxSignalReceived','rxFlightChannelsValid']
+GPS = ['time','GPS_numSat','GPS_coord[0]','GPS_coord[1]','GPS_altitude','GPS_speed','GPS_ground_course']
+GPRED=[10,0,7,7,0,0,0]; GENC=[1,1,0,0,1,1,1]; GSIGNED=[0,0,1,1,0,0,0]
+FM = ["ANGLE_MODE","HORIZON_MODE","MAG","BARO","GPS_HOME","GPS_HOLD","HEADFREE","AUTOTUNE","PASSTHRU","SONAR"]
+ST = ["GPS_FIX_HOME","GPS_FIX","CALIBRATE_MAG","SMALL_ANGLE","FIXED_WING"]
+FS = ["IDLE","RX_LOSS_DETECTED","LANDING","LANDED","RX_LOSS_MONITORING","RX_LOSS_RECOVERED"]
+def flags(s, names):
+    if s=='0': return 0
+    return sum(1<<names.index(x) for x in s.split('|'))
+def fmtflags(v, names):
+    if v==0: return '0'
+    return '|'.join(names[b] if b < len(names) else str(b) for b in range(32) if v>>b&1)
+def fixed(v, d):
+    s='-' if v<0 else ''; v=abs(v); sc=10**d
+    return s+str(v//sc)+'.'+str(v%sc).zfill(d)
+
+def jdiv(a, b):
+    q = abs(a) // abs(b)
+    return q if (a >= 0) == (b >= 0) else -q
+def headers(extra):
+    h = {'Product':'Blackbox flight data recorder by Nicholas Sherlock','Data version':'2','I interval':'32',
+     'Firmware type':'Cleanflight','minthrottle':'1070','motorOutput':'1000,2000','vbatref':'2520',
+     'Field I name':','.join(MAIN),'Field I signed':','.join(map(str,ISIGNED)),'Field I predictor':','.join(map(str,IPRED)),'Field I encoding':','.join(map(str,IENC)),
+     'Field P predictor':','.join(map(str,PPRED)),'Field P encoding':','.join(map(str,PENC)),
+     'Field S name':','.join(SLOW),'Field S signed':'0,0,0,0,0','Field S predictor':'0,0,0,0,0','Field S encoding':'1,1,1,1,1',
+     'Field G name':','.join(GPS),'Field G signed':','.join(map(str,GSIGNED)),'Field G predictor':','.join(map(str,GPRED)),'Field G encoding':','.join(map(str,GENC)),
+     'Field H name':'GPS_home[0],GPS_home[1]','Field H signed':'1,1','Field H predictor':'0,0','Field H encoding':'0,0'}
+    h.update(extra)
+    for k,v in h.items(): buf.extend(f'H {k}:{v}\n'.encode())
+exp = open(out_exp,'w')
+exp.write(open(src).readline().rstrip('\n').replace('\r','') + '\n')
+def encode_log(rows, extra, logged, legacy, corrupt):
+    headers(extra)
+    ctx={'minthrottle':1070,'minmotor':1000,'vbatref':2520,'home':(552091290,831516301),'lastMainTime':0}
+    o(ord('E')); o(0); uvb(1234)  # sync beep
+    o(ord('H')); enc_frame(['GPS_home[0]','GPS_home[1]'],[0,0],[0,0],list(ctx['home']),None,None,ctx)
+    prev=prev2=None; lastslow=None; lastgps=None; energy=0.0; lastT=0; valid=True
+    for k, r in enumerate(rows):
+        if not logged(int(r[0])): continue
+        vals=[int(r[0]),int(r[1])]+[int(x) for x in r[2:21]]
+        if legacy:
+            # Raw ADC values of firmware before 4.0: vbatscale 110, current sensor offset 10 mV and scale 400.
+            cv=round(float(r[21])*1000*4095/(330*110)); ca=round((float(r[22])*1000*400/10000+10)*4095/3300)
+            mv=jdiv(cv*330*110, 4095); ma=jdiv((jdiv(ca*3300, 4095)-10)*10000, 400)
+        else:
+            cv=round(float(r[21])*100); ca=round(float(r[22])*100)
+            mv=cv*10; ma=ca*10
+        vals += [cv,ca,int(r[23]),int(r[24])]+[int(x) for x in r[25:39]]
+        slow=[flags(r[40],FM),flags(r[41],ST),FS.index(r[42]) if r[42] in FS else int(r[42]),int(r[43]),int(r[44])]
+        g=[vals[1],int(r[45]),round(float(r[46])*1e7),round(float(r[47])*1e7),int(r[48]),round(float(r[49])*100),round(float(r[50])*10)]
+        if slow!=lastslow:
+            o(ord('S')); enc_frame(SLOW,[0]*5,[1]*5,slow,None,None,ctx); lastslow=slow
+        if lastgps is None or g[1:]!=lastgps[1:]:
+            o(ord('G')); enc_frame(GPS,GPRED,GENC,g,lastgps,lastgps,ctx); lastgps=g
+        if vals[0]%32==0 or prev is None:
+            o(ord('I')); enc_frame(MAIN,IPRED,IENC,vals,prev,prev2,ctx); prev=prev2=vals; valid=True
+        else:
+            o(ord('P')); enc_frame(MAIN,PPRED,PENC,vals,prev,prev2,ctx); prev2=prev; prev=vals
+        t=vals[1]
+        ctx['lastMainTime']=t
+        if valid:
+            if lastT>0 and t>lastT: energy += ma*float(t-lastT)/3.6e9
+            lastT=t
+            out=[str(v) for v in vals[:21]]+[fixed(mv,3),fixed(ma,3)]+[str(v) for v in vals[23:]]+[str(int(energy))]
+            out+=[fmtflags(slow[0],FM),fmtflags(slow[1],ST),FS[slow[2]] if slow[2]<len(FS) else str(slow[2]),str(slow[3]),str(slow[4])]
+            out+=[str(g[1]),fixed(g[2],7),fixed(g[3],7),str(g[4]),fixed(g[5],2),fixed(g[6],1)]
+            exp.write(','.join(out)+'\n')
+        if k in corrupt:
+            buf.extend(corrupt[k])
+            if corrupt[k][0] != ord('E') or corrupt[k][1] != 30:
+                valid=False
+    o(ord('E')); o(255); buf.extend(b'End of log\x00')
+rd=csv.reader(open(src)); next(rd)
+source=[r for i, r in enumerate(rd) if i >= 11000 and i < 19400 and i % 35 == 0]
+rows=[]
+for idx, r in enumerate(source):
+    r=list(r); r[0]=str(4000 + idx); r[1]=str(2000000 + idx * 500 + int(r[1]) % 37); rows.append(r)
+# Log of firmware 4 having inter frames of every second iteration, with a valid flight mode event, an unknown event,
+# a truncated inter frame and an event of log end with wrong message.
+encode_log(rows, {'Firmware revision':'Betaflight 4.2.9 (abcdef) STM32F7X2','P interval':'1/2'},
+           lambda it: it % 2 == 0, False,
+           {20: bytes([ord('E'), 30, 5, 1]), 50: bytes([ord('E'), 0x63, 0x05, 0x06]), 110: bytes([ord('P'), 0x01, 0x02]),
+            170: b'E\xffEnd of lag\x00'})
+# Log of firmware 3.5 logging raw ADC values with inter frames of every fourth iteration.
+encode_log(rows[:120], {'Firmware revision':'Betaflight 3.5.7 (8a4fa4ede) OMNIBUSF4SD','P ratio':'4','vbatscale':'110',
+           'currentSensor':'10,400'}, lambda it: it % 4 == 0, True, {})
+open(out_bbl,'wb').write(buf)